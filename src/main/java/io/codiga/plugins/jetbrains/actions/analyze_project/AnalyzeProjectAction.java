@@ -0,0 +1,34 @@
+package io.codiga.plugins.jetbrains.actions.analyze_project;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.progress.ProgressManager;
+import io.codiga.plugins.jetbrains.settings.application.AppSettingsState;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Action to analyse all files of the current project with Rosie, for example to audit a repository before a release.
+ * <p>
+ * If the previous analysis was cancelled, this action resumes it.
+ *
+ * @see ProjectAnalysisTask
+ */
+public class AnalyzeProjectAction extends AnAction {
+
+    @Override
+    public void update(@NotNull AnActionEvent event) {
+        var project = event.getProject();
+        event.getPresentation().setEnabled(project != null
+            && AppSettingsState.getInstance().getCodigaEnabled()
+            && !ProjectAnalysis.getInstance(project).isRunning());
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent event) {
+        var project = event.getProject();
+        if (project == null || !ProjectAnalysis.getInstance(project).start()) {
+            return;
+        }
+        ProgressManager.getInstance().run(new ProjectAnalysisTask(project));
+    }
+}
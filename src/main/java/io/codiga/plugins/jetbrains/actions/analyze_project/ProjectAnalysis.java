@@ -0,0 +1,100 @@
+package io.codiga.plugins.jetbrains.actions.analyze_project;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the results of the latest project-wide analysis, see {@link AnalyzeProjectAction}.
+ * <p>
+ * If the latest analysis didn't complete (e.g. it was cancelled), the next one resumes it: files analysed already,
+ * and not modified since then, are not analysed again.
+ */
+@Service(Service.Level.PROJECT)
+public final class ProjectAnalysis {
+    /**
+     * The annotations of an analysed file, and the modification stamp of the file at the time of the analysis.
+     */
+    public static final class FileResult {
+        private final long modificationStamp;
+        private final List<RosieAnnotation> annotations;
+
+        FileResult(long modificationStamp, List<RosieAnnotation> annotations) {
+            this.modificationStamp = modificationStamp;
+            this.annotations = annotations;
+        }
+
+        public List<RosieAnnotation> getAnnotations() {
+            return annotations;
+        }
+    }
+
+    private final Map<VirtualFile, FileResult> results = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean complete = true;
+
+    /**
+     * Marks the start of an analysis.
+     *
+     * @return false if an analysis is already running, true otherwise
+     */
+    boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        //Resume an incomplete analysis, otherwise start from scratch
+        if (complete) {
+            results.clear();
+        }
+        complete = false;
+        return true;
+    }
+
+    void finish(boolean isComplete) {
+        complete = isComplete;
+        running.set(false);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Returns whether the argument file has been analysed already, and has not been modified since then.
+     */
+    boolean isUpToDate(VirtualFile file) {
+        var result = results.get(file);
+        return result != null && result.modificationStamp == file.getModificationStamp();
+    }
+
+    void record(VirtualFile file, long modificationStamp, List<RosieAnnotation> annotations) {
+        results.put(file, new FileResult(modificationStamp, annotations));
+    }
+
+    /**
+     * Drops the results of files that are no longer among the argument ones, e.g. because they have been deleted.
+     */
+    void retainOnly(Collection<VirtualFile> files) {
+        results.keySet().retainAll(files);
+    }
+
+    public Map<VirtualFile, FileResult> getResults() {
+        return Map.copyOf(results);
+    }
+
+    public int getAnnotationCount() {
+        return results.values().stream().mapToInt(result -> result.annotations.size()).sum();
+    }
+
+    public static ProjectAnalysis getInstance(@NotNull Project project) {
+        return project.getService(ProjectAnalysis.class);
+    }
+}
@@ -0,0 +1,74 @@
+package io.codiga.plugins.jetbrains.actions.analyze_project;
+
+import com.intellij.ide.errorTreeView.NewErrorTreeViewPanel;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindowId;
+import com.intellij.openapi.wm.ToolWindowManager;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.content.MessageView;
+import com.intellij.util.ui.MessageCategory;
+import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
+import org.jetbrains.annotations.NotNull;
+
+import static io.codiga.plugins.jetbrains.model.rosie.RosieConstants.ROSIE_SEVERITY_CRITICAL;
+import static io.codiga.plugins.jetbrains.model.rosie.RosieConstants.ROSIE_SEVERITY_ERROR;
+import static io.codiga.plugins.jetbrains.model.rosie.RosieConstants.ROSIE_SEVERITY_WARNING;
+import static io.codiga.plugins.jetbrains.ui.UIConstants.ANNOTATION_PREFIX;
+
+/**
+ * Shows the results of a project-wide analysis in a tab of the Messages tool window, grouped by file,
+ * from where the violations can be navigated to.
+ */
+final class ProjectAnalysisResultsView {
+    private static final String TAB_TITLE = "Codiga Analysis";
+
+    private ProjectAnalysisResultsView() {
+    }
+
+    /**
+     * Must be called on the EDT.
+     */
+    static void show(@NotNull Project project, @NotNull ProjectAnalysis projectAnalysis) {
+        var panel = new NewErrorTreeViewPanel(project, null);
+        projectAnalysis.getResults().forEach((file, result) -> {
+            for (RosieAnnotation annotation : result.getAnnotations()) {
+                String message = String.format("%s (%s: %s/%s)",
+                    annotation.getMessage(), ANNOTATION_PREFIX, annotation.getRulesetName(), annotation.getRuleName());
+                panel.addMessage(getCategory(annotation.getSeverity()), new String[]{message}, file,
+                    annotation.getStart().line - 1, Math.max(annotation.getStart().col - 1, 0), null);
+            }
+        });
+
+        var messageView = MessageView.SERVICE.getInstance(project);
+        messageView.runWhenInitialized(() -> {
+            var contentManager = messageView.getContentManager();
+            var previousContent = contentManager.findContent(TAB_TITLE);
+            if (previousContent != null) {
+                contentManager.removeContent(previousContent, true);
+            }
+            var content = ContentFactory.SERVICE.getInstance().createContent(panel, TAB_TITLE, true);
+            content.setDisposer(panel);
+            contentManager.addContent(content);
+            contentManager.setSelectedContent(content);
+
+            var toolWindow = ToolWindowManager.getInstance(project).getToolWindow(ToolWindowId.MESSAGES_WINDOW);
+            if (toolWindow != null) {
+                toolWindow.activate(null, false);
+            }
+        });
+    }
+
+    /**
+     * Maps Rosie severities to message categories, similarly to how {@link io.codiga.plugins.jetbrains.annotators.RosieAnnotator}
+     * maps them to highlight severities.
+     */
+    private static int getCategory(String rosieSeverity) {
+        if (ROSIE_SEVERITY_CRITICAL.equalsIgnoreCase(rosieSeverity)) {
+            return MessageCategory.ERROR;
+        }
+        if (ROSIE_SEVERITY_ERROR.equalsIgnoreCase(rosieSeverity) || ROSIE_SEVERITY_WARNING.equalsIgnoreCase(rosieSeverity)) {
+            return MessageCategory.WARNING;
+        }
+        return MessageCategory.INFORMATION;
+    }
+}
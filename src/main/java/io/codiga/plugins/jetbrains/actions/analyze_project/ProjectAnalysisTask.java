@@ -0,0 +1,259 @@
+package io.codiga.plugins.jetbrains.actions.analyze_project;
+
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.plugins.jetbrains.annotators.RosieRulesCache;
+import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
+import io.codiga.plugins.jetbrains.rosie.RosieApi;
+import io.codiga.plugins.jetbrains.rosie.RosieCircuitBreaker;
+import io.codiga.plugins.jetbrains.settings.application.AppSettingsState;
+import io.codiga.plugins.jetbrains.utils.LanguageUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
+import static io.codiga.plugins.jetbrains.utils.RosieLanguageSupport.isLanguageSupported;
+
+/**
+ * Analyses all files of a project supported by Rosie, with at most
+ * {@link AppSettingsState#getRosieProjectAnalysisParallelism()} batches of files analysed concurrently.
+ * <p>
+ * Files are grouped by language into batches of {@link #FILES_PER_BATCH} files, so that {@link RosieApi} can analyse
+ * each batch in a single request.
+ * <p>
+ * The results are collected in {@link ProjectAnalysis}, and shown in the Messages tool window by
+ * {@link ProjectAnalysisResultsView}, both when the analysis completes and when it is cancelled.
+ */
+class ProjectAnalysisTask extends Task.Backgroundable {
+    private static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
+    private static final long WAIT_INTERVAL_MILLIS = 100L;
+    private static final int FILES_PER_BATCH = 10;
+
+    private final ProjectAnalysis projectAnalysis;
+    private final AtomicInteger analysedFileCount = new AtomicInteger();
+    private final AtomicInteger skippedFileCount = new AtomicInteger();
+    private final AtomicInteger failedFileCount = new AtomicInteger();
+    private int resumedFileCount;
+    private long startTime;
+    private long endTime;
+
+    ProjectAnalysisTask(@NotNull Project project) {
+        super(project, "Analyzing project with Codiga", true);
+        this.projectAnalysis = ProjectAnalysis.getInstance(project);
+    }
+
+    @Override
+    public void run(@NotNull ProgressIndicator indicator) {
+        startTime = System.currentTimeMillis();
+        boolean isComplete = false;
+        try {
+            indicator.setText("Collecting files to analyze");
+            var files = collectFiles(indicator);
+            projectAnalysis.retainOnly(new HashSet<>(files));
+            var pendingFiles = new ArrayList<VirtualFile>();
+            for (VirtualFile file : files) {
+                if (ReadAction.compute(() -> projectAnalysis.isUpToDate(file))) {
+                    resumedFileCount++;
+                } else {
+                    pendingFiles.add(file);
+                }
+            }
+
+            indicator.setText("Analyzing files with Codiga");
+            indicator.setIndeterminate(false);
+            analyze(pendingFiles, indicator);
+            isComplete = skippedFileCount.get() == 0 && failedFileCount.get() == 0;
+        } finally {
+            endTime = System.currentTimeMillis();
+            projectAnalysis.finish(isComplete);
+        }
+    }
+
+    /**
+     * Returns the project files in a language supported by Rosie, and for which there is at least one rule to analyse them with,
+     * after applying the ignore configuration of the codiga.yml file.
+     */
+    private List<VirtualFile> collectFiles(ProgressIndicator indicator) {
+        var candidateFiles = new ArrayList<VirtualFile>();
+        ReadAction.run(() -> ProjectFileIndex.getInstance(myProject).iterateContent(file -> {
+            if (!file.isDirectory() && isLanguageSupported(LanguageUtils.getLanguageFromFilename(file.getPath()))) {
+                candidateFiles.add(file);
+            }
+            return !indicator.isCanceled();
+        }));
+        indicator.checkCanceled();
+
+        var rulesCache = RosieRulesCache.getInstance(myProject);
+        var files = new ArrayList<VirtualFile>();
+        for (VirtualFile file : candidateFiles) {
+            LanguageEnumeration language = LanguageUtils.getLanguageFromFilename(file.getPath());
+            if (!rulesCache.getRosieRules(language, file.getPath()).isEmpty()) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private void analyze(List<VirtualFile> files, ProgressIndicator indicator) {
+        int parallelism = Math.max(1, AppSettingsState.getInstance().getRosieProjectAnalysisParallelism());
+        var executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Codiga Project Analysis", parallelism);
+        var completedFileCount = new AtomicInteger();
+        var futures = new ArrayList<Future<?>>();
+        for (List<VirtualFile> batch : toBatches(files)) {
+            futures.add(executor.submit(() -> {
+                analyzeBatch(batch, indicator);
+                indicator.setFraction((double) completedFileCount.addAndGet(batch.size()) / files.size());
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                awaitWithCheckCanceled(future, indicator);
+            }
+        } catch (ProcessCanceledException e) {
+            //Files not analysed yet are analysed when the analysis is resumed
+            futures.forEach(future -> future.cancel(false));
+            throw e;
+        }
+    }
+
+    /**
+     * Splits the argument files into batches of files of the same language.
+     */
+    private static List<List<VirtualFile>> toBatches(List<VirtualFile> files) {
+        var filesByLanguage = new LinkedHashMap<LanguageEnumeration, List<VirtualFile>>();
+        for (VirtualFile file : files) {
+            filesByLanguage.computeIfAbsent(LanguageUtils.getLanguageFromFilename(file.getPath()), language -> new ArrayList<>()).add(file);
+        }
+        var batches = new ArrayList<List<VirtualFile>>();
+        for (List<VirtualFile> languageFiles : filesByLanguage.values()) {
+            for (int i = 0; i < languageFiles.size(); i += FILES_PER_BATCH) {
+                batches.add(languageFiles.subList(i, Math.min(i + FILES_PER_BATCH, languageFiles.size())));
+            }
+        }
+        return batches;
+    }
+
+    private void analyzeBatch(List<VirtualFile> batch, ProgressIndicator indicator) {
+        if (indicator.isCanceled()) {
+            return;
+        }
+        var psiFiles = new ArrayList<PsiFile>(batch.size());
+        var modificationStamps = new HashMap<PsiFile, Long>();
+        ReadAction.run(() -> {
+            for (VirtualFile file : batch) {
+                PsiFile psiFile = file.isValid() ? PsiManager.getInstance(myProject).findFile(file) : null;
+                if (psiFile != null) {
+                    psiFiles.add(psiFile);
+                    modificationStamps.put(psiFile, file.getModificationStamp());
+                }
+            }
+        });
+        if (psiFiles.isEmpty()) {
+            return;
+        }
+
+        var rosieApi = ApplicationManager.getApplication().getService(RosieApi.class);
+        Map<PsiFile, List<RosieAnnotation>> annotations;
+        try {
+            //Each batch is analysed under its own wrapper of the indicator, so that cancelling the analysis
+            // aborts the requests being sent, via RosieApiImpl's cancellation handling
+            annotations = ProgressManager.getInstance().runProcess(
+                () -> rosieApi.getAnnotations(psiFiles, myProject), new SensitiveProgressWrapper(indicator));
+        } catch (ProcessCanceledException e) {
+            skippedFileCount.addAndGet(psiFiles.size());
+            return;
+        }
+
+        //When Rosie is unavailable, the files are not analysed, so they are left for when the analysis is resumed
+        if (indicator.isCanceled() || RosieCircuitBreaker.getInstance().isOpen()) {
+            skippedFileCount.addAndGet(psiFiles.size());
+            return;
+        }
+        //Files whose analysis failed are not recorded, so that they are analysed again when the analysis is resumed
+        for (PsiFile psiFile : psiFiles) {
+            var fileAnnotations = annotations.get(psiFile);
+            if (fileAnnotations != null) {
+                projectAnalysis.record(psiFile.getVirtualFile(), modificationStamps.get(psiFile), fileAnnotations);
+                analysedFileCount.incrementAndGet();
+            } else {
+                failedFileCount.incrementAndGet();
+            }
+        }
+    }
+
+    private static void awaitWithCheckCanceled(Future<?> future, ProgressIndicator indicator) {
+        while (true) {
+            indicator.checkCanceled();
+            try {
+                future.get(WAIT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException ignored) {
+                //Check for cancellation again
+            } catch (ExecutionException e) {
+                LOGGER.warn("[ProjectAnalysisTask] Analysis of a batch of files failed.", e.getCause());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessCanceledException(e);
+            }
+        }
+    }
+
+    @Override
+    public void onSuccess() {
+        showResults(false);
+    }
+
+    @Override
+    public void onCancel() {
+        showResults(true);
+    }
+
+    private void showResults(boolean cancelled) {
+        ProjectAnalysisResultsView.show(myProject, projectAnalysis);
+
+        double elapsedSeconds = Math.max(endTime - startTime, 1) / 1000.0;
+        String message = String.format("Analyzed %d files in %.1f s (%.1f files/s), %d violations found in total.",
+            analysedFileCount.get(), elapsedSeconds, analysedFileCount.get() / elapsedSeconds, projectAnalysis.getAnnotationCount());
+        if (resumedFileCount > 0) {
+            message += String.format(" %d files were already analyzed by a previous run.", resumedFileCount);
+        }
+        if (failedFileCount.get() > 0) {
+            message += String.format(" %d files could not be analyzed.", failedFileCount.get());
+        }
+        boolean isIncomplete = cancelled || skippedFileCount.get() > 0 || failedFileCount.get() > 0;
+        if (isIncomplete) {
+            message += " The analysis is incomplete, run it again to resume it.";
+        }
+        NotificationGroupManager.getInstance().getNotificationGroup("Codiga Code Analysis")
+            .createNotification(message, isIncomplete ? NotificationType.WARNING : NotificationType.INFORMATION)
+            .notify(myProject);
+    }
+}
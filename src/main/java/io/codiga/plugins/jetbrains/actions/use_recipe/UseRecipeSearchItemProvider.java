@@ -1,7 +1,9 @@
 package io.codiga.plugins.jetbrains.actions.use_recipe;
 
 import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
 import com.intellij.util.Processor;
 import io.codiga.api.GetRecipesForClientSemanticQuery;
 import io.codiga.api.type.LanguageEnumeration;
@@ -11,6 +13,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static io.codiga.plugins.jetbrains.actions.ActionUtils.*;
 
@@ -41,7 +44,7 @@ public class UseRecipeSearchItemProvider implements SearchPopup.SearchItemProvid
             return;
         }
 
-        List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch> newRecipes = codigaApi.getRecipesSemantic(
+        CompletableFuture<List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch>> request = codigaApi.getRecipesSemanticAsync(
                 Optional.ofNullable(toSearch),
                 dependenciesName,
                 Optional.empty(),
@@ -52,6 +55,15 @@ public class UseRecipeSearchItemProvider implements SearchPopup.SearchItemProvid
                 Optional.empty()
         );
 
+        List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch> newRecipes;
+        try {
+            newRecipes = ProgressIndicatorUtils.awaitWithCheckCanceled(request, progressIndicator);
+        } catch (ProcessCanceledException e) {
+            //The search term changed or the popup was closed, so the request is no longer needed
+            request.cancel(true);
+            throw e;
+        }
+
         newRecipes.forEach(processor::process);
 
         if (progressIndicator.isRunning() && !progressIndicator.isCanceled()) {
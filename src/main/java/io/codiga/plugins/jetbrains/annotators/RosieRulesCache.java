@@ -1,8 +1,9 @@
 package io.codiga.plugins.jetbrains.annotators;
 
+import static java.util.stream.Collectors.flatMapping;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toUnmodifiableMap;
 
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.Disposable;
@@ -16,12 +17,12 @@ import com.intellij.serviceContainer.AlreadyDisposedException;
 import io.codiga.api.GetRulesetsForClientQuery;
 import io.codiga.api.type.LanguageEnumeration;
 import io.codiga.plugins.jetbrains.annotators.RosieRulesCacheValue.RuleWithNames;
+import io.codiga.plugins.jetbrains.annotators.SharedRosieRules.SharedRuleset;
 import io.codiga.plugins.jetbrains.model.rosie.RosieRule;
 import io.codiga.plugins.jetbrains.rosie.CodigaConfigFileUtil;
 import io.codiga.plugins.jetbrains.rosie.model.codiga.CodigaYmlConfig;
-import lombok.Getter;
-import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 import org.jetbrains.yaml.psi.YAMLFile;
 
@@ -29,66 +30,44 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.OptionalLong;
 
 /**
  * Caches Rosie rules based on the most up-to-date version of rules and rulesets on the Codiga server.
  * <p>
  * It is used as a {@link Disposable} project service, so that upon closing the project, the caches can be
  * cleaned up as part of the disposal process.
+ * <p>
+ * Its content is persisted via {@link RosieRulesDiskCache}, so that it can be restored when the project is opened again.
+ * <p>
+ * The rules themselves are held by {@link SharedRosieRules}, so that projects using the same rulesets share them.
+ * This cache is a per-project view of them that applies the ignore configuration of the project's codiga.yml.
  */
 @Service(Service.Level.PROJECT)
 public final class RosieRulesCache implements Disposable {
 
     private final Project project;
     /**
-     * Mapping the rules to their target Rosie languages, because this way
-     * <ul>
-     *     <li>retrieving the rules from this cache is much easier,</li>
-     *     <li>filtering the rules by language each time a request has to be sent to
-     *     the Rosie service is not necessary.</li>
-     * </ul>
-     * <p>
-     * NOTE: in the future, when the codiga.yml config file will be recognized at locations other than the project root,
-     * the cache key will probably have to be changed.
-     */
-    private final Map<LanguageEnumeration, RosieRulesCacheValue> cache;
-    /**
-     * The timestamp of the last update on the Codiga server for the rulesets cached (and configured in codiga.yml).
+     * The current content of the cache. Updates don't modify it, but publish a new snapshot,
+     * so that readers, e.g. annotator threads, always see a complete and consistent state without locking.
      */
-    @Getter
-    @Setter
-    private long lastUpdatedTimeStamp = -1L;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
     /**
      * -1 means the modification stamp of codiga.yml hasn't been set,
      * or there is no codiga.yml file in the project root.
      */
     private long configFileModificationStamp = -1L;
-    /**
-     * The codiga.yml configuration in the current project.
-     */
-    @Getter
-    private CodigaYmlConfig codigaYmlConfig;
-    /**
-     * [ruleset name] -> [is ruleset empty]
-     * <p>
-     * The ruleset names are the ones returned from the Codiga server after sending the local {@code codigaYmlConfig#getRulesets()}.
-     * <p>
-     * If a locally configured ruleset name is not returned (it doesn't exist on Codiga Hub), it won't have an entry in this collection.
-     */
-    private final Map<String, Boolean> rulesetsFromServer;
-    /**
-     * Stores if {@link #updateCacheFrom(List)} has been called at least once.
-     */
-    @Getter
-    private boolean isInitialized = false;
+    private final SharedRosieRules sharedRules;
+    private final RosieRulesDiskCache diskCache;
 
     public RosieRulesCache(Project project) {
+        this(project, SharedRosieRules.getInstance(), RosieRulesDiskCache.forProject(project));
+    }
+
+    RosieRulesCache(Project project, SharedRosieRules sharedRules, RosieRulesDiskCache diskCache) {
         this.project = project;
-        this.cache = new ConcurrentHashMap<>();
-        this.codigaYmlConfig = CodigaYmlConfig.EMPTY;
-        this.rulesetsFromServer = new ConcurrentHashMap<>();
+        this.sharedRules = sharedRules;
+        this.diskCache = diskCache;
     }
 
     public boolean hasDifferentModificationStampThan(YAMLFile codigaConfigFile) {
@@ -99,20 +78,45 @@ public final class RosieRulesCache implements Disposable {
         this.configFileModificationStamp = codigaConfigFile.getModificationStamp();
     }
 
-    public void setCodigaYmlConfig(@NotNull CodigaYmlConfig codigaYmlConfig) {
-        this.codigaYmlConfig = codigaYmlConfig;
+    /**
+     * Returns the codiga.yml configuration in the current project.
+     */
+    public CodigaYmlConfig getCodigaYmlConfig() {
+        return snapshot.codigaYmlConfig;
+    }
+
+    public synchronized void setCodigaYmlConfig(@NotNull CodigaYmlConfig codigaYmlConfig) {
+        snapshot = snapshot.withCodigaYmlConfig(codigaYmlConfig);
+    }
+
+    /**
+     * Returns the timestamp of the last update on the Codiga server for the rulesets cached (and configured in codiga.yml).
+     */
+    public long getLastUpdatedTimeStamp() {
+        return snapshot.lastUpdatedTimeStamp;
+    }
+
+    public synchronized void setLastUpdatedTimeStamp(long lastUpdatedTimeStamp) {
+        snapshot = snapshot.withLastUpdatedTimeStamp(lastUpdatedTimeStamp);
+    }
+
+    /**
+     * Returns if {@link #updateCacheFrom(List)} has been called at least once.
+     */
+    public boolean isInitialized() {
+        return snapshot.isInitialized;
     }
 
     public boolean isRulesetExist(String rulesetName) {
-        return rulesetsFromServer.containsKey(rulesetName);
+        return snapshot.rulesetsFromServer.containsKey(rulesetName);
     }
 
     public boolean isRulesetEmpty(String rulesetName) {
-        return rulesetsFromServer.get(rulesetName);
+        return snapshot.rulesetsFromServer.getOrDefault(rulesetName, false);
     }
 
     /**
-     * Clears and repopulates this cache based on the argument 'rulesets' information returned
+     * Replaces the content of this cache based on the argument 'rulesets' information returned
      * from the Codiga API.
      * <p>
      * Groups the rules by their target languages, converts them to {@code RosieRule} objects,
@@ -121,30 +125,84 @@ public final class RosieRulesCache implements Disposable {
      * @param rulesetsFromCodigaAPI the rulesets information
      */
     public void updateCacheFrom(List<GetRulesetsForClientQuery.RuleSetsForClient> rulesetsFromCodigaAPI) {
-        saveRulesets(rulesetsFromCodigaAPI);
-        saveRulesByLanguages(rulesetsFromCodigaAPI);
+        var sharedRulesets = sharedRules.acquire(rulesetsFromCodigaAPI);
+        updateCacheFromSharedRulesets(sharedRulesets, OptionalLong.empty());
+    }
+
+    /**
+     * Same as {@link #updateCacheFrom(List)}, but also saves the argument last updated timestamp of the rulesets,
+     * and shares the rulesets with other projects that have the same rulesets configured in their codiga.yml.
+     *
+     * @param rulesetsFromCodigaAPI the rulesets information
+     * @param lastUpdatedTimeStamp  the timestamp returned by the Codiga server along with the rulesets
+     */
+    public void updateCacheFrom(List<GetRulesetsForClientQuery.RuleSetsForClient> rulesetsFromCodigaAPI, long lastUpdatedTimeStamp) {
+        var sharedRulesets = sharedRules.acquire(rulesetsFromCodigaAPI);
+        sharedRules.register(getCodigaYmlConfig().getRulesets(), lastUpdatedTimeStamp, sharedRulesets);
+        updateCacheFromSharedRulesets(sharedRulesets, OptionalLong.of(lastUpdatedTimeStamp));
+    }
+
+    /**
+     * Updates this cache from the rulesets another project has already fetched for the same ruleset names
+     * and last updated timestamp, if there are any, so that they don't have to be fetched again.
+     *
+     * @param lastUpdatedTimeStamp the current timestamp of the rulesets on the Codiga server
+     * @return true if the cache was updated
+     */
+    public boolean updateCacheFromSharedRules(long lastUpdatedTimeStamp) {
+        return sharedRules.acquire(getCodigaYmlConfig().getRulesets(), lastUpdatedTimeStamp)
+            .map(sharedRulesets -> {
+                updateCacheFromSharedRulesets(sharedRulesets, OptionalLong.of(lastUpdatedTimeStamp));
+                return true;
+            })
+            .orElse(false);
+    }
+
+    /**
+     * Publishes a new snapshot with the argument rulesets, and with the argument timestamp if present,
+     * otherwise keeping the current one.
+     */
+    private void updateCacheFromSharedRulesets(List<SharedRuleset> sharedRulesets, OptionalLong lastUpdatedTimeStamp) {
+        List<SharedRuleset> previousRulesets;
+        synchronized (this) {
+            previousRulesets = snapshot.rulesets;
+            snapshot = snapshot.withRulesets(sharedRulesets, lastUpdatedTimeStamp.orElse(snapshot.lastUpdatedTimeStamp));
+        }
+        //Readers may still use the previous snapshot, but the rules in it remain valid, they are just no longer shared
+        sharedRules.release(previousRulesets);
         reAnalyzeConfigFile();
-        isInitialized = true;
     }
 
-    private void saveRulesets(List<GetRulesetsForClientQuery.RuleSetsForClient> rulesetsFromCodigaAPI) {
-        var rulesets = rulesetsFromCodigaAPI.stream()
-            .collect(toMap(GetRulesetsForClientQuery.RuleSetsForClient::name, entry -> entry.rules().isEmpty()));
-        rulesetsFromServer.clear();
-        rulesetsFromServer.putAll(rulesets);
+    /**
+     * Restores the cache from the rules persisted by a previous session, if they were fetched for the same rulesets
+     * as the ones currently configured in codiga.yml. Must be called after the codiga.yml configuration is set.
+     * <p>
+     * The restored rules are used until the next cache update checks their timestamp on the Codiga server.
+     *
+     * @return true if the cache was restored
+     */
+    public boolean restorePersistedRules() {
+        var persisted = diskCache.load();
+        if (persisted == null || !persisted.getRulesetNames().equals(getCodigaYmlConfig().getRulesets())) {
+            return false;
+        }
+        updateCacheFrom(persisted.getRulesets(), persisted.getLastUpdatedTimeStamp());
+        return true;
     }
 
-    private void saveRulesByLanguages(List<GetRulesetsForClientQuery.RuleSetsForClient> rulesetsFromCodigaAPI) {
-        var rulesByLanguage = rulesetsFromCodigaAPI.stream()
-            .flatMap(ruleset -> ruleset.rules().stream().map(rule -> new RuleWithNames(ruleset.name(), rule)))
-            .collect(groupingBy(rule -> rule.rosieRule.language))
-            .entrySet()
-            .stream()
-            .collect(toMap(entry -> LanguageEnumeration.safeValueOf(entry.getKey()), entry -> new RosieRulesCacheValue(entry.getValue())));
-        //Clearing and repopulating the cache is easier than picking out one by one
-        // the ones that remain, and the ones that have to be removed.
-        cache.clear();
-        cache.putAll(rulesByLanguage);
+    /**
+     * Persists the current content of the cache, or deletes the persisted content if the cache is empty,
+     * e.g. because codiga.yml no longer exists, or has no rulesets configured.
+     */
+    public void persist() {
+        var current = snapshot;
+        if (current.rulesets.isEmpty()) {
+            diskCache.delete();
+        } else {
+            diskCache.save(current.codigaYmlConfig.getRulesets(),
+                current.rulesets.stream().map(SharedRuleset::getRuleset).collect(toList()),
+                current.lastUpdatedTimeStamp);
+        }
     }
 
     /**
@@ -174,50 +232,20 @@ public final class RosieRulesCache implements Disposable {
     public List<RosieRule> getRosieRules(LanguageEnumeration language, @NotNull String pathOfAnalyzedFile) {
         var projectDir = ProjectUtil.guessProjectDir(project);
         if (projectDir != null) {
-            var cachedRules = cache.get(getCachedLanguageTypeOf(language));
+            var current = snapshot;
+            var cachedRules = current.rulesByLanguage.get(getCachedLanguageTypeOf(language));
             var rosieRulesForLanguage = cachedRules != null ? cachedRules.getRosieRules() : List.<RosieRule>of();
 
             if (!rosieRulesForLanguage.isEmpty()) {
                 String relativePathOfAnalyzedFile = pathOfAnalyzedFile.replace(projectDir.getPath(), "");
                 //Returns the RosieRules that either don't have an ignore rule, or their prefixes don't match the currently analyzed file's path
-                return rosieRulesForLanguage.stream()
-                    .filter(rosieRule -> {
-                            var ruleIgnore = Optional.of(codigaYmlConfig)
-                                .map(config -> config.getIgnore(rosieRule.rulesetName))
-                                .map(rulesetIgnore -> rulesetIgnore.getRuleIgnore(rosieRule.ruleName));
-
-                            //If there is no ruleset ignore or rule ignore for the current RosieRule,
-                            // then we keep it/don't ignore it.
-                            if (ruleIgnore.isEmpty())
-                                return true;
-
-                            //If there is no prefix specified for the current rule ignore config,
-                            // we don't keep the rule/ignore it.
-                            if (ruleIgnore.get().getPrefixes().isEmpty())
-                                return false;
-
-                            return ruleIgnore.get().getPrefixes().stream()
-                                //Since the leading / is optional, we remove it
-                                .map(this::removeLeadingSlash)
-                                //./, /. and .. sequences are not allowed in prefixes, therefore we consider them not matching the file path.
-                                //. symbols in general are allowed to be able to target exact file paths with their file extensions.
-                                .noneMatch(prefix ->
-                                    !prefix.contains("..")
-                                        && !prefix.contains("./")
-                                        && !prefix.contains("/.")
-                                        && removeLeadingSlash(relativePathOfAnalyzedFile).startsWith(prefix));
-                        }
-                    ).collect(toList());
+                return cachedRules.getRosieRules(current.ignoreMatcher, RosieRulesIgnoreMatcher.removeLeadingSlash(relativePathOfAnalyzedFile));
             }
         }
 
         return List.of();
     }
 
-    private String removeLeadingSlash(String path) {
-        return path.startsWith("/") ? path.replaceFirst("/", "") : path;
-    }
-
     /**
      * Since, besides JavaScript files, rules for TypeScript files are also handled under the same JavaScript Rosie language
      * type, we have to return JavaScript rules for TypeScript files as well.
@@ -231,28 +259,26 @@ public final class RosieRulesCache implements Disposable {
     /**
      * Returns the cached rules for the provided language and rule id.
      * <p>
-     * Null value for non-existent mapping for a language is already handled in {@link #getRosieRules(LanguageEnumeration, String)}.
-     * <p>
-     * It should not return null when retrieving the rule for the rule id, since in {@code RosieImpl#getAnnotations()}
-     * the {@link io.codiga.plugins.jetbrains.model.rosie.RosieRuleResponse}s and their ids are based on the values
-     * cached here.
+     * Returns null if there is no such rule, e.g. because the cache has been updated since the rule was retrieved.
      */
+    @Nullable
     public RuleWithNames getRuleWithNamesFor(LanguageEnumeration language, String ruleId) {
-        return cache.get(getCachedLanguageTypeOf(language)).getRules().get(ruleId);
+        var cachedRules = snapshot.rulesByLanguage.get(getCachedLanguageTypeOf(language));
+        return cachedRules != null ? cachedRules.getRules().get(ruleId) : null;
     }
 
     /**
      * Empties the cache if it is not empty.
+     * <p>
+     * The persisted content is not affected, it is updated only via {@link #persist()}.
      */
     public void clear() {
-        if (!cache.isEmpty()) {
-            cache.clear();
-        }
-        if (!rulesetsFromServer.isEmpty()) {
-            rulesetsFromServer.clear();
+        List<SharedRuleset> previousRulesets;
+        synchronized (this) {
+            previousRulesets = snapshot.rulesets;
+            snapshot = snapshot.cleared();
         }
-        codigaYmlConfig = CodigaYmlConfig.EMPTY;
-        lastUpdatedTimeStamp = -1L;
+        sharedRules.release(previousRulesets);
     }
 
     @Override
@@ -268,7 +294,7 @@ public final class RosieRulesCache implements Disposable {
 
     @TestOnly
     public boolean isEmpty() {
-        return cache.isEmpty();
+        return snapshot.rulesByLanguage.isEmpty();
     }
 
     @TestOnly
@@ -280,4 +306,89 @@ public final class RosieRulesCache implements Disposable {
     public void setConfigFileModificationStamp(long configFileModificationStamp) {
         this.configFileModificationStamp = configFileModificationStamp;
     }
+
+    /**
+     * An immutable state of the cache.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(List.of(), Map.of(), Map.of(), CodigaYmlConfig.EMPTY, RosieRulesIgnoreMatcher.EMPTY, -1L, false);
+
+        /**
+         * The rulesets this cache was last updated from, acquired from {@link SharedRosieRules}.
+         */
+        final List<SharedRuleset> rulesets;
+        /**
+         * Mapping the rules to their target Rosie languages, because this way
+         * <ul>
+         *     <li>retrieving the rules from this cache is much easier,</li>
+         *     <li>filtering the rules by language each time a request has to be sent to
+         *     the Rosie service is not necessary.</li>
+         * </ul>
+         * <p>
+         * NOTE: in the future, when the codiga.yml config file will be recognized at locations other than the project root,
+         * the cache key will probably have to be changed.
+         */
+        final Map<LanguageEnumeration, RosieRulesCacheValue> rulesByLanguage;
+        /**
+         * [ruleset name] -> [is ruleset empty]
+         * <p>
+         * The ruleset names are the ones returned from the Codiga server after sending the local {@code codigaYmlConfig#getRulesets()}.
+         * <p>
+         * If a locally configured ruleset name is not returned (it doesn't exist on Codiga Hub), it won't have an entry in this collection.
+         */
+        final Map<String, Boolean> rulesetsFromServer;
+        final CodigaYmlConfig codigaYmlConfig;
+        /**
+         * The ignore configuration of {@link #codigaYmlConfig}, compiled when the configuration is set.
+         */
+        final RosieRulesIgnoreMatcher ignoreMatcher;
+        final long lastUpdatedTimeStamp;
+        final boolean isInitialized;
+
+        private Snapshot(List<SharedRuleset> rulesets,
+                         Map<LanguageEnumeration, RosieRulesCacheValue> rulesByLanguage,
+                         Map<String, Boolean> rulesetsFromServer,
+                         CodigaYmlConfig codigaYmlConfig,
+                         RosieRulesIgnoreMatcher ignoreMatcher,
+                         long lastUpdatedTimeStamp,
+                         boolean isInitialized) {
+            this.rulesets = rulesets;
+            this.rulesByLanguage = rulesByLanguage;
+            this.rulesetsFromServer = rulesetsFromServer;
+            this.codigaYmlConfig = codigaYmlConfig;
+            this.ignoreMatcher = ignoreMatcher;
+            this.lastUpdatedTimeStamp = lastUpdatedTimeStamp;
+            this.isInitialized = isInitialized;
+        }
+
+        Snapshot withRulesets(List<SharedRuleset> sharedRulesets, long lastUpdatedTimeStamp) {
+            var rulesetsFromServer = sharedRulesets.stream()
+                .map(SharedRuleset::getRuleset)
+                .collect(toUnmodifiableMap(GetRulesetsForClientQuery.RuleSetsForClient::name, entry -> entry.rules().isEmpty()));
+            //Only the maps are created per project, the rules in them are the shared instances
+            var rulesByLanguage = sharedRulesets.stream()
+                .flatMap(ruleset -> ruleset.getRulesByLanguage().entrySet().stream())
+                .collect(groupingBy(Map.Entry::getKey, flatMapping(entry -> entry.getValue().stream(), toList())))
+                .entrySet()
+                .stream()
+                .collect(toUnmodifiableMap(Map.Entry::getKey, entry -> new RosieRulesCacheValue(entry.getValue())));
+            return new Snapshot(List.copyOf(sharedRulesets), rulesByLanguage, rulesetsFromServer, codigaYmlConfig, ignoreMatcher, lastUpdatedTimeStamp, true);
+        }
+
+        Snapshot withCodigaYmlConfig(CodigaYmlConfig codigaYmlConfig) {
+            return new Snapshot(rulesets, rulesByLanguage, rulesetsFromServer, codigaYmlConfig,
+                RosieRulesIgnoreMatcher.compile(codigaYmlConfig), lastUpdatedTimeStamp, isInitialized);
+        }
+
+        Snapshot withLastUpdatedTimeStamp(long lastUpdatedTimeStamp) {
+            return new Snapshot(rulesets, rulesByLanguage, rulesetsFromServer, codigaYmlConfig, ignoreMatcher, lastUpdatedTimeStamp, isInitialized);
+        }
+
+        /**
+         * Returns an empty snapshot, that keeps whether the cache has been initialized.
+         */
+        Snapshot cleared() {
+            return isInitialized ? new Snapshot(List.of(), Map.of(), Map.of(), CodigaYmlConfig.EMPTY, RosieRulesIgnoreMatcher.EMPTY, -1L, true) : EMPTY;
+        }
+    }
 }
@@ -9,6 +9,7 @@ import lombok.EqualsAndHashCode;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -16,6 +17,10 @@ import java.util.function.Function;
  */
 @EqualsAndHashCode
 public final class RosieRulesCacheValue {
+    /**
+     * The number of file paths for which the filtered rules are memoized, to keep the memory use bounded in large projects.
+     */
+    private static final int MAX_MEMOIZED_PATHS = 2_000;
 
     /**
      * Maps the rule id to [rulesetName, ruleName, RosieRule].
@@ -34,6 +39,13 @@ public final class RosieRulesCacheValue {
      * {@code RosieRule} instances is performed per cache update, instead of for each Rosie service request.
      */
     private final List<RosieRule> rosieRules;
+    /**
+     * The rules not ignored for the files analyzed so far, memoized for the ignore configuration they were filtered with.
+     * <p>
+     * It is replaced when the ignore configuration changes, so entries filtered with an outdated configuration are never returned.
+     */
+    @EqualsAndHashCode.Exclude
+    private volatile FilteredRules filteredRules = new FilteredRules(RosieRulesIgnoreMatcher.EMPTY);
 
     public RosieRulesCacheValue(List<RuleWithNames> rules) {
         this.rules = rules.stream().collect(toMap(rule -> rule.rosieRule.id, Function.identity()));
@@ -48,6 +60,39 @@ public final class RosieRulesCacheValue {
         return rosieRules;
     }
 
+    /**
+     * Returns the rules that are not ignored by the argument ignore configuration for the file at the argument path.
+     *
+     * @param relativePathOfAnalyzedFile the path of the analyzed file relative to the project directory, without a leading /
+     */
+    List<RosieRule> getRosieRules(RosieRulesIgnoreMatcher ignoreMatcher, String relativePathOfAnalyzedFile) {
+        if (ignoreMatcher.isEmpty()) {
+            return rosieRules;
+        }
+        var filtered = filteredRules;
+        if (filtered.ignoreMatcher != ignoreMatcher) {
+            filtered = new FilteredRules(ignoreMatcher);
+            filteredRules = filtered;
+        }
+        if (filtered.rulesByPath.size() >= MAX_MEMOIZED_PATHS) {
+            filtered.rulesByPath.clear();
+        }
+        return filtered.rulesByPath.computeIfAbsent(relativePathOfAnalyzedFile, path -> {
+            var rules = rosieRules.stream().filter(rule -> !ignoreMatcher.isIgnored(rule, path)).collect(toList());
+            //Sharing the full list when no rule is ignored, which is the case for most files
+            return rules.size() == rosieRules.size() ? rosieRules : rules;
+        });
+    }
+
+    private static final class FilteredRules {
+        private final RosieRulesIgnoreMatcher ignoreMatcher;
+        private final Map<String, List<RosieRule>> rulesByPath = new ConcurrentHashMap<>();
+
+        private FilteredRules(RosieRulesIgnoreMatcher ignoreMatcher) {
+            this.ignoreMatcher = ignoreMatcher;
+        }
+    }
+
     @EqualsAndHashCode
     public static final class RuleWithNames {
         public final String rulesetName;
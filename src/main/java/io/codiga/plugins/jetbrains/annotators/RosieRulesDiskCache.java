@@ -0,0 +1,189 @@
+package io.codiga.plugins.jetbrains.annotators;
+
+import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
+import static java.util.stream.Collectors.toList;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import io.codiga.api.GetRulesetsForClientQuery;
+import io.codiga.api.type.ElementCheckedEnumeration;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.api.type.RosieRuleTypeEnumeration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Persists the content of a project's {@link RosieRulesCache} as JSON in the IDE's system directory, so that the rules
+ * are available right after the project is opened, even offline, without waiting for the Codiga server.
+ * <p>
+ * The persisted rules are revalidated in the background, by comparing their timestamp with the one on the Codiga server.
+ */
+final class RosieRulesDiskCache {
+    private static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
+    private static final Gson GSON = new Gson();
+    /**
+     * Incremented when the format of the file changes, so that files of earlier versions are ignored.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+
+    RosieRulesDiskCache(@NotNull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the cache file of the argument project, which is unique per project location.
+     */
+    static RosieRulesDiskCache forProject(@NotNull Project project) {
+        return new RosieRulesDiskCache(PathManager.getSystemDir()
+            .resolve("codiga")
+            .resolve("rules-cache")
+            .resolve(project.getLocationHash() + ".json"));
+    }
+
+    /**
+     * Saves the argument rulesets, fetched for the argument ruleset names configured in codiga.yml,
+     * along with their last update timestamp on the Codiga server.
+     * <p>
+     * The file is replaced atomically, so that a concurrent or interrupted save doesn't leave a corrupt file behind.
+     */
+    void save(List<String> rulesetNames, List<GetRulesetsForClientQuery.RuleSetsForClient> rulesets, long lastUpdatedTimeStamp) {
+        var snapshot = new Snapshot();
+        snapshot.version = FORMAT_VERSION;
+        snapshot.rulesetNames = rulesetNames;
+        snapshot.lastUpdatedTimeStamp = lastUpdatedTimeStamp;
+        snapshot.rulesets = rulesets.stream().map(Ruleset::new).collect(toList());
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(tempFile, GSON.toJson(snapshot), StandardCharsets.UTF_8);
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("[RosieRulesDiskCache] Could not save the rules cache to " + file, e);
+        }
+    }
+
+    /**
+     * Returns the persisted rules cache, or null if there is none, or it cannot be read.
+     */
+    @Nullable
+    Snapshot load() {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            var snapshot = GSON.fromJson(Files.readString(file, StandardCharsets.UTF_8), Snapshot.class);
+            if (snapshot == null || snapshot.version != FORMAT_VERSION || snapshot.rulesetNames == null || snapshot.rulesets == null) {
+                return null;
+            }
+            return snapshot;
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn("[RosieRulesDiskCache] Could not load the rules cache from " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the persisted rules cache, e.g. when codiga.yml has been removed from the project.
+     */
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("[RosieRulesDiskCache] Could not delete the rules cache " + file, e);
+        }
+    }
+
+    /**
+     * The persisted content of the cache.
+     */
+    static final class Snapshot {
+        int version;
+        List<String> rulesetNames;
+        long lastUpdatedTimeStamp;
+        List<Ruleset> rulesets;
+
+        List<String> getRulesetNames() {
+            return rulesetNames;
+        }
+
+        long getLastUpdatedTimeStamp() {
+            return lastUpdatedTimeStamp;
+        }
+
+        List<GetRulesetsForClientQuery.RuleSetsForClient> getRulesets() {
+            return rulesets.stream().map(Ruleset::toRuleset).collect(toList());
+        }
+    }
+
+    private static final class Ruleset {
+        String id;
+        String name;
+        List<Rule> rules;
+
+        //For Gson
+        Ruleset() {
+        }
+
+        Ruleset(GetRulesetsForClientQuery.RuleSetsForClient ruleset) {
+            this.id = String.valueOf(ruleset.id());
+            this.name = ruleset.name();
+            this.rules = ruleset.rules().stream().map(Rule::new).collect(toList());
+        }
+
+        GetRulesetsForClientQuery.RuleSetsForClient toRuleset() {
+            return new GetRulesetsForClientQuery.RuleSetsForClient("RosieRuleSet", new BigDecimal(id), name, rules.stream().map(Rule::toRule).collect(toList()));
+        }
+    }
+
+    private static final class Rule {
+        String id;
+        String name;
+        String content;
+        String ruleType;
+        String language;
+        String pattern;
+        String elementChecked;
+
+        //For Gson
+        Rule() {
+        }
+
+        Rule(GetRulesetsForClientQuery.Rule rule) {
+            this.id = String.valueOf(rule.id());
+            this.name = rule.name();
+            this.content = rule.content();
+            this.ruleType = rule.ruleType().rawValue();
+            this.language = rule.language().rawValue();
+            this.pattern = rule.pattern();
+            this.elementChecked = rule.elementChecked() != null ? rule.elementChecked().rawValue() : null;
+        }
+
+        GetRulesetsForClientQuery.Rule toRule() {
+            return new GetRulesetsForClientQuery.Rule("RosieRule",
+                id,
+                name,
+                content,
+                RosieRuleTypeEnumeration.safeValueOf(ruleType),
+                LanguageEnumeration.safeValueOf(language),
+                pattern,
+                elementChecked != null ? ElementCheckedEnumeration.safeValueOf(elementChecked) : null);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.codiga.plugins.jetbrains.annotators;
+
+import io.codiga.plugins.jetbrains.model.rosie.RosieRule;
+import io.codiga.plugins.jetbrains.rosie.model.codiga.CodigaYmlConfig;
+import io.codiga.plugins.jetbrains.rosie.model.codiga.RuleIgnore;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@code ignore} configuration of a codiga.yml file, compiled into a prefix tree per rule, so that deciding whether
+ * a rule is ignored for a file takes a single walk along the file path, instead of validating and matching each prefix
+ * of the rule one by one.
+ * <p>
+ * It is compiled once per codiga.yml change, via {@link #compile(CodigaYmlConfig)}.
+ */
+final class RosieRulesIgnoreMatcher {
+    static final RosieRulesIgnoreMatcher EMPTY = new RosieRulesIgnoreMatcher(Map.of());
+
+    /**
+     * [ruleset name] -> [rule name] -> the prefixes for which the rule is ignored
+     */
+    private final Map<String, Map<String, PrefixTree>> ignoredPrefixes;
+
+    private RosieRulesIgnoreMatcher(Map<String, Map<String, PrefixTree>> ignoredPrefixes) {
+        this.ignoredPrefixes = ignoredPrefixes;
+    }
+
+    static RosieRulesIgnoreMatcher compile(@NotNull CodigaYmlConfig codigaYmlConfig) {
+        var ignoredPrefixes = new HashMap<String, Map<String, PrefixTree>>();
+        codigaYmlConfig.getIgnore().forEach((rulesetName, rulesetIgnore) -> {
+            if (rulesetIgnore.getRuleIgnores() == null) {
+                return;
+            }
+            var ruleIgnores = new HashMap<String, PrefixTree>();
+            rulesetIgnore.getRuleIgnores().forEach((ruleName, ruleIgnore) -> {
+                var prefixTree = compile(ruleIgnore);
+                if (!prefixTree.isEmpty()) {
+                    ruleIgnores.put(ruleName, prefixTree);
+                }
+            });
+            if (!ruleIgnores.isEmpty()) {
+                ignoredPrefixes.put(rulesetName, ruleIgnores);
+            }
+        });
+        return ignoredPrefixes.isEmpty() ? EMPTY : new RosieRulesIgnoreMatcher(ignoredPrefixes);
+    }
+
+    private static PrefixTree compile(RuleIgnore ruleIgnore) {
+        var prefixTree = new PrefixTree();
+        //If there is no prefix specified for the rule ignore config, the rule is ignored for all files
+        if (ruleIgnore.getPrefixes().isEmpty()) {
+            prefixTree.add("");
+            return prefixTree;
+        }
+        ruleIgnore.getPrefixes().stream()
+            //Since the leading / is optional, we remove it
+            .map(RosieRulesIgnoreMatcher::removeLeadingSlash)
+            //./, /. and .. sequences are not allowed in prefixes, therefore we consider them not matching any file path.
+            //. symbols in general are allowed to be able to target exact file paths with their file extensions.
+            .filter(prefix -> !prefix.contains("..") && !prefix.contains("./") && !prefix.contains("/."))
+            .forEach(prefixTree::add);
+        return prefixTree;
+    }
+
+    /**
+     * Returns whether there is no rule ignored at all.
+     */
+    boolean isEmpty() {
+        return ignoredPrefixes.isEmpty();
+    }
+
+    /**
+     * Returns whether the argument rule is ignored for the file at the argument path.
+     *
+     * @param relativePathOfAnalyzedFile the path of the analyzed file relative to the project directory, without a leading /
+     */
+    boolean isIgnored(RosieRule rosieRule, String relativePathOfAnalyzedFile) {
+        var ruleIgnores = ignoredPrefixes.get(rosieRule.rulesetName);
+        if (ruleIgnores == null) {
+            return false;
+        }
+        var prefixTree = ruleIgnores.get(rosieRule.ruleName);
+        return prefixTree != null && prefixTree.matchesPrefixOf(relativePathOfAnalyzedFile);
+    }
+
+    static String removeLeadingSlash(String path) {
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    /**
+     * A character-based prefix tree.
+     */
+    private static final class PrefixTree {
+        private final Node root = new Node();
+
+        void add(String prefix) {
+            var node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+            }
+            node.isPrefixEnd = true;
+        }
+
+        boolean isEmpty() {
+            return !root.isPrefixEnd && root.children.isEmpty();
+        }
+
+        /**
+         * Returns whether any of the prefixes in this tree is a prefix of the argument path.
+         */
+        boolean matchesPrefixOf(String path) {
+            var node = root;
+            for (int i = 0; ; i++) {
+                if (node.isPrefixEnd) {
+                    return true;
+                }
+                if (i == path.length()) {
+                    return false;
+                }
+                node = node.children.get(path.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private boolean isPrefixEnd;
+    }
+}
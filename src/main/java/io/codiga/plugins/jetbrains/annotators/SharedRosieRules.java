@@ -0,0 +1,154 @@
+package io.codiga.plugins.jetbrains.annotators;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import io.codiga.api.GetRulesetsForClientQuery;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.plugins.jetbrains.annotators.RosieRulesCacheValue.RuleWithNames;
+import io.codiga.plugins.jetbrains.utils.HashUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Application-wide store of the rulesets cached by the {@link RosieRulesCache}s of all open projects.
+ * <p>
+ * Projects that use the same ruleset share a single copy of its {@link io.codiga.plugins.jetbrains.model.rosie.RosieRule}s,
+ * instead of each holding its own. Rulesets are identified by their name and a digest of their rules, and are
+ * reference-counted, so that a ruleset is dropped once no project uses it anymore.
+ * <p>
+ * The ignore configuration in codiga.yml is not applied here, since it is specific to each project.
+ * It is applied by {@link RosieRulesCache#getRosieRules(LanguageEnumeration, String)}.
+ * <p>
+ * The rulesets fetched for a list of ruleset names are also registered with the last update timestamp returned by the
+ * Codiga server, so that other projects with the same rulesets configured don't have to fetch them again.
+ */
+@Service(Service.Level.APP)
+public final class SharedRosieRules {
+    /**
+     * [ruleset name, digest of the rules] -> ruleset
+     */
+    private final Map<List<String>, SharedRuleset> rulesets = new HashMap<>();
+    /**
+     * [ruleset names, last updated timestamp] -> the rulesets fetched for them
+     */
+    private final Map<List<Object>, List<SharedRuleset>> fetchedRulesets = new HashMap<>();
+
+    /**
+     * Returns the shared instances of the argument rulesets, creating the ones that are not stored yet.
+     * <p>
+     * Each returned ruleset must be released via {@link #release(List)} when the caller no longer uses it.
+     */
+    synchronized List<SharedRuleset> acquire(List<GetRulesetsForClientQuery.RuleSetsForClient> rulesetsFromCodigaAPI) {
+        return rulesetsFromCodigaAPI.stream()
+            .map(ruleset -> {
+                var sharedRuleset = rulesets.computeIfAbsent(List.of(ruleset.name(), digestOf(ruleset)), SharedRuleset::new);
+                if (sharedRuleset.ruleset == null) {
+                    sharedRuleset.init(ruleset);
+                }
+                sharedRuleset.referenceCount++;
+                return sharedRuleset;
+            })
+            .collect(toList());
+    }
+
+    /**
+     * Returns the rulesets that were fetched for the argument ruleset names with the argument last updated timestamp,
+     * if some project still uses them.
+     * <p>
+     * The returned rulesets must be released via {@link #release(List)} when the caller no longer uses them.
+     */
+    synchronized Optional<List<SharedRuleset>> acquire(List<String> rulesetNames, long lastUpdatedTimeStamp) {
+        var fetched = fetchedRulesets.get(List.of(rulesetNames, lastUpdatedTimeStamp));
+        if (fetched == null) {
+            return Optional.empty();
+        }
+        fetched.forEach(ruleset -> ruleset.referenceCount++);
+        return Optional.of(fetched);
+    }
+
+    /**
+     * Registers the argument rulesets as the ones fetched for the argument ruleset names with the argument last updated timestamp.
+     * <p>
+     * The rulesets must have been acquired by the caller.
+     */
+    synchronized void register(List<String> rulesetNames, long lastUpdatedTimeStamp, List<SharedRuleset> sharedRulesets) {
+        fetchedRulesets.put(List.of(List.copyOf(rulesetNames), lastUpdatedTimeStamp), sharedRulesets);
+    }
+
+    /**
+     * Releases the argument rulesets, and drops the ones that are no longer used by any project.
+     */
+    synchronized void release(List<SharedRuleset> sharedRulesets) {
+        for (var ruleset : sharedRulesets) {
+            if (--ruleset.referenceCount == 0) {
+                rulesets.remove(ruleset.key);
+                fetchedRulesets.values().removeIf(fetched -> fetched.contains(ruleset));
+            }
+        }
+    }
+
+    /**
+     * Returns a digest of the rules of the argument ruleset, so that different versions of the same ruleset,
+     * e.g. when projects are updated from the Codiga server at different times, are stored separately.
+     */
+    private static String digestOf(GetRulesetsForClientQuery.RuleSetsForClient ruleset) {
+        return HashUtils.sha256Hex(ruleset.rules().stream()
+            .map(rule -> HashUtils.sha256Hex(rule.name(),
+                rule.content(),
+                rule.ruleType().rawValue(),
+                rule.language().rawValue(),
+                rule.pattern(),
+                rule.elementChecked() != null ? rule.elementChecked().rawValue() : null))
+            .sorted()
+            .toArray(String[]::new));
+    }
+
+    public static SharedRosieRules getInstance() {
+        return ApplicationManager.getApplication().getService(SharedRosieRules.class);
+    }
+
+    //For testing
+
+    @TestOnly
+    synchronized int getRulesetCount() {
+        return rulesets.size();
+    }
+
+    /**
+     * A ruleset shared by the projects that use it, with its rules already converted and grouped by language.
+     */
+    static final class SharedRuleset {
+        private final List<String> key;
+        private GetRulesetsForClientQuery.RuleSetsForClient ruleset;
+        private Map<LanguageEnumeration, List<RuleWithNames>> rulesByLanguage;
+        private int referenceCount;
+
+        private SharedRuleset(List<String> key) {
+            this.key = key;
+        }
+
+        private void init(GetRulesetsForClientQuery.RuleSetsForClient ruleset) {
+            this.ruleset = ruleset;
+            this.rulesByLanguage = ruleset.rules().stream()
+                .map(rule -> new RuleWithNames(ruleset.name(), rule))
+                .collect(groupingBy(rule -> LanguageEnumeration.safeValueOf(rule.rosieRule.language)));
+        }
+
+        @NotNull
+        GetRulesetsForClientQuery.RuleSetsForClient getRuleset() {
+            return ruleset;
+        }
+
+        Map<LanguageEnumeration, List<RuleWithNames>> getRulesByLanguage() {
+            return rulesByLanguage;
+        }
+    }
+}
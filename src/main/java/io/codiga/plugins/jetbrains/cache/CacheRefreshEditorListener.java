@@ -16,7 +16,6 @@ import java.util.stream.Collectors;
 
 import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
 import static io.codiga.plugins.jetbrains.actions.ActionUtils.getLanguageFromEditorForVirtualFile;
-import static io.codiga.plugins.jetbrains.actions.ActionUtils.getUnitRelativeFilenamePathFromEditorForVirtualFile;
 
 /**
  * This is a listener used to refresh the cache of snippets each time a new file
@@ -47,19 +46,22 @@ public class CacheRefreshEditorListener implements FileEditorManagerListener {
 
     private void runBackgroundProcess(@NotNull FileEditorManagerEvent event) {
         Project project = event.getManager().getProject();
-        DumbService.getInstance(project).runReadActionInSmartMode(() -> refreshCache(project, event));
+        //Only the cache key is computed in a read action, the refresh itself doesn't need one
+        ShortcutCacheKey shortcutCacheKey = DumbService.getInstance(project).runReadActionInSmartMode(() -> getCacheKey(project, event));
+        if (shortcutCacheKey != null) {
+            ShortcutCache.getInstance().refreshCacheKey(shortcutCacheKey);
+        }
     }
 
-    private void refreshCache(@NotNull Project project, @NotNull FileEditorManagerEvent event) {
+    @Nullable
+    private ShortcutCacheKey getCacheKey(@NotNull Project project, @NotNull FileEditorManagerEvent event) {
         FileEditor fileEditor = event.getNewEditor();
         if (isNotNewFile(fileEditor)) {
-            return;
+            return null;
         }
 
-        String filename = getUnitRelativeFilenamePathFromEditorForVirtualFile(project, fileEditor.getFile());
         java.util.List<String> dependencies = DependencyManagement.getInstance().getDependencies(project, fileEditor.getFile()).stream().map(v -> v.getName()).collect(Collectors.toList());
         LanguageEnumeration languageEnumeration = getLanguageFromEditorForVirtualFile(fileEditor.getFile());
-        ShortcutCacheKey shortcutCacheKey = new ShortcutCacheKey(languageEnumeration, filename, dependencies);
-        ShortcutCache.getInstance().refreshCacheKey(shortcutCacheKey);
+        return new ShortcutCacheKey(languageEnumeration, dependencies);
     }
 }
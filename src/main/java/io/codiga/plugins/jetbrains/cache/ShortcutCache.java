@@ -2,13 +2,21 @@ package io.codiga.plugins.jetbrains.cache;
 
 import com.google.common.collect.ImmutableList;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import io.codiga.api.GetRecipesForClientByShortcutQuery;
 import io.codiga.plugins.jetbrains.graphql.CodigaApi;
+import io.codiga.plugins.jetbrains.utils.AdaptivePollingSchedule;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
 
@@ -16,18 +24,52 @@ import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
  * This is the shortcut cache that contains all the recipes that have
  * a shortcut. It stores all the recipes for all the files being
  * opened in the editor.
+ * <p>
+ * The recipes are also persisted by {@link ShortcutDiskCache}, so that they are available after an IDE restart,
+ * even offline.
  */
 public final class ShortcutCache {
-    // Uses a concurrent hashmap to avoid threading issues.
-    ConcurrentHashMap<ShortcutCacheKey, ShortcutCacheValue> cache;
+    /**
+     * The maximum number of cached language and dependency set combinations.
+     */
+    private static final int MAX_ENTRIES = 64;
+    /**
+     * The maximum estimated size of all cached recipes, in bytes.
+     */
+    private static final long MAX_WEIGHT_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Files of the disk cache not used for this period are deleted.
+     */
+    private static final Duration DISK_CACHE_RETENTION = Duration.ofDays(30);
+
+    // Bounded, and thread-safe.
+    final ShortcutCacheEntries cache;
+    private final ShortcutDiskCache diskCache;
+    /**
+     * The keys that have been looked up on disk, but have no persisted recipes,
+     * so that the disk is not accessed at each lookup of these keys.
+     */
+    private final Set<ShortcutCacheKey> keysNotOnDisk = ConcurrentHashMap.newKeySet();
+    /**
+     * Runs the cache refreshes, so that callers, e.g. read actions, never wait for the disk or the network.
+     * Bounded, so that opening many files at once doesn't occupy many threads.
+     */
+    private final ExecutorService refreshExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Codiga Shortcut Cache Refresh", 2);
+    private final Map<ShortcutCacheKey, CompletableFuture<Void>> refreshesInProgress = new ConcurrentHashMap<>();
+    /**
+     * The keys whose recipes could not be fetched, e.g. because the Codiga API is unreachable, or returns no recipes for them,
+     * with the schedule of their next attempt, so that each lookup of these keys doesn't send a request.
+     */
+    private final Map<ShortcutCacheKey, AdaptivePollingSchedule> failedFetches = new ConcurrentHashMap<>();
 
     /**
      * Last activity of the user on the system.
      */
-    private long lastActivityTimestamp;
+    private volatile long lastActivityTimestamp;
 
     public static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
-    private final CodigaApi codigaApi = CodigaApi.getInstance();
+    private final CodigaApi codigaApi;
 
     private static ShortcutCache _INSTANCE = new ShortcutCache();
 
@@ -35,8 +77,15 @@ public final class ShortcutCache {
 
 
     private ShortcutCache() {
-        cache = new ConcurrentHashMap<>();
+        this(CodigaApi.getInstance(), ShortcutDiskCache.create());
+    }
+
+    ShortcutCache(CodigaApi codigaApi, ShortcutDiskCache diskCache) {
+        this.codigaApi = codigaApi;
+        this.cache = new ShortcutCacheEntries(MAX_ENTRIES, MAX_WEIGHT_BYTES);
+        this.diskCache = diskCache;
         lastActivityTimestamp = System.currentTimeMillis();
+        AppExecutorUtil.getAppExecutorService().execute(() -> diskCache.deleteUnusedFor(DISK_CACHE_RETENTION));
     }
 
     public static ShortcutCache getInstance() {
@@ -47,6 +96,10 @@ public final class ShortcutCache {
         this.lastActivityTimestamp = System.currentTimeMillis();
     }
 
+    public long getLastActivityTimestamp() {
+        return lastActivityTimestamp;
+    }
+
     /**
      * Return true if the user was active in the last ten minutes.
      */
@@ -57,114 +110,219 @@ public final class ShortcutCache {
 
     /**
      * Update values for a key by pulling the API.
-     *  - check the time on the server for the latest update
-     *  - if there is already a cache value,
+     *  - if there is no value in the cache, fetch the recipes along with their timestamp in a single request
+     *  - if there is already a cache value, check the time on the server for the latest update
      *    - update only if the timestamp from the server is different
      *    - if timestamp did not change, update the access time.
-     *  - if there is no value in the cache, fetch
+     * <p>
+     * The requests are sent asynchronously, so that the refresh executor is not blocked while they are running.
      *
      * @param shortcutCacheKey
+     * @return the future that completes when the cache is updated
      */
-    private void updateKey(ShortcutCacheKey shortcutCacheKey) {
-        Optional<Long> lastUpdateTimestamp = codigaApi.getRecipesForClientByShotcurtLastTimestmap(shortcutCacheKey.getDependencies(), shortcutCacheKey.getLanguage());
-        boolean shouldFetch = false;
-        if (!lastUpdateTimestamp.isPresent()) {
-            return;
-        }
-
-        if (cache.containsKey(shortcutCacheKey)) {
-            ShortcutCacheValue shortcutCacheValue = cache.get(shortcutCacheKey);
-            if(shortcutCacheValue.getLastTimestampFromServer() != lastUpdateTimestamp.get()) {
-                shouldFetch = true;
-            }
+    private CompletableFuture<Void> updateKey(ShortcutCacheKey shortcutCacheKey) {
+        CompletableFuture<Void> update;
+        ShortcutCacheValue cachedValue = cache.peek(shortcutCacheKey);
+        if (cachedValue == null) {
+            update = fetch(shortcutCacheKey);
         } else {
-            shouldFetch = true;
+            update = codigaApi.getRecipesForClientByShotcurtLastTimestmapAsync(shortcutCacheKey.getDependencies(), shortcutCacheKey.getLanguage())
+                .thenCompose(lastUpdateTimestamp -> {
+                    if (!lastUpdateTimestamp.isPresent()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    if (cachedValue.getLastTimestampFromServer() == lastUpdateTimestamp.get()) {
+                        cachedValue.updateUpdateTimestamp();
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return fetch(shortcutCacheKey);
+                });
         }
+        return update.exceptionally(e -> {
+            LOGGER.debug("[ShortcutCache] could not update the cache for key " + shortcutCacheKey, e);
+            return null;
+        });
+    }
 
+    /**
+     * Fetches the recipes and their last update timestamp in a single request, and caches them, both in memory and on disk.
+     * If the server returns no timestamp, the cache is not updated.
+     */
+    private CompletableFuture<Void> fetch(ShortcutCacheKey shortcutCacheKey) {
+        return codigaApi.getRecipesForClientByShotcurtWithLastTimestampAsync(
+                shortcutCacheKey.getDependencies(),
+                shortcutCacheKey.getLanguage(),
+                //The recipes are shared by all the files with the same key, so they are not queried for a specific file,
+                // but filtered by their filename patterns at lookup
+                null)
+            //Saving to disk is done on the refresh executor, instead of the thread that received the response
+            .thenAcceptAsync(recipes -> recipes.getLastUpdatedTimestamp().ifPresent(timestamp -> {
+                var shortcutCacheValue = new ShortcutCacheValue(recipes.getData(), timestamp);
+                cache.put(shortcutCacheKey, shortcutCacheValue);
+                diskCache.save(shortcutCacheKey, shortcutCacheValue);
+                keysNotOnDisk.remove(shortcutCacheKey);
+            }), refreshExecutor);
+    }
 
-        if (shouldFetch) {
-            List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> recipes =
-                    codigaApi.getRecipesForClientByShotcurt(Optional.empty(),
-                            shortcutCacheKey.getDependencies(),
-                            Optional.empty(),
-                            shortcutCacheKey.getLanguage(),
-                            shortcutCacheKey.getFilename(),
-                            Optional.empty(),
-                            Optional.empty(),
-                            Optional.empty());
-            ShortcutCacheValue shortcutCacheValue = new ShortcutCacheValue(recipes, lastUpdateTimestamp.get());
-            cache.put(shortcutCacheKey, shortcutCacheValue);
-        } else {
-            ShortcutCacheValue shortcutCacheValue = cache.get(shortcutCacheKey);
-            shortcutCacheValue.updateUpdateTimestamp();
-            cache.put(shortcutCacheKey, shortcutCacheValue);
+    /**
+     * Loads the recipes persisted for the argument key, if there are any, and caches them in memory.
+     * The loaded recipes are revalidated at the next refresh of the key.
+     */
+    @Nullable
+    private ShortcutCacheValue restoreFromDisk(ShortcutCacheKey shortcutCacheKey) {
+        if (keysNotOnDisk.contains(shortcutCacheKey)) {
+            return null;
+        }
+        var restoredValue = diskCache.load(shortcutCacheKey);
+        if (restoredValue == null) {
+            keysNotOnDisk.add(shortcutCacheKey);
+            return null;
         }
+        LOGGER.debug("[ShortcutCache] Restored recipes from disk for key " + shortcutCacheKey);
+        //The recipes may have been fetched in the meantime
+        return cache.putIfAbsent(shortcutCacheKey, restoredValue);
     }
 
     /**
      * Refresh a cache key in the cache if and only if it needs to be updated.
      * Only update if there was no activity for 10 minutes.
+     * <p>
+     * The refresh runs in the background, so this method returns right away, and the current value of the key
+     * stays available until the refresh completes.
      * @param shortcutCacheKey
+     * @return the future that completes when the refresh is done
      */
-    public void refreshCacheKey(final ShortcutCacheKey shortcutCacheKey) {
-        try {
-            if(!wasActiveRecently()) {
-                LOGGER.debug("was not active recently, do not refresh");
-                return;
-            }
+    public CompletableFuture<Void> refreshCacheKey(final ShortcutCacheKey shortcutCacheKey) {
+        if(!wasActiveRecently()) {
+            LOGGER.debug("was not active recently, do not refresh");
+            return CompletableFuture.completedFuture(null);
+        }
 
-            if (cache.containsKey(shortcutCacheKey)) {
-                ShortcutCacheValue shortcutCacheValue = cache.get(shortcutCacheKey);
-                if (shortcutCacheValue.needsUpdate()) {
-                    LOGGER.debug("Not updating the following key, do not need refresh: " + shortcutCacheKey.toString());
-                    updateKey(shortcutCacheKey);
-                }
+        ShortcutCacheValue shortcutCacheValue = cache.peek(shortcutCacheKey);
+        if (shortcutCacheValue != null && !shortcutCacheValue.needsUpdate()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return refreshInBackground(shortcutCacheKey);
+    }
+
+    /**
+     * Refreshes the argument key on {@link #refreshExecutor}: restores it from disk if it's not in memory,
+     * then updates it from the API if it needs to be.
+     * <p>
+     * There is at most one refresh in progress per key, further calls return the one in progress.
+     * If the recipes of the key could not be fetched, it is not refreshed again until its retry delay has passed.
+     */
+    private CompletableFuture<Void> refreshInBackground(ShortcutCacheKey shortcutCacheKey) {
+        var retrySchedule = failedFetches.get(shortcutCacheKey);
+        if (retrySchedule != null && !retrySchedule.isDue()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        var refresh = new CompletableFuture<Void>();
+        var refreshInProgress = refreshesInProgress.putIfAbsent(shortcutCacheKey, refresh);
+        if (refreshInProgress != null) {
+            return refreshInProgress;
+        }
+
+        Runnable complete = () -> {
+            if (cache.peek(shortcutCacheKey) == null) {
+                recordFailedFetch(shortcutCacheKey);
             } else {
-                updateKey(shortcutCacheKey);
+                failedFetches.remove(shortcutCacheKey);
             }
-
-        } catch (NullPointerException npe) {
-            LOGGER.error("error when refreshing the cache");
+            refreshesInProgress.remove(shortcutCacheKey, refresh);
+            refresh.complete(null);
+        };
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    ShortcutCacheValue shortcutCacheValue = cache.peek(shortcutCacheKey);
+                    if (shortcutCacheValue == null) {
+                        shortcutCacheValue = restoreFromDisk(shortcutCacheKey);
+                    }
+                    if (shortcutCacheValue == null || shortcutCacheValue.needsUpdate()) {
+                        updateKey(shortcutCacheKey).whenComplete((result, e) -> complete.run());
+                    } else {
+                        complete.run();
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.debug("[ShortcutCache] could not refresh the cache for key " + shortcutCacheKey, e);
+                    complete.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            complete.run();
         }
+        return refresh;
+    }
+
+    /**
+     * Schedules the next attempt to fetch the recipes of the argument key, after a delay that grows while the attempts keep failing.
+     */
+    private void recordFailedFetch(ShortcutCacheKey shortcutCacheKey) {
+        failedFetches.compute(shortcutCacheKey, (key, retrySchedule) -> {
+            if (retrySchedule == null) {
+                retrySchedule = new AdaptivePollingSchedule();
+                retrySchedule.polled(true, true);
+            } else {
+                retrySchedule.polled(false, true);
+            }
+            return retrySchedule;
+        });
     }
 
     /**
      * Just query the cache and gets the value that it contains.
-     * This method never queries the API.
+     * This method never queries the API nor the disk, it returns immediately. If the key is not in the cache,
+     * it is refreshed in the background, so that its recipes are available for a later lookup.
      * @param shortcutCacheKey - the key we are querying
      * @return - the list of recipes if any
      */
     public List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> getRecipesShortcut(ShortcutCacheKey shortcutCacheKey) {
-        try{
-            if (cache.containsKey(shortcutCacheKey)) {
-                return cache.get(shortcutCacheKey).getRecipes();
-            } else {
-                return ImmutableList.of();
-            }
-        } catch (NullPointerException npe) {
-            return ImmutableList.of();
+        ShortcutCacheValue shortcutCacheValue = cache.get(shortcutCacheKey);
+        if (shortcutCacheValue == null) {
+            refreshInBackground(shortcutCacheKey);
+        }
+        return shortcutCacheValue != null ? shortcutCacheValue.getRecipes() : ImmutableList.of();
+    }
+
+    /**
+     * Same as {@link #getRecipesShortcut(ShortcutCacheKey)}, but returns only the recipes that apply to the argument file,
+     * and whose shortcut starts with the argument prefix.
+     *
+     * @param filename       the path of the file relative to the project directory, see {@link ShortcutCacheValue#getRecipesWithShortcutPrefix(String, String)}
+     * @param shortcutPrefix the prefix of the shortcuts, or an empty string for all shortcuts
+     */
+    public List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> getRecipesShortcut(ShortcutCacheKey shortcutCacheKey, @Nullable String filename, String shortcutPrefix) {
+        ShortcutCacheValue shortcutCacheValue = cache.get(shortcutCacheKey);
+        if (shortcutCacheValue == null) {
+            refreshInBackground(shortcutCacheKey);
         }
+        return shortcutCacheValue != null ? shortcutCacheValue.getRecipesWithShortcutPrefix(shortcutPrefix, filename) : ImmutableList.of();
     }
 
     /**
      * Garbage collect the cache and remove keys that have not been
      * used for a long time.
+     * <p>
+     * Apart from this, the least recently used keys are evicted when the cache gets full.
      */
     public void garbageCollect() {
-        List<ShortcutCacheKey> keysToRemove = new ArrayList<>();
-
-        // Get the keys to remove
-        for (ShortcutCacheKey key: cache.keySet()){
-            ShortcutCacheValue value = cache.get(key);
-            if (value != null && value.shouldBeDeleted()) {
-                keysToRemove.add(key);
-            }
+        int removedCount = cache.removeIf(ShortcutCacheValue::shouldBeDeleted);
+        if (removedCount > 0) {
+            LOGGER.debug("[ShortcutCache] Removed " + removedCount + " unused keys. " + getStatistics());
         }
+    }
 
-        // Remove from the map
-        for(ShortcutCacheKey key: keysToRemove) {
-            cache.remove(key);
-        }
+    /**
+     * Returns the size and the hit, miss and eviction counts of the cache, for diagnostic purposes.
+     */
+    public String getStatistics() {
+        return "Entries: " + cache.size()
+            + ", estimated size: " + cache.getWeight() + " bytes"
+            + ", hits: " + cache.getHitCount()
+            + ", misses: " + cache.getMissCount()
+            + ", evictions: " + cache.getEvictionCount();
     }
 
 }
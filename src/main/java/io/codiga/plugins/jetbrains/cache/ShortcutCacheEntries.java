@@ -0,0 +1,132 @@
+package io.codiga.plugins.jetbrains.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, least-recently-used storage of the {@link ShortcutCache} entries.
+ * <p>
+ * It is bounded both by the number of entries and by their total estimated size in bytes
+ * (see {@link ShortcutCacheValue#getWeight()}), so that the memory used by the shortcut cache has a ceiling,
+ * regardless of how many languages and dependency sets are used during an IDE session.
+ * <p>
+ * The most recently added entry is never evicted, even if it exceeds the size limit on its own,
+ * otherwise it would be fetched again at each refresh.
+ * <p>
+ * It also counts the hits and misses of lookups, and the evictions, for diagnostic purposes.
+ */
+final class ShortcutCacheEntries {
+    private final int maxEntries;
+    private final long maxWeight;
+    //Access-order, so that the eldest entry is always the least recently used one
+    private final LinkedHashMap<ShortcutCacheKey, ShortcutCacheValue> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    ShortcutCacheEntries(int maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the value for the argument key, and marks it as recently used. The lookup is counted as a hit or a miss.
+     */
+    @Nullable
+    synchronized ShortcutCacheValue get(@NotNull ShortcutCacheKey key) {
+        var value = entries.get(key);
+        if (value != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value for the argument key, without counting the lookup. To be used by the cache refresh logic.
+     * <p>
+     * It still marks the value as recently used, which is intended, since keys are refreshed only for open editors.
+     */
+    @Nullable
+    synchronized ShortcutCacheValue peek(@NotNull ShortcutCacheKey key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Stores the argument value, then evicts the least recently used entries while the cache is over its limits.
+     */
+    synchronized void put(@NotNull ShortcutCacheKey key, @NotNull ShortcutCacheValue value) {
+        var previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= previous.getWeight();
+        }
+        weight += value.getWeight();
+
+        var iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && entries.size() > 1) {
+            var eldest = iterator.next();
+            weight -= eldest.getValue().getWeight();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Stores the argument value, unless there is already a value for the argument key.
+     *
+     * @return the value stored for the argument key
+     */
+    synchronized ShortcutCacheValue putIfAbsent(@NotNull ShortcutCacheKey key, @NotNull ShortcutCacheValue value) {
+        var existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Removes the entries whose value matches the argument predicate.
+     *
+     * @return the number of removed entries
+     */
+    synchronized int removeIf(@NotNull Predicate<ShortcutCacheValue> predicate) {
+        int removedCount = 0;
+        var iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ShortcutCacheKey, ShortcutCacheValue> entry = iterator.next();
+            if (predicate.test(entry.getValue())) {
+                weight -= entry.getValue().getWeight();
+                iterator.remove();
+                removedCount++;
+            }
+        }
+        return removedCount;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getWeight() {
+        return weight;
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
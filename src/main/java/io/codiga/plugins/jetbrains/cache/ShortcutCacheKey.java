@@ -5,22 +5,25 @@ import io.codiga.api.type.LanguageEnumeration;
 import java.util.List;
 import java.util.Objects;
 
+import static java.util.stream.Collectors.toUnmodifiableList;
+
 
 /**
  * Shortcut for a cache key that is composed of
  *  - language
- *  - filename path relative to the project AND UNIX style
- *  - list of dependencies being used.
+ *  - set of dependencies being used.
+ * <p>
+ * The file name is not part of the key, so that all the files of the same language, using the same dependencies,
+ * share the same cache entry. The dependencies are stored sorted and without duplicates, so that the order in which
+ * they are declared doesn't result in different keys.
  */
 public class ShortcutCacheKey {
     private final LanguageEnumeration language;
-    private final String filename;
     private final List<String> dependencies;
 
-    public ShortcutCacheKey(LanguageEnumeration language, String filename, List<String> dependencies) {
+    public ShortcutCacheKey(LanguageEnumeration language, List<String> dependencies) {
         this.language = language;
-        this.filename = filename;
-        this.dependencies = dependencies;
+        this.dependencies = dependencies.stream().distinct().sorted().collect(toUnmodifiableList());
     }
 
 
@@ -28,7 +31,6 @@ public class ShortcutCacheKey {
     public String toString() {
         return "ShortcutCacheKey{" +
             "language=" + language.toString() +
-            ", filename='" + filename + '\'' +
             ", dependencies='" + String.join(",", dependencies) + '\'' +
             '}';
     }
@@ -39,19 +41,16 @@ public class ShortcutCacheKey {
         if (o == null || getClass() != o.getClass()) return false;
         ShortcutCacheKey cacheKey = (ShortcutCacheKey) o;
         return Objects.equals(language, cacheKey.language) &&
-            Objects.equals(filename, cacheKey.filename) &&
             Objects.equals(dependencies, cacheKey.dependencies);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(language, filename, dependencies);
+        return Objects.hash(language, dependencies);
     }
 
 
     public List<String> getDependencies() { return this.dependencies; }
 
     public LanguageEnumeration getLanguage() { return this.language; }
-
-    public String getFilename() { return this.filename; }
 }
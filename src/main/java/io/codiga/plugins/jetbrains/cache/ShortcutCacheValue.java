@@ -1,8 +1,23 @@
 package io.codiga.plugins.jetbrains.cache;
 
 import io.codiga.api.GetRecipesForClientByShortcutQuery;
+import io.codiga.plugins.jetbrains.utils.AdaptivePollingSchedule;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toUnmodifiableList;
 
 /**
  * The cache value contains the list of recipes but also
@@ -10,42 +25,78 @@ import java.util.List;
  *   if the timestamp on the server did not change, we do not update
  *   the list of recipes
  * - last time we updated the list - we only update periodically and not every time
- *   we attempt to refresh the cache.
+ *   we attempt to refresh the cache. The period grows while the recipes don't change
+ *   on the server, see {@link AdaptivePollingSchedule}.
  */
 public class ShortcutCacheValue {
     private final Long lastTimestampFromServer;
-    private Long lastUpdateTimestamp;
+    private volatile Long lastUpdateTimestamp;
+    private final AdaptivePollingSchedule refreshSchedule = new AdaptivePollingSchedule();
     private final List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> recipes;
-
     /**
-     * Update at which we refresh the cache.
+     * The recipes sorted by their shortcuts, so that the ones starting with a prefix can be looked up via binary search.
+     */
+    private final List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> recipesSortedByShortcut;
+    /**
+     * The compiled filename patterns of the recipes that apply only to some files.
+     * Recipes without filename patterns apply to all files, and are not in this map.
      */
-    private final static Long UPDATE_PERIOD_MILLISECONDS = 10000L; // 10 seconds
+    private final Map<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut, List<PathMatcher>> filenameMatchers = new IdentityHashMap<>();
+    private final long weight;
 
     /**
      * We delete a value if not used for this period of time.
      */
     private final static Long DELETE_PERIOD_MILLISECONDS = 600000L; // 10 minutes
 
+    /**
+     * The estimated memory used by an object apart from its fields.
+     */
+    private final static long OBJECT_OVERHEAD_BYTES = 32L;
+
     public ShortcutCacheValue(List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> recipes, long timestampServer) {
+        this(recipes, timestampServer, false);
+    }
+
+    /**
+     * @param needsRevalidation whether the recipes have not just been fetched, e.g. they have been loaded from disk,
+     *                          so they need to be refreshed right away
+     */
+    ShortcutCacheValue(List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> recipes, long timestampServer, boolean needsRevalidation) {
         this.recipes = recipes;
         this.lastTimestampFromServer = timestampServer;
         this.lastUpdateTimestamp = System.currentTimeMillis();
+        this.recipesSortedByShortcut = recipes.stream()
+            .sorted(comparing(GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut::shortcut, nullsFirst(naturalOrder())))
+            .collect(toUnmodifiableList());
+        for (GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut recipe : recipes) {
+            if (recipe.filenamePatterns() != null && !recipe.filenamePatterns().isEmpty()) {
+                filenameMatchers.put(recipe, recipe.filenamePatterns().stream().map(ShortcutCacheValue::compileFilenamePattern).collect(toList()));
+            }
+        }
+        this.weight = estimateWeight(recipes);
+        if (!needsRevalidation) {
+            //The recipes have just been fetched, so the next refresh can come quickly
+            this.refreshSchedule.polled(true, true);
+        }
     }
 
+    /**
+     * Called when the recipes have not changed on the server since the last refresh.
+     * This also makes the next refresh come later.
+     */
     public void updateUpdateTimestamp() {
         this.lastUpdateTimestamp = System.currentTimeMillis();
+        this.refreshSchedule.polled(false, true);
     }
 
-
     /**
      * Explain if we should refresh/update the cache or not.
      * @return
      */
     public boolean needsUpdate() {
-        Long currentTimestamp = System.currentTimeMillis();
-        Long difference = currentTimestamp - this.lastUpdateTimestamp;
-        return difference > UPDATE_PERIOD_MILLISECONDS;
+        //Values are refreshed only while the user is active, and dropped after a period of inactivity
+        return refreshSchedule.isDue();
     }
 
     /**
@@ -65,4 +116,108 @@ public class ShortcutCacheValue {
     public List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> getRecipes() {
         return this.recipes;
     }
+
+    /**
+     * Returns the recipes whose shortcut starts with the argument prefix (case-sensitive), sorted by their shortcuts.
+     * <p>
+     * It takes a binary search, so it stays fast regardless of the number of recipes.
+     */
+    public List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> getRecipesWithShortcutPrefix(String prefix) {
+        //Finds the first recipe whose shortcut is not less than the prefix. Null shortcuts are sorted first.
+        int low = 0;
+        int high = recipesSortedByShortcut.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            String shortcut = recipesSortedByShortcut.get(middle).shortcut();
+            if (shortcut == null || shortcut.compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        //The shortcuts starting with the prefix follow each other from there
+        int end = low;
+        while (end < recipesSortedByShortcut.size() && recipesSortedByShortcut.get(end).shortcut().startsWith(prefix)) {
+            end++;
+        }
+        return recipesSortedByShortcut.subList(low, end);
+    }
+
+    /**
+     * Same as {@link #getRecipesWithShortcutPrefix(String)}, but returns only the recipes that apply to the argument file,
+     * i.e. the ones without filename patterns, and the ones with a filename pattern matching the file.
+     *
+     * @param relativePath the path of the file relative to the project directory, with / separators,
+     *                     or null if it is unknown, in which case the recipes are not filtered by file
+     */
+    public List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> getRecipesWithShortcutPrefix(String prefix, @Nullable String relativePath) {
+        var recipesWithShortcutPrefix = getRecipesWithShortcutPrefix(prefix);
+        if (filenameMatchers.isEmpty() || relativePath == null) {
+            return recipesWithShortcutPrefix;
+        }
+        return recipesWithShortcutPrefix.stream().filter(recipe -> isApplicableTo(recipe, relativePath)).collect(toList());
+    }
+
+    /**
+     * A recipe applies to a file if one of its glob patterns matches either the file name, e.g. {@code *_test.py},
+     * or the path relative to the project directory, e.g. {@code tests/**.py}.
+     */
+    private boolean isApplicableTo(GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut recipe, String relativePath) {
+        var matchers = filenameMatchers.get(recipe);
+        if (matchers == null) {
+            return true;
+        }
+        try {
+            Path path = Path.of(relativePath);
+            Path fileName = path.getFileName();
+            return matchers.stream().anyMatch(matcher -> matcher.matches(path) || fileName != null && matcher.matches(fileName));
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private static PathMatcher compileFilenamePattern(String pattern) {
+        try {
+            return FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        } catch (PatternSyntaxException e) {
+            //A recipe with an invalid pattern doesn't apply to any file, instead of all of them
+            return path -> false;
+        }
+    }
+
+    /**
+     * The estimated size of this value in memory, in bytes.
+     */
+    public long getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * Estimates the memory used by the argument recipes, based on the length of their strings,
+     * which make up most of it (especially the code of the recipes), plus a fixed overhead per object.
+     */
+    private static long estimateWeight(List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> recipes) {
+        long weight = OBJECT_OVERHEAD_BYTES;
+        for (GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut recipe : recipes) {
+            weight += OBJECT_OVERHEAD_BYTES
+                + weightOf(recipe.name())
+                + weightOf(recipe.code())
+                + weightOf(recipe.jetbrainsFormat())
+                + weightOf(recipe.description())
+                + weightOf(recipe.shortcut())
+                + weightOf(recipe.keywords())
+                + weightOf(recipe.imports())
+                + weightOf(recipe.filenamePatterns());
+        }
+        return weight;
+    }
+
+    private static long weightOf(String value) {
+        //Assuming 2 bytes per character as an upper bound
+        return value != null ? OBJECT_OVERHEAD_BYTES + 2L * value.length() : 0L;
+    }
+
+    private static long weightOf(List<String> values) {
+        return values != null ? OBJECT_OVERHEAD_BYTES + values.stream().mapToLong(ShortcutCacheValue::weightOf).sum() : 0L;
+    }
 }
@@ -0,0 +1,187 @@
+package io.codiga.plugins.jetbrains.cache;
+
+import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
+import static java.util.stream.Collectors.toList;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import io.codiga.api.GetRecipesForClientByShortcutQuery;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.plugins.jetbrains.utils.HashUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Persists the recipes of the {@link ShortcutCache} as JSON in the IDE's system directory, one file per cache key,
+ * so that shortcut completion works right after the IDE starts, even offline, without waiting for the Codiga API.
+ * <p>
+ * The persisted recipes are revalidated in the background, by comparing their timestamp with the one on the Codiga server.
+ */
+final class ShortcutDiskCache {
+    private static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
+    private static final Gson GSON = new Gson();
+    /**
+     * Incremented when the format of the files changes, so that files of earlier versions are ignored.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    private final Path directory;
+
+    ShortcutDiskCache(@NotNull Path directory) {
+        this.directory = directory;
+    }
+
+    static ShortcutDiskCache create() {
+        return new ShortcutDiskCache(PathManager.getSystemDir().resolve("codiga").resolve("shortcut-cache"));
+    }
+
+    /**
+     * Saves the recipes of the argument cache value for the argument key.
+     * <p>
+     * The file is replaced atomically, so that a concurrent or interrupted save doesn't leave a corrupt file behind.
+     */
+    void save(@NotNull ShortcutCacheKey key, @NotNull ShortcutCacheValue value) {
+        var snapshot = new Snapshot();
+        snapshot.version = FORMAT_VERSION;
+        snapshot.language = key.getLanguage().rawValue();
+        snapshot.dependencies = key.getDependencies();
+        snapshot.lastTimestampFromServer = value.getLastTimestampFromServer();
+        snapshot.recipes = value.getRecipes().stream().map(Recipe::new).collect(toList());
+        var file = fileOf(key);
+        try {
+            Files.createDirectories(directory);
+            Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(tempFile, GSON.toJson(snapshot), StandardCharsets.UTF_8);
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("[ShortcutDiskCache] Could not save the shortcut cache to " + file, e);
+        }
+    }
+
+    /**
+     * Returns the persisted cache value for the argument key, or null if there is none, or it cannot be read.
+     * <p>
+     * The returned value needs to be revalidated, see {@link ShortcutCacheValue#needsUpdate()}.
+     */
+    @Nullable
+    ShortcutCacheValue load(@NotNull ShortcutCacheKey key) {
+        var file = fileOf(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            var snapshot = GSON.fromJson(Files.readString(file, StandardCharsets.UTF_8), Snapshot.class);
+            if (snapshot == null || snapshot.version != FORMAT_VERSION || snapshot.recipes == null
+                || !key.getLanguage().rawValue().equals(snapshot.language) || !key.getDependencies().equals(snapshot.dependencies)) {
+                return null;
+            }
+            //Marks the file as recently used, so that it is not deleted as outdated
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            var recipes = snapshot.recipes.stream().map(Recipe::toRecipe).collect(toList());
+            return new ShortcutCacheValue(recipes, snapshot.lastTimestampFromServer, true);
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn("[ShortcutDiskCache] Could not load the shortcut cache from " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the files that haven't been saved or loaded for the argument duration,
+     * so that files of languages and dependencies no longer used don't pile up.
+     */
+    void deleteUnusedFor(@NotNull Duration duration) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        var threshold = FileTime.from(Instant.now().minus(duration));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.getLastModifiedTime(file).compareTo(threshold) < 0) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("[ShortcutDiskCache] Could not delete the outdated files of the shortcut cache in " + directory, e);
+        }
+    }
+
+    private Path fileOf(ShortcutCacheKey key) {
+        var digest = HashUtils.newSha256Digest();
+        HashUtils.update(digest, key.getLanguage().rawValue());
+        key.getDependencies().forEach(dependency -> HashUtils.update(digest, dependency));
+        return directory.resolve(HashUtils.toHex(digest.digest()) + ".json");
+    }
+
+    /**
+     * The persisted content of a cache entry.
+     */
+    private static final class Snapshot {
+        int version;
+        String language;
+        List<String> dependencies;
+        long lastTimestampFromServer;
+        List<Recipe> recipes;
+    }
+
+    private static final class Recipe {
+        String id;
+        String name;
+        String code;
+        String jetbrainsFormat;
+        List<String> keywords;
+        List<String> imports;
+        String language;
+        String description;
+        String shortcut;
+        List<String> filenamePatterns;
+
+        //For Gson
+        Recipe() {
+        }
+
+        Recipe(GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut recipe) {
+            this.id = String.valueOf(recipe.id());
+            this.name = recipe.name();
+            this.code = recipe.code();
+            this.jetbrainsFormat = recipe.jetbrainsFormat();
+            this.keywords = recipe.keywords();
+            this.imports = recipe.imports();
+            this.language = recipe.language().rawValue();
+            this.description = recipe.description();
+            this.shortcut = recipe.shortcut();
+            this.filenamePatterns = recipe.filenamePatterns();
+        }
+
+        GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut toRecipe() {
+            return new GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut("AssistantRecipe",
+                new BigDecimal(id),
+                name,
+                code,
+                jetbrainsFormat,
+                keywords,
+                imports,
+                LanguageEnumeration.safeValueOf(language),
+                description,
+                shortcut,
+                filenamePatterns);
+        }
+    }
+}
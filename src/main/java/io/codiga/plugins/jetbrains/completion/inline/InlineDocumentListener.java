@@ -25,6 +25,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
@@ -39,6 +40,11 @@ public class InlineDocumentListener implements DocumentListener {
     private final Alarm updateListAlarm = new Alarm();
 
     private long lastRequestTimestamp = 0;
+    /**
+     * The snippet request in progress, cancelled when a newer one is sent.
+     */
+    @Nullable
+    private CompletableFuture<List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch>> pendingRequest;
 
     @Override
     public void documentChanged(@NotNull DocumentEvent documentEvent) {
@@ -181,7 +187,11 @@ public class InlineDocumentListener implements DocumentListener {
             snippetVisibility.getOnlyPrivate(),
             snippetVisibility.getOnlyFavorite()));
 
-        List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch> snippets = CodigaApi.getInstance().getRecipesSemantic(
+        if (pendingRequest != null) {
+            pendingRequest.cancel(true);
+        }
+        //The request is sent asynchronously, so that the EDT, on which the alarm runs this logic, is not blocked
+        pendingRequest = CodigaApi.getInstance().getRecipesSemanticAsync(
             searchTerm,
             dependenciesName,
             Optional.empty(),
@@ -190,10 +200,27 @@ public class InlineDocumentListener implements DocumentListener {
             snippetVisibility.getOnlyPublic(),
             snippetVisibility.getOnlyPrivate(),
             snippetVisibility.getOnlyFavorite());
+        pendingRequest.thenAccept(snippets -> {
+            if (snippets.isEmpty()) {
+                return;
+            }
+            if (ApplicationManager.getApplication().isUnitTestMode()) {
+                showSnippetPreview(editor, requestTimestamp, caretOffset, snippets);
+            } else {
+                ApplicationManager.getApplication().invokeLater(() -> showSnippetPreview(editor, requestTimestamp, caretOffset, snippets));
+            }
+        });
+    }
 
-        if (!snippets.isEmpty()) {
-            SnippetPreview snippetPreview = new SnippetPreview(editor, caretOffset, snippets);
-            snippetPreview.display();
+    private void showSnippetPreview(Editor editor,
+                                    long requestTimestamp,
+                                    int caretOffset,
+                                    List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch> snippets) {
+        //The document may have changed, or the editor may have been closed, while the request was running
+        if (requestTimestamp != this.lastRequestTimestamp || editor.isDisposed()) {
+            return;
         }
+        SnippetPreview snippetPreview = new SnippetPreview(editor, caretOffset, snippets);
+        snippetPreview.display();
     }
 }
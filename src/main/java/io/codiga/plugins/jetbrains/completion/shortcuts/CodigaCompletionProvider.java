@@ -116,8 +116,11 @@ public class CodigaCompletionProvider extends CompletionProvider<CompletionParam
             .stream().map(Dependency::getName)
             .collect(Collectors.toList());
 
+        //Only the recipes matching the keyword and the file are looked up, so that lookup elements are created only for them
+        var shortcutCacheKey = new ShortcutCacheKey(language, dependenciesName);
         String filename = getUnitRelativeFilenamePathFromEditorForVirtualFile(project, virtualFile);
-        List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> recipes = ShortcutCache.getInstance().getRecipesShortcut(new ShortcutCacheKey(language, filename, dependenciesName));
+        List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> recipes =
+            ShortcutCache.getInstance().getRecipesShortcut(shortcutCacheKey, filename, keyword.orElse(""));
 
         final boolean usesTabs = detectIfTabs(currentLine);
         final int indentationCurrentLine = getIndentation(currentLine, usesTabs);
@@ -125,10 +128,6 @@ public class CodigaCompletionProvider extends CompletionProvider<CompletionParam
         List<LookupElementBuilder> elements = new ArrayList<>();
 
         for (GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut recipe : recipes) {
-            if (keyword.isPresent() && !recipe.shortcut().startsWith(keyword.get())) {
-                continue;
-            }
-
             LookupElementBuilder element = LookupElementBuilder
                 .create(recipe.name())
                 .withTypeText(recipe.name())
@@ -9,6 +9,7 @@ import io.codiga.api.type.LanguageEnumeration;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class implements the Codiga API, which is a GraphQL API.
@@ -20,6 +21,10 @@ import java.util.Optional;
  * service within the plugin. To retrieve it, just use {@code CodigaApi api = CodigaApi.getInstance();}.
  * <p>
  * See <a href="https://plugins.jetbrains.com/docs/intellij/plugin-services.html#declaring-a-service">Declaring a service</a>
+ * <p>
+ * The {@code ...Async} methods return without waiting for the response, so they can be called from the EDT and from read actions.
+ * Their futures complete with the same value as their blocking counterparts return, including on errors and timeouts,
+ * and cancelling a future cancels the underlying request.
  */
 public interface CodigaApi {
 
@@ -62,8 +67,47 @@ public interface CodigaApi {
                                                                                   Optional<Boolean> onlyPrivate,
                                                                                   Optional<Boolean> onlySubscribed);
 
+    /**
+     * Asynchronous variant of {@link #getRecipesForClientByShotcurt(Optional, List, Optional, LanguageEnumeration, String, Optional, Optional, Optional)}.
+     * <p>
+     * By default, the request is sent synchronously, and an already completed future is returned.
+     */
+    default CompletableFuture<List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut>> getRecipesForClientByShotcurtAsync(Optional<String> term,
+                                                                                                                                  List<String> dependencies,
+                                                                                                                                  Optional<String> parameters,
+                                                                                                                                  LanguageEnumeration language,
+                                                                                                                                  String filename,
+                                                                                                                                  Optional<Boolean> onlyPublic,
+                                                                                                                                  Optional<Boolean> onlyPrivate,
+                                                                                                                                  Optional<Boolean> onlySubscribed) {
+        return CompletableFuture.completedFuture(
+            getRecipesForClientByShotcurt(term, dependencies, parameters, language, filename, onlyPublic, onlyPrivate, onlySubscribed));
+    }
+
+    /**
+     * Asynchronously queries the recipes with a shortcut, along with their last update timestamp, in a single request.
+     * <p>
+     * By default, the recipes and the timestamp are queried synchronously, one after the other,
+     * and an already completed future is returned.
+     */
+    default CompletableFuture<TimestampedData<List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut>>> getRecipesForClientByShotcurtWithLastTimestampAsync(List<String> dependencies,
+                                                                                                                                                                   LanguageEnumeration language,
+                                                                                                                                                                   String filename) {
+        var recipes = getRecipesForClientByShotcurt(Optional.empty(), dependencies, Optional.empty(), language, filename, Optional.empty(), Optional.empty(), Optional.empty());
+        return CompletableFuture.completedFuture(new TimestampedData<>(recipes, getRecipesForClientByShotcurtLastTimestmap(dependencies, language)));
+    }
+
     Optional<Long> getRecipesForClientByShotcurtLastTimestmap(List<String> dependencies, LanguageEnumeration language);
 
+    /**
+     * Asynchronous variant of {@link #getRecipesForClientByShotcurtLastTimestmap(List, LanguageEnumeration)}.
+     * <p>
+     * By default, the request is sent synchronously, and an already completed future is returned.
+     */
+    default CompletableFuture<Optional<Long>> getRecipesForClientByShotcurtLastTimestmapAsync(List<String> dependencies, LanguageEnumeration language) {
+        return CompletableFuture.completedFuture(getRecipesForClientByShotcurtLastTimestmap(dependencies, language));
+    }
+
     List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch> getRecipesSemantic(Optional<String> term,
                                                                                                      List<String> dependencies,
                                                                                                      Optional<String> parameters,
@@ -73,6 +117,23 @@ public interface CodigaApi {
                                                                                                      Optional<Boolean> onlyPrivate,
                                                                                                      Optional<Boolean> onlySubscribed);
 
+    /**
+     * Asynchronous variant of {@link #getRecipesSemantic(Optional, List, Optional, LanguageEnumeration, String, Optional, Optional, Optional)}.
+     * <p>
+     * By default, the request is sent synchronously, and an already completed future is returned.
+     */
+    default CompletableFuture<List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch>> getRecipesSemanticAsync(Optional<String> term,
+                                                                                                                            List<String> dependencies,
+                                                                                                                            Optional<String> parameters,
+                                                                                                                            LanguageEnumeration language,
+                                                                                                                            String filename,
+                                                                                                                            Optional<Boolean> onlyPublic,
+                                                                                                                            Optional<Boolean> onlyPrivate,
+                                                                                                                            Optional<Boolean> onlySubscribed) {
+        return CompletableFuture.completedFuture(
+            getRecipesSemantic(term, dependencies, parameters, language, filename, onlyPublic, onlyPrivate, onlySubscribed));
+    }
+
     void recordRecipeUse(Long recipeId);
 
     // Rulesets
@@ -87,6 +148,19 @@ public interface CodigaApi {
      */
     Optional<List<GetRulesetsForClientQuery.RuleSetsForClient>> getRulesetsForClient(List<String> ruleNames);
 
+    /**
+     * Retrieves the rulesets from the Codiga server for the provided ruleset names, along with their last update timestamp,
+     * in a single request.
+     * <p>
+     * By default, the rulesets and the timestamp are queried one after the other.
+     *
+     * @param ruleNames the ruleset names
+     * @return the rulesets and their timestamp, or empty optional if there was an error during data retrieval
+     */
+    default Optional<TimestampedData<List<GetRulesetsForClientQuery.RuleSetsForClient>>> getRulesetsForClientWithLastTimestamp(List<String> ruleNames) {
+        return getRulesetsForClient(ruleNames).map(rulesets -> new TimestampedData<>(rulesets, getRulesetsLastTimestamp(ruleNames)));
+    }
+
     /**
      * Sends a request to Codiga that a rule fix quick fix was invoked by the user.
      */
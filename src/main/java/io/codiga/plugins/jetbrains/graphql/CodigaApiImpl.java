@@ -5,6 +5,7 @@ import com.apollographql.apollo.ApolloClient;
 import com.apollographql.apollo.ApolloMutationCall;
 import com.apollographql.apollo.ApolloQueryCall;
 import com.apollographql.apollo.api.Input;
+import com.apollographql.apollo.api.Operation;
 import com.apollographql.apollo.api.Response;
 import com.apollographql.apollo.exception.ApolloException;
 import com.apollographql.apollo.request.RequestHeaders;
@@ -14,10 +15,15 @@ import io.codiga.api.*;
 import io.codiga.api.type.LanguageEnumeration;
 import io.codiga.plugins.jetbrains.settings.application.AppSettingsState;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
 import static io.codiga.plugins.jetbrains.graphql.Constants.USER_AGENT;
@@ -33,6 +39,10 @@ import static io.codiga.plugins.jetbrains.utils.UserAgentUtils.getUserAgent;
  * service within the plugin. To retrieve it, just use {@code CodigaApi api = CodigaApi.getInstance();}.
  * <p>
  * See <a href="https://plugins.jetbrains.com/docs/intellij/plugin-services.html#declaring-a-service">Declaring a service</a>
+ * <p>
+ * Requests are enqueued on the Apollo dispatcher, and their responses complete {@link CompletableFuture}s,
+ * so that no thread is blocked while a request is outstanding, unless a blocking method of {@link CodigaApi} is called.
+ * Identical queries sent concurrently, e.g. by multiple projects, share a single request.
  */
 public final class CodigaApiImpl implements CodigaApi {
 
@@ -40,8 +50,8 @@ public final class CodigaApiImpl implements CodigaApi {
     private static final ApolloClient apolloClient = ApolloClient.builder()
         .serverUrl(Constants.ENDPOINT_URL)
         .build();
-
-
+    private static final long REQUEST_TIMEOUT_SECONDS = 30;
+    private static final SingleFlight singleFlight = new SingleFlight();
 
     /**
      * Set the header with access/secret keys so that we do an authenticated
@@ -70,6 +80,62 @@ public final class CodigaApiImpl implements CodigaApi {
             .build();
     }
 
+    /**
+     * Sends the argument call without blocking the caller, unless an identical query, i.e. the same operation
+     * with the same variables, is already in flight, in which case its response is shared via {@link SingleFlight}.
+     * <p>
+     * The returned future completes with the data mapped by the argument function, or with the argument default value
+     * if the response has no data (or the mapped data is null), if the request fails, or if no response arrives within
+     * {@link #REQUEST_TIMEOUT_SECONDS}. When the future is cancelled (by all callers sharing the call) or times out,
+     * the call is cancelled too.
+     */
+    private static <D extends Operation.Data, T> CompletableFuture<T> enqueue(ApolloCall<D> call, Function<D, T> dataMapper, T defaultValue) {
+        Operation<?, ?, ?> operation = call.operation();
+        var key = List.of(operation.operationId(), operation.variables().valueMap());
+        return singleFlight.execute(key, () -> send(call), data -> {
+            T result = data != null ? dataMapper.apply(data) : null;
+            return result != null ? result : defaultValue;
+        });
+    }
+
+    /**
+     * Sends the argument call without blocking the caller.
+     *
+     * @return the future that completes with the data of the response, or with null if there is no data,
+     * the request fails, or it times out
+     */
+    private static <D extends Operation.Data> CompletableFuture<D> send(ApolloCall<D> call) {
+        var future = new CompletableFuture<D>();
+        var responded = new AtomicBoolean();
+        call.enqueue(
+            new ApolloCall.Callback<D>() {
+                @Override
+                public void onResponse(@NotNull Response<D> response) {
+                    responded.set(true);
+                    future.complete(response.getData());
+                }
+
+                @Override
+                public void onFailure(@NotNull ApolloException e) {
+                    responded.set(true);
+                    LOGGER.debug("[CodigaApiImpl] API request failed: " + e.getMessage());
+                    future.complete(null);
+                }
+            });
+        future.completeOnTimeout(null, REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .whenComplete((result, error) -> {
+                if (!responded.get()) {
+                    call.cancel();
+                }
+            });
+        return future;
+    }
+
+    @Nullable
+    private static Long toTimestamp(@Nullable Object timestamp) {
+        return timestamp != null ? ((BigDecimal) timestamp).longValue() : null;
+    }
+
     /**
      * Indicate of the API is working, which means we have a correct access and secret key.
      * To do that, we check that the API is returning a correct user when we issue a request.
@@ -89,38 +155,17 @@ public final class CodigaApiImpl implements CodigaApi {
      * @return the username of the logged in user if the API works correctly (and API keys are correct).
      */
     public Optional<String> getUsername() {
-        ApiRequest<GetUserQuery.User> apiRequest = new ApiRequest();
-
         ApolloQueryCall<GetUserQuery.Data> queryCall = apolloClient.query(new GetUserQuery())
             .toBuilder()
             .requestHeaders(getHeaders())
             .build();
-        queryCall.enqueue(
-            new ApolloCall.Callback<GetUserQuery.Data>() {
-                @Override
-                public void onResponse(@NotNull Response<GetUserQuery.Data> response) {
-                    if (response.getData().user() == null) {
-                        apiRequest.setError();
-
-                    } else {
-                        apiRequest.setData(response.getData().user());
-                    }
-
-                }
 
-                @Override
-                public void onFailure(@NotNull ApolloException e) {
-                    apiRequest.setError();
-                }
-            });
-
-        return apiRequest.getData().map(GetUserQuery.User::username);
+        return enqueue(queryCall, data -> data.user() != null ? Optional.of(data.user().username()) : null, Optional.<String>empty()).join();
     }
 
 
     @Override
     public List<GetRecipesForClientQuery.GetRecipesForClient> getRecipesForClient(List<String> keywords, List<String> dependencies, Optional<String> parameters, LanguageEnumeration language, String filename) {
-        ApiRequest<List<GetRecipesForClientQuery.GetRecipesForClient>> apiRequest = new ApiRequest();
         AppSettingsState settings = AppSettingsState.getInstance();
         String fingerPrintText = settings.getFingerprint();
         Input<String> fingerprint = Input.fromNullable(fingerPrintText);
@@ -130,24 +175,8 @@ public final class CodigaApiImpl implements CodigaApi {
             .toBuilder()
             .requestHeaders(getHeaders())
             .build();
-        queryCall.enqueue(
-            new ApolloCall.Callback<GetRecipesForClientQuery.Data>() {
-                @Override
-                public void onResponse(@NotNull Response<GetRecipesForClientQuery.Data> response) {
-                    if (response.getData() == null) {
-                        apiRequest.setError();
-                    } else {
-                        apiRequest.setData(response.getData().getRecipesForClient());
-                    }
-                }
-
-                @Override
-                public void onFailure(@NotNull ApolloException e) {
-                    apiRequest.setError();
-                }
-            });
 
-        return apiRequest.getData().orElse(ImmutableList.of());
+        return enqueue(queryCall, GetRecipesForClientQuery.Data::getRecipesForClient, List.<GetRecipesForClientQuery.GetRecipesForClient>of()).join();
     }
 
     @Override
@@ -159,7 +188,42 @@ public final class CodigaApiImpl implements CodigaApi {
                                                                                                                 Optional<Boolean> onlyPublic,
                                                                                                                 Optional<Boolean> onlyPrivate,
                                                                                                                 Optional<Boolean> onlySubscribed) {
-        ApiRequest<List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut>> apiRequest = new ApiRequest();
+        return getRecipesForClientByShotcurtAsync(term, dependencies, parameters, language, filename, onlyPublic, onlyPrivate, onlySubscribed).join();
+    }
+
+    @Override
+    public CompletableFuture<List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut>> getRecipesForClientByShotcurtAsync(Optional<String> term,
+                                                                                                                                 List<String> dependencies,
+                                                                                                                                 Optional<String> parameters,
+                                                                                                                                 LanguageEnumeration language,
+                                                                                                                                 String filename,
+                                                                                                                                 Optional<Boolean> onlyPublic,
+                                                                                                                                 Optional<Boolean> onlyPrivate,
+                                                                                                                                 Optional<Boolean> onlySubscribed) {
+        var queryCall = createRecipesForClientByShortcutCall(term, dependencies, language, filename, onlyPublic, onlyPrivate, onlySubscribed);
+
+        return enqueue(queryCall, GetRecipesForClientByShortcutQuery.Data::getRecipesForClientByShortcut, List.of());
+    }
+
+    @Override
+    public CompletableFuture<TimestampedData<List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut>>> getRecipesForClientByShotcurtWithLastTimestampAsync(List<String> dependencies,
+                                                                                                                                                                  LanguageEnumeration language,
+                                                                                                                                                                  String filename) {
+        //The shortcut query also selects the last update timestamp, so both are returned by a single round trip
+        var queryCall = createRecipesForClientByShortcutCall(Optional.empty(), dependencies, language, filename, Optional.empty(), Optional.empty(), Optional.empty());
+
+        return enqueue(queryCall,
+            data -> new TimestampedData<>(data.getRecipesForClientByShortcut(), Optional.ofNullable(toTimestamp(data.getRecipesForClientByShortcutLastTimestamp()))),
+            new TimestampedData<>(List.of(), Optional.empty()));
+    }
+
+    private ApolloQueryCall<GetRecipesForClientByShortcutQuery.Data> createRecipesForClientByShortcutCall(Optional<String> term,
+                                                                                                       List<String> dependencies,
+                                                                                                       LanguageEnumeration language,
+                                                                                                       String filename,
+                                                                                                       Optional<Boolean> onlyPublic,
+                                                                                                       Optional<Boolean> onlyPrivate,
+                                                                                                       Optional<Boolean> onlySubscribed) {
         AppSettingsState settings = AppSettingsState.getInstance();
         String fingerPrintText = settings.getFingerprint();
         Input<String> fingerprint = Input.fromNullable(fingerPrintText);
@@ -169,34 +233,20 @@ public final class CodigaApiImpl implements CodigaApi {
         final Input<Boolean> onlySubscribedParameter = onlySubscribed.map(Input::fromNullable).orElse(Input.absent());
 
 
-        ApolloQueryCall<GetRecipesForClientByShortcutQuery.Data> queryCall = apolloClient.query(
+        return apolloClient.query(
                 new GetRecipesForClientByShortcutQuery(fingerprint, Input.fromNullable(filename), termParameter, dependencies, Input.absent(), language, onlyPublicParameter, onlyPrivateParameter, onlySubscribedParameter))
             .toBuilder()
             .requestHeaders(getHeaders())
             .build();
-        queryCall.enqueue(
-            new ApolloCall.Callback<GetRecipesForClientByShortcutQuery.Data>() {
-                @Override
-                public void onResponse(@NotNull Response<GetRecipesForClientByShortcutQuery.Data> response) {
-                    if (response.getData() == null) {
-                        apiRequest.setError();
-                    } else {
-                        apiRequest.setData(response.getData().getRecipesForClientByShortcut());
-                    }
-                }
-
-                @Override
-                public void onFailure(@NotNull ApolloException e) {
-                    apiRequest.setError();
-                }
-            });
-
-        return apiRequest.getData().orElse(ImmutableList.of());
     }
 
     @Override
     public Optional<Long> getRecipesForClientByShotcurtLastTimestmap(List<String> dependencies, LanguageEnumeration language) {
-        ApiRequest<Optional<Long>> apiRequest = new ApiRequest();
+        return getRecipesForClientByShotcurtLastTimestmapAsync(dependencies, language).join();
+    }
+
+    @Override
+    public CompletableFuture<Optional<Long>> getRecipesForClientByShotcurtLastTimestmapAsync(List<String> dependencies, LanguageEnumeration language) {
         AppSettingsState settings = AppSettingsState.getInstance();
         String fingerPrintText = settings.getFingerprint();
         Input<String> fingerprint = Input.fromNullable(fingerPrintText);
@@ -207,35 +257,19 @@ public final class CodigaApiImpl implements CodigaApi {
             .toBuilder()
             .requestHeaders(getHeaders())
             .build();
-        queryCall.enqueue(
-            new ApolloCall.Callback<GetRecipesForClientByShortcutLastTimestampQuery.Data>() {
-                @Override
-                public void onResponse(@NotNull Response<GetRecipesForClientByShortcutLastTimestampQuery.Data> response) {
-                    if (response.getData() == null) {
-                        apiRequest.setError();
-                    } else {
-                        Object responseObject = response.getData().getRecipesForClientByShortcutLastTimestamp();
-                        if (responseObject == null) {
-                            apiRequest.setData(Optional.empty());
-                        } else {
-                            Long longValue = ((BigDecimal) responseObject).longValue();
-                            apiRequest.setData(Optional.of(longValue));
-                        }
-                    }
-                }
 
-                @Override
-                public void onFailure(@NotNull ApolloException e) {
-                    apiRequest.setError();
-                }
-            });
-
-        return apiRequest.getData().orElse(Optional.empty());
+        return enqueue(queryCall,
+            data -> Optional.ofNullable(toTimestamp(data.getRecipesForClientByShortcutLastTimestamp())),
+            Optional.empty());
     }
 
     @Override
     public List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch> getRecipesSemantic(Optional<String> term, List<String> dependencies, Optional<String> parameters, LanguageEnumeration language, String filename, Optional<Boolean> onlyPublic, Optional<Boolean> onlyPrivate, Optional<Boolean> onlySubscribed) {
-        ApiRequest<List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch>> apiRequest = new ApiRequest();
+        return getRecipesSemanticAsync(term, dependencies, parameters, language, filename, onlyPublic, onlyPrivate, onlySubscribed).join();
+    }
+
+    @Override
+    public CompletableFuture<List<GetRecipesForClientSemanticQuery.AssistantRecipesSemanticSearch>> getRecipesSemanticAsync(Optional<String> term, List<String> dependencies, Optional<String> parameters, LanguageEnumeration language, String filename, Optional<Boolean> onlyPublic, Optional<Boolean> onlyPrivate, Optional<Boolean> onlySubscribed) {
         AppSettingsState settings = AppSettingsState.getInstance();
         String fingerPrintText = settings.getFingerprint();
         Input<String> fingerprint = Input.fromNullable(fingerPrintText);
@@ -259,24 +293,8 @@ public final class CodigaApiImpl implements CodigaApi {
             .toBuilder()
             .requestHeaders(getHeaders())
             .build();
-        queryCall.enqueue(
-            new ApolloCall.Callback<GetRecipesForClientSemanticQuery.Data>() {
-                @Override
-                public void onResponse(@NotNull Response<GetRecipesForClientSemanticQuery.Data> response) {
-                    if (response.getData() == null) {
-                        apiRequest.setError();
-                    } else {
-                        apiRequest.setData(response.getData().assistantRecipesSemanticSearch());
-                    }
-                }
-
-                @Override
-                public void onFailure(@NotNull ApolloException e) {
-                    apiRequest.setError();
-                }
-            });
 
-        return apiRequest.getData().orElse(ImmutableList.of());
+        return enqueue(queryCall, GetRecipesForClientSemanticQuery.Data::assistantRecipesSemanticSearch, List.of());
     }
 
 
@@ -286,7 +304,6 @@ public final class CodigaApiImpl implements CodigaApi {
 
         String fingerPrintText = settings.getFingerprint();
         Input<String> fingerprint = Input.fromNullable(fingerPrintText);
-        ApiRequest<String> apiRecordRecipeUse = new ApiRequest<String>();
 
         ApolloMutationCall<RecordRecipeUseMutation.Data> mutationCall =
             apolloClient.mutate(new RecordRecipeUseMutation(recipeId, fingerprint))
@@ -299,11 +316,9 @@ public final class CodigaApiImpl implements CodigaApi {
                 public void onResponse(@NotNull Response<RecordRecipeUseMutation.Data> response) {
                     if (response.getData() == null) {
                         LOGGER.info(String.format("RecordRecipeUseMutation response %s", response));
-                        apiRecordRecipeUse.setError();
                     } else {
                         LOGGER.info(String.format("RecordRecipeUseMutation response data: %s ", response.getData()));
                         LOGGER.info(String.format("RecordRecipeUseMutation response data: %s ", response.getData().recordAccess()));
-                        apiRecordRecipeUse.setData(response.getData().recordAccess());
                     }
                 }
 
@@ -312,14 +327,12 @@ public final class CodigaApiImpl implements CodigaApi {
                     LOGGER.debug("api call to ignore failure fails");
                     LOGGER.debug(e.getMessage());
                     e.printStackTrace();
-                    apiRecordRecipeUse.setError();
                 }
             });
     }
 
     @Override
     public Optional<Long> getRulesetsLastTimestamp(List<String> ruleNames) {
-        ApiRequest<Optional<Long>> apiRequest = new ApiRequest();
         AppSettingsState settings = AppSettingsState.getInstance();
         String fingerPrintText = settings.getFingerprint();
         Input<String> fingerprint = Input.fromNullable(fingerPrintText);
@@ -330,62 +343,38 @@ public final class CodigaApiImpl implements CodigaApi {
             .toBuilder()
             .requestHeaders(getHeaders())
             .build();
-        queryCall.enqueue(
-            new ApolloCall.Callback<GetRulesetsForClientLastTimestampQuery.Data>() {
-                @Override
-                public void onResponse(@NotNull Response<GetRulesetsForClientLastTimestampQuery.Data> response) {
-                    if (response.getData() == null) {
-                        apiRequest.setError();
-                    } else {
-                        Object responseObject = response.getData().ruleSetsLastUpdatedTimestamp();
-                        if (responseObject == null) {
-                            apiRequest.setData(Optional.empty());
-                        } else {
-                            Long longValue = ((BigDecimal) responseObject).longValue();
-                            apiRequest.setData(Optional.of(longValue));
-                        }
-                    }
-                }
 
-                @Override
-                public void onFailure(@NotNull ApolloException e) {
-                    apiRequest.setError();
-                }
-            });
-
-        return apiRequest.getData().orElse(Optional.empty());
+        return enqueue(queryCall,
+            data -> Optional.ofNullable(toTimestamp(data.ruleSetsLastUpdatedTimestamp())),
+            Optional.<Long>empty()).join();
     }
 
     @Override
     public Optional<List<GetRulesetsForClientQuery.RuleSetsForClient>> getRulesetsForClient(List<String> ruleNames) {
-        ApiRequest<List<GetRulesetsForClientQuery.RuleSetsForClient>> apiRequest = new ApiRequest();
+        return enqueue(createRulesetsForClientCall(ruleNames),
+            data -> data.ruleSetsForClient() != null ? Optional.of(data.ruleSetsForClient()) : null,
+            Optional.<List<GetRulesetsForClientQuery.RuleSetsForClient>>empty()).join();
+    }
+
+    @Override
+    public Optional<TimestampedData<List<GetRulesetsForClientQuery.RuleSetsForClient>>> getRulesetsForClientWithLastTimestamp(List<String> ruleNames) {
+        //The rulesets query also selects the last update timestamp, so both are returned by a single round trip
+        return enqueue(createRulesetsForClientCall(ruleNames),
+            data -> data.ruleSetsForClient() != null
+                ? Optional.of(new TimestampedData<>(data.ruleSetsForClient(), Optional.ofNullable(toTimestamp(data.ruleSetsLastUpdatedTimestamp()))))
+                : null,
+            Optional.<TimestampedData<List<GetRulesetsForClientQuery.RuleSetsForClient>>>empty()).join();
+    }
+
+    private ApolloQueryCall<GetRulesetsForClientQuery.Data> createRulesetsForClientCall(List<String> ruleNames) {
         AppSettingsState settings = AppSettingsState.getInstance();
         String fingerPrintText = settings.getFingerprint();
 
-
-        ApolloQueryCall<GetRulesetsForClientQuery.Data> queryCall = apolloClient.query(
+        return apolloClient.query(
                 new GetRulesetsForClientQuery(ruleNames, fingerPrintText))
             .toBuilder()
             .requestHeaders(getHeaders())
             .build();
-        queryCall.enqueue(
-            new ApolloCall.Callback<GetRulesetsForClientQuery.Data>() {
-                @Override
-                public void onResponse(@NotNull Response<GetRulesetsForClientQuery.Data> response) {
-                    if (response.getData() == null) {
-                        apiRequest.setError();
-                    } else {
-                        apiRequest.setData(response.getData().ruleSetsForClient());
-                    }
-                }
-
-                @Override
-                public void onFailure(@NotNull ApolloException e) {
-                    apiRequest.setError();
-                }
-            });
-
-        return apiRequest.getData();
     }
 
     @Override
@@ -394,7 +383,6 @@ public final class CodigaApiImpl implements CodigaApi {
 
         String fingerPrintText = settings.getFingerprint();
         Input<String> fingerprint = Input.fromNullable(fingerPrintText);
-        ApiRequest<String> apiRecordRuleFix = new ApiRequest<>();
 
         ApolloMutationCall<RecordRuleFixMutation.Data> mutationCall =
             apolloClient.mutate(new RecordRuleFixMutation(fingerprint))
@@ -407,11 +395,9 @@ public final class CodigaApiImpl implements CodigaApi {
                 public void onResponse(@NotNull Response<RecordRuleFixMutation.Data> response) {
                     if (response.getData() == null) {
                         LOGGER.info(String.format("RecordRuleFixMutation response %s", response));
-                        apiRecordRuleFix.setError();
                     } else {
                         LOGGER.info(String.format("RecordRuleFixMutation response data: %s ", response.getData()));
                         LOGGER.info(String.format("RecordRuleFixMutation response data: %s ", response.getData().recordAccess()));
-                        apiRecordRuleFix.setData(response.getData().recordAccess());
                     }
                 }
 
@@ -420,7 +406,6 @@ public final class CodigaApiImpl implements CodigaApi {
                     LOGGER.debug("api call to ignore failure fails");
                     LOGGER.debug(e.getMessage());
                     e.printStackTrace();
-                    apiRecordRuleFix.setError();
                 }
             });
     }
@@ -431,7 +416,6 @@ public final class CodigaApiImpl implements CodigaApi {
 
         String fingerPrintText = settings.getFingerprint();
         Input<String> fingerprint = Input.fromNullable(fingerPrintText);
-        ApiRequest<String> apiRecordCreateCodigaYaml = new ApiRequest<>();
 
         ApolloMutationCall<RecordCreateCodigaYamlMutation.Data> mutationCall =
             apolloClient.mutate(new RecordCreateCodigaYamlMutation(fingerprint))
@@ -444,11 +428,9 @@ public final class CodigaApiImpl implements CodigaApi {
                 public void onResponse(@NotNull Response<RecordCreateCodigaYamlMutation.Data> response) {
                     if (response.getData() == null) {
                         LOGGER.info(String.format("RecordCreateCodigaYamlMutation response %s", response));
-                        apiRecordCreateCodigaYaml.setError();
                     } else {
                         LOGGER.info(String.format("RecordCreateCodigaYamlMutation response data: %s ", response.getData()));
                         LOGGER.info(String.format("RecordCreateCodigaYamlMutation response data: %s ", response.getData().recordAccess()));
-                        apiRecordCreateCodigaYaml.setData(response.getData().recordAccess());
                     }
                 }
 
@@ -457,7 +439,6 @@ public final class CodigaApiImpl implements CodigaApi {
                     LOGGER.debug("api call to ignore failure fails");
                     LOGGER.debug(e.getMessage());
                     e.printStackTrace();
-                    apiRecordCreateCodigaYaml.setError();
                 }
             });
     }
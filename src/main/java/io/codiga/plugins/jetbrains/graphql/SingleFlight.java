@@ -0,0 +1,88 @@
+package io.codiga.plugins.jetbrains.graphql;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical requests that are in flight at the same time, so that they share a single network call and its result.
+ * <p>
+ * Each caller gets its own future, with the shared result mapped by its own function, so that a caller cancelling its future doesn't affect the others.
+ * The shared request is cancelled only when all of its callers have cancelled their futures.
+ * <p>
+ * Requests are only shared while they are running, completed results are not cached.
+ */
+final class SingleFlight {
+    private final Map<Object, Flight<?>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the result of the request in flight for the argument key, or, if there is none, sends a new request
+     * via the argument supplier.
+     *
+     * @param key          identifies identical requests, e.g. the operation and its variables
+     * @param request      sends the request, only called if there is no request in flight for the key
+     * @param resultMapper maps the shared result to the result of this caller
+     */
+    @SuppressWarnings("unchecked")
+    <S, T> CompletableFuture<T> execute(Object key, Supplier<CompletableFuture<S>> request, Function<? super S, ? extends T> resultMapper) {
+        var isNewFlight = new boolean[1];
+        var flight = (Flight<S>) flights.compute(key, (k, existing) -> {
+            if (existing != null && existing.subscribe()) {
+                return existing;
+            }
+            isNewFlight[0] = true;
+            return new Flight<>(request.get());
+        });
+        //Registered outside 'compute()', since an already completed request would remove its flight from the map recursively
+        if (isNewFlight[0]) {
+            flight.result.whenComplete((result, error) -> flights.remove(key, flight));
+        }
+        return flight.subscriberFuture(resultMapper);
+    }
+
+    /**
+     * Returns the number of requests currently in flight.
+     */
+    int getFlightCount() {
+        return flights.size();
+    }
+
+    private static final class Flight<S> {
+        final CompletableFuture<S> result;
+        private int subscriberCount = 1;
+
+        Flight(CompletableFuture<S> result) {
+            this.result = result;
+        }
+
+        /**
+         * Adds a subscriber to this flight, unless it has already completed, or it was cancelled by all of its subscribers.
+         */
+        synchronized boolean subscribe() {
+            if (subscriberCount == 0 || result.isDone()) {
+                return false;
+            }
+            subscriberCount++;
+            return true;
+        }
+
+        <T> CompletableFuture<T> subscriberFuture(Function<? super S, ? extends T> resultMapper) {
+            //Cancelling a dependent future doesn't cancel the shared one
+            CompletableFuture<T> subscriberFuture = result.thenApply(resultMapper);
+            subscriberFuture.whenComplete((value, error) -> {
+                if (subscriberFuture.isCancelled()) {
+                    unsubscribe();
+                }
+            });
+            return subscriberFuture;
+        }
+
+        private synchronized void unsubscribe() {
+            if (--subscriberCount == 0) {
+                result.cancel(true);
+            }
+        }
+    }
+}
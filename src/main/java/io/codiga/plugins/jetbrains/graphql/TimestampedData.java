@@ -0,0 +1,30 @@
+package io.codiga.plugins.jetbrains.graphql;
+
+import java.util.Optional;
+
+/**
+ * Data returned by the Codiga API along with the timestamp of its last update on the server,
+ * both queried in the same request, so that they are consistent with each other.
+ *
+ * @param <T> the type of the data
+ */
+public final class TimestampedData<T> {
+    private final T data;
+    private final Optional<Long> lastUpdatedTimestamp;
+
+    public TimestampedData(T data, Optional<Long> lastUpdatedTimestamp) {
+        this.data = data;
+        this.lastUpdatedTimestamp = lastUpdatedTimestamp;
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    /**
+     * Returns the last update timestamp, or empty if the server returned none, e.g. because none of the requested items exist.
+     */
+    public Optional<Long> getLastUpdatedTimestamp() {
+        return lastUpdatedTimestamp;
+    }
+}
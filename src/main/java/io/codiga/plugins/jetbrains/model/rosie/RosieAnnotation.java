@@ -5,6 +5,8 @@ import lombok.Getter;
 
 import java.util.List;
 
+import static java.util.stream.Collectors.toList;
+
 /**
  * Annotation information created by {@link RosieApiImpl} based on the
  * information retrieved in {@link RosieResponse} from the Codiga API.
@@ -33,4 +35,19 @@ public class RosieAnnotation {
         this.end = violation.end;
         this.fixes = violation.fixes;
     }
+
+    /**
+     * Returns a copy of this annotation moved by the argument number of lines, along with the edits of its fixes.
+     * <p>
+     * Used to carry over annotations of unchanged code, when lines are inserted or deleted above it.
+     */
+    public RosieAnnotation shiftLines(int lineCount) {
+        var shiftedFixes = fixes == null ? null : fixes.stream()
+            .map(fix -> new RosieViolationFix(fix.description, fix.edits == null ? null : fix.edits.stream()
+                .map(edit -> new RosieViolationFixEdit(edit.start.shiftLines(lineCount), edit.end.shiftLines(lineCount), edit.content, edit.editType))
+                .collect(toList())))
+            .collect(toList());
+        var violation = new RosieViolation(message, start.shiftLines(lineCount), end.shiftLines(lineCount), severity, category, shiftedFixes);
+        return new RosieAnnotation(ruleName, rulesetName, violation);
+    }
 }
@@ -0,0 +1,42 @@
+package io.codiga.plugins.jetbrains.model.rosie;
+
+import io.codiga.plugins.jetbrains.utils.RosieLanguageSupport;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Rosie request object for analysing multiple files of the same language, with the same rules, in a single request.
+ * <p>
+ * The rules are sent once for all files, and the response contains a {@link RosieFileResponse} for each file,
+ * identified by {@link File#id}.
+ */
+@AllArgsConstructor
+public class RosieBatchRequest {
+    /**
+     * The Rosie language string.
+     * <p>
+     * @see RosieLanguageSupport
+     */
+    public String language;
+    public String fileEncoding;
+    public List<File> files;
+    public List<RosieRule> rules;
+    public boolean logOutput;
+
+    /**
+     * A file to analyse as part of a batch.
+     */
+    @AllArgsConstructor
+    public static class File {
+        /**
+         * Identifies the file within the batch, since file names are not necessarily unique.
+         */
+        public String id;
+        public String filename;
+        /**
+         * The base64-encoded version of the code to be analysed.
+         */
+        public String codeBase64;
+    }
+}
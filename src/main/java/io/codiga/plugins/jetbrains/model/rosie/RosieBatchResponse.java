@@ -0,0 +1,14 @@
+package io.codiga.plugins.jetbrains.model.rosie;
+
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * The Rosie response object returned for a {@link RosieBatchRequest}.
+ */
+@ToString
+public class RosieBatchResponse {
+    public List<RosieFileResponse> fileResponses;
+    public List<String> errors;
+}
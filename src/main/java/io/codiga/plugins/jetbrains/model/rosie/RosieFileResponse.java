@@ -0,0 +1,22 @@
+package io.codiga.plugins.jetbrains.model.rosie;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * The result of the analysis of a single file of a {@link RosieBatchRequest}.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class RosieFileResponse {
+    /**
+     * The id of the file in the request, see {@link RosieBatchRequest.File#id}.
+     */
+    public String id;
+    public List<RosieRuleResponse> ruleResponses;
+    public List<String> errors;
+}
@@ -5,6 +5,7 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.jetbrains.annotations.NotNull;
 
 import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
@@ -14,11 +15,19 @@ import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
  */
 @EqualsAndHashCode
 @AllArgsConstructor
+@ToString
 public final class RosiePosition {
     public static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
     public int line;
     public int col;
 
+    /**
+     * Returns a copy of this position moved by the argument number of lines, with the same column.
+     */
+    public RosiePosition shiftLines(int lineCount) {
+        return new RosiePosition(line + lineCount, col);
+    }
+
     /**
      * Returns the position offset within the Document of the argument Editor.
      *
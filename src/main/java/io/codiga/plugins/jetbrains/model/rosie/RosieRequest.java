@@ -1,14 +1,17 @@
 package io.codiga.plugins.jetbrains.model.rosie;
 
+import static java.util.stream.Collectors.toList;
+
 import io.codiga.plugins.jetbrains.utils.RosieLanguageSupport;
-import lombok.AllArgsConstructor;
 
 import java.util.List;
 
 /**
  * Rosie request object sent to the Codiga API.
+ * <p>
+ * Null fields are not serialized, so depending on the mode the request is created for, either {@link #rules}
+ * or {@link #ruleReferences} is sent.
  */
-@AllArgsConstructor
 public class RosieRequest {
     public String filename;
     /**
@@ -22,6 +25,50 @@ public class RosieRequest {
      * The base64-encoded version of the code to be analysed.
      */
     public String codeBase64;
+    /**
+     * The full rules to analyse the code with. Null when only rule references are sent.
+     */
     public List<RosieRule> rules;
+    /**
+     * The digest of the rules, as computed by {@link RosieRule#digestOf(List)}.
+     * <p>
+     * Rosie caches the rules uploaded with a digest, so that subsequent requests can reference them by this digest.
+     */
+    public String rulesDigest;
+    /**
+     * The ids and content hashes of the rules, sent instead of {@link #rules}, when the rules are expected
+     * to be cached by Rosie under {@link #rulesDigest}.
+     */
+    public List<RosieRuleReference> ruleReferences;
     public boolean logOutput;
+
+    public RosieRequest(String filename, String language, String fileEncoding, String codeBase64, List<RosieRule> rules, boolean logOutput) {
+        this.filename = filename;
+        this.language = language;
+        this.fileEncoding = fileEncoding;
+        this.codeBase64 = codeBase64;
+        this.rules = rules;
+        this.logOutput = logOutput;
+    }
+
+    /**
+     * Returns a copy of this request that references the rules by their digest, ids and hashes,
+     * instead of sending their content.
+     */
+    public RosieRequest withRuleReferences() {
+        var request = new RosieRequest(filename, language, fileEncoding, codeBase64, null, logOutput);
+        request.rulesDigest = RosieRule.digestOf(rules);
+        request.ruleReferences = rules.stream().map(RosieRuleReference::new).collect(toList());
+        return request;
+    }
+
+    /**
+     * Returns a copy of this request that sends the full rules along with their digest,
+     * so that Rosie can cache them for subsequent requests with rule references.
+     */
+    public RosieRequest withRulesDigest() {
+        var request = new RosieRequest(filename, language, fileEncoding, codeBase64, rules, logOutput);
+        request.rulesDigest = RosieRule.digestOf(rules);
+        return request;
+    }
 }
@@ -1,13 +1,21 @@
 package io.codiga.plugins.jetbrains.model.rosie;
 
+import lombok.ToString;
+
 import java.util.List;
 
 /**
  * The Rosie response object returned by the Codiga API.
  */
+@ToString
 public class RosieResponse {
     public List<RosieRuleResponse> ruleResponses;
     public List<String> errors;
+    /**
+     * Set by Rosie when a request sent rule references, but the referenced rules are not cached by Rosie,
+     * in which case the request has to be resent with the full rules.
+     */
+    public boolean rulesCacheMiss;
 
     public RosieResponse(List<RosieRuleResponse> ruleResponses) {
         this.ruleResponses = ruleResponses;
@@ -1,8 +1,11 @@
 package io.codiga.plugins.jetbrains.model.rosie;
 
 import io.codiga.api.GetRulesetsForClientQuery;
+import io.codiga.plugins.jetbrains.utils.HashUtils;
 import lombok.ToString;
 
+import java.util.List;
+
 /**
  * The rule descriptor converted from {@link GetRulesetsForClientQuery.Rule}, and sent to Rosie.
  */
@@ -16,6 +19,14 @@ public class RosieRule {
     public String type;
     public String entityChecked;
     public String pattern;
+    /**
+     * Hash of all the properties above, so that changes in a rule can be detected without having to compare
+     * the full rule content.
+     * <p>
+     * It is transient, so that it is not serialized into the requests sent to Rosie.
+     */
+    @ToString.Exclude
+    public transient String contentHash;
 
     public RosieRule(String rulesetName, GetRulesetsForClientQuery.Rule rule) {
         this.rulesetName = rulesetName;
@@ -26,5 +37,18 @@ public class RosieRule {
         this.type = rule.ruleType().rawValue();
         this.entityChecked = RosieRuleAstTypes.elementCheckedToRosieEntityChecked(rule.elementChecked());
         this.pattern = rule.pattern();
+        this.contentHash = HashUtils.sha256Hex(id, contentBase64, language, type, entityChecked, pattern);
+    }
+
+    /**
+     * Returns a digest of the argument rules that is independent of the order of the rules.
+     * <p>
+     * It identifies a set of rules, e.g. in cache keys, or as the rule set reference sent to Rosie.
+     */
+    public static String digestOf(List<RosieRule> rules) {
+        return HashUtils.sha256Hex(rules.stream()
+            .map(rule -> rule.contentHash)
+            .sorted()
+            .toArray(String[]::new));
     }
 }
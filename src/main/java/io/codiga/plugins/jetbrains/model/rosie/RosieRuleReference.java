@@ -0,0 +1,24 @@
+package io.codiga.plugins.jetbrains.model.rosie;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Identifies a {@link RosieRule} by its id and content hash, without its content.
+ * <p>
+ * Sent to Rosie instead of the full rules, when rule references are enabled.
+ *
+ * @see RosieRequest#withRuleReferences()
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class RosieRuleReference {
+    public String id;
+    public String hash;
+
+    public RosieRuleReference(RosieRule rule) {
+        this(rule.id, rule.contentHash);
+    }
+}
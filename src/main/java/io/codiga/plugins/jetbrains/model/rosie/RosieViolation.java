@@ -2,6 +2,7 @@ package io.codiga.plugins.jetbrains.model.rosie;
 
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.List;
 
@@ -10,6 +11,7 @@ import java.util.List;
  */
 @EqualsAndHashCode
 @AllArgsConstructor
+@ToString
 public class RosieViolation {
     public String message;
     /**
@@ -2,6 +2,7 @@ package io.codiga.plugins.jetbrains.model.rosie;
 
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.List;
 
@@ -12,6 +13,7 @@ import java.util.List;
  */
 @AllArgsConstructor
 @EqualsAndHashCode
+@ToString
 public final class RosieViolationFix {
     public String description;
     public List<RosieViolationFixEdit> edits;
@@ -2,12 +2,14 @@ package io.codiga.plugins.jetbrains.model.rosie;
 
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 /**
  * Represents a single quick fix edit in an Editor.
  */
 @EqualsAndHashCode
 @AllArgsConstructor
+@ToString
 public class RosieViolationFixEdit {
     /**
      * The position of the edit from where the fix will begin.
@@ -0,0 +1,68 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Tracks the HTTP requests sent to Rosie during a single analysis of a file, so that they can be aborted
+ * when the analysis is cancelled, or when it is superseded by the analysis of a newer revision of the same file.
+ * <p>
+ * A single analysis may send multiple requests (e.g. a request with rule references, then one with the full rules),
+ * so once aborted, it refuses to execute further requests as well.
+ */
+final class InFlightRosieRequest {
+    @Nullable
+    private final RosieCircuitBreaker.Attempt circuitBreakerAttempt;
+    private boolean aborted;
+    private HttpPost currentPost;
+
+    InFlightRosieRequest() {
+        this(null);
+    }
+
+    /**
+     * @param circuitBreakerAttempt the attempt via which the outcomes of the requests are recorded, or null if they are not recorded
+     */
+    InFlightRosieRequest(@Nullable RosieCircuitBreaker.Attempt circuitBreakerAttempt) {
+        this.circuitBreakerAttempt = circuitBreakerAttempt;
+    }
+
+    /**
+     * Executes the argument request with the argument client, unless this analysis has already been aborted.
+     *
+     * @throws RequestAbortedException if this analysis is aborted before or during the execution of the request
+     */
+    CloseableHttpResponse execute(CloseableHttpClient client, HttpPost post) throws IOException {
+        synchronized (this) {
+            if (aborted) {
+                throw new RequestAbortedException("Rosie request aborted");
+            }
+            currentPost = post;
+        }
+        return client.execute(post);
+    }
+
+    /**
+     * Aborts the request currently being executed, if any, which also closes its connection instead of returning it to the pool.
+     */
+    synchronized void abort() {
+        aborted = true;
+        if (currentPost != null) {
+            currentPost.abort();
+        }
+    }
+
+    synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    @Nullable
+    RosieCircuitBreaker.Attempt getCircuitBreakerAttempt() {
+        return circuitBreakerAttempt;
+    }
+}
@@ -0,0 +1,69 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
+import io.codiga.plugins.jetbrains.model.rosie.RosieRule;
+import io.codiga.plugins.jetbrains.utils.HashUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded, least-recently-used cache of the annotations returned by the Rosie service.
+ * <p>
+ * An entry is keyed by the hash of everything that influences the result of an analysis: the file name, the Rosie
+ * language, the file content, and the rules sent. This way, re-analysing a file whose content and rules haven't changed
+ * (e.g. after switching editor tabs, or when the daemon is restarted) doesn't require a request to the Rosie service.
+ * <p>
+ * Since the key changes whenever the content or the rules change, entries never have to be invalidated,
+ * they are simply evicted when the cache is full.
+ */
+public final class RosieAnnotationCache {
+    private final Map<String, List<RosieAnnotation>> entries;
+
+    public RosieAnnotationCache(int maxEntries) {
+        //Access-order, so that the eldest entry is always the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<RosieAnnotation>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Nullable
+    public synchronized List<RosieAnnotation> get(@NotNull String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(@NotNull String key, @NotNull List<RosieAnnotation> annotations) {
+        entries.put(key, List.copyOf(annotations));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Computes the cache key for an analysis.
+     *
+     * @param filename      the name of the analysed file
+     * @param rosieLanguage the Rosie language string of the file
+     * @param code          the content of the file
+     * @param rules         the rules the file is analysed with
+     */
+    public static String keyOf(String filename, String rosieLanguage, byte[] code, List<RosieRule> rules) {
+        var digest = HashUtils.newSha256Digest();
+        HashUtils.update(digest, filename);
+        HashUtils.update(digest, rosieLanguage);
+        HashUtils.update(digest, RosieRule.digestOf(rules));
+        digest.update(code);
+        return HashUtils.toHex(digest.digest());
+    }
+}
@@ -5,7 +5,9 @@ import com.intellij.psi.PsiFile;
 import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for retrieving Rosie specific information from the Codiga API.
@@ -22,4 +24,23 @@ public interface RosieApi {
      */
     @NotNull
     List<RosieAnnotation> getAnnotations(@NotNull PsiFile psiFile, @NotNull Project project);
+
+    /**
+     * Returns the annotations from the Codiga API for each of the argument files.
+     * <p>
+     * By default, the files are analysed one by one. Implementations may analyse multiple files in a single request.
+     *
+     * @param psiFiles the files to query Rosie information for
+     * @param project  the current project
+     * @return the list of Rosie annotations for each argument file that could be analysed. Implementations that can tell
+     * when the analysis of a file failed leave that file out, so that callers can retry it later.
+     */
+    @NotNull
+    default Map<PsiFile, List<RosieAnnotation>> getAnnotations(@NotNull List<PsiFile> psiFiles, @NotNull Project project) {
+        var annotations = new LinkedHashMap<PsiFile, List<RosieAnnotation>>();
+        for (PsiFile psiFile : psiFiles) {
+            annotations.put(psiFile, getAnnotations(psiFile, project));
+        }
+        return annotations;
+    }
 }
@@ -1,53 +1,137 @@
 package io.codiga.plugins.jetbrains.rosie;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
 import com.intellij.psi.PsiFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import io.codiga.api.type.LanguageEnumeration;
 import io.codiga.plugins.jetbrains.annotators.RosieRulesCache;
 import io.codiga.plugins.jetbrains.utils.LanguageUtils;
 import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
+import io.codiga.plugins.jetbrains.model.rosie.RosieBatchRequest;
+import io.codiga.plugins.jetbrains.model.rosie.RosieBatchResponse;
+import io.codiga.plugins.jetbrains.model.rosie.RosieFileResponse;
 import io.codiga.plugins.jetbrains.model.rosie.RosieRequest;
 import io.codiga.plugins.jetbrains.model.rosie.RosieResponse;
 import io.codiga.plugins.jetbrains.model.rosie.RosieRule;
-import org.apache.commons.io.IOUtils;
+import io.codiga.plugins.jetbrains.model.rosie.RosieRuleResponse;
+import io.codiga.plugins.jetbrains.settings.application.AppSettingsState;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
 import static io.codiga.plugins.jetbrains.utils.RosieLanguageSupport.getRosieLanguage;
 import static io.codiga.plugins.jetbrains.utils.RosieLanguageSupport.isLanguageSupported;
 import static io.codiga.plugins.jetbrains.utils.UserAgentUtils.getUserAgent;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 /**
  * Default implementation of the Rosie API.
  */
 public class RosieApiImpl implements RosieApi {
     public static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
-    private static final String ROSIE_POST_URL = "https://analysis.codiga.io/analyze";
+    private static final String ROSIE_BASE_URL = "https://analysis.codiga.io";
+    private static final String ANALYZE_PATH = "/analyze";
+    private static final String ANALYZE_BATCH_PATH = "/analyze-batch";
     private static final Gson GSON = new Gson();
+    private static final int MAX_CACHED_ANALYSES = 200;
+    private static final long CANCELLATION_CHECK_INTERVAL_MILLIS = 100L;
+    /**
+     * Batches are limited both in file count and in code size, so that a single batch doesn't take too long to analyse.
+     */
+    private static final int MAX_FILES_PER_BATCH = 10;
+    private static final int MAX_BATCH_CODE_BASE64_LENGTH = 1_000_000;
+    private final RosieAnnotationCache annotationCache = new RosieAnnotationCache(MAX_CACHED_ANALYSES);
+    /**
+     * Request bodies are gzip-compressed until the Rosie service rejects a compressed request,
+     * after which they are sent uncompressed for the rest of the session.
+     * <p>
+     * Responses are decompressed transparently by {@link RosieHttpClient}, which advertises gzip support
+     * via the {@code Accept-Encoding} header.
+     */
+    private volatile boolean compressRequests = true;
+    /**
+     * A 400 response to a compressed request may mean that Rosie doesn't accept compressed requests, or that the request
+     * is invalid for other reasons. It is taken as the former only until Rosie accepts a compressed request,
+     * or rejects the uncompressed retry too, so that invalid requests are not sent twice for the rest of the session.
+     */
+    private volatile boolean isBadRequestPossiblyCompressionRejection = true;
+
+    /**
+     * Rule references are sent only when enabled in the settings, and until Rosie responds in a way that shows
+     * it doesn't support them.
+     */
+    private volatile boolean ruleReferencesSupported = true;
+    /**
+     * Batch requests are sent until Rosie rejects one, after which files are analysed one by one for the rest of the session.
+     */
+    private volatile boolean batchRequestsSupported = true;
+    private final String rosiePostUrl;
+    private final String rosieBatchPostUrl;
+    /**
+     * [file path] -> [the analysis currently running for that file]
+     */
+    private final Map<String, InFlightRosieRequest> inFlightRequests = new ConcurrentHashMap<>();
 
     public RosieApiImpl() {
-        // no constructor instructions
+        this(ROSIE_BASE_URL);
+    }
+
+    /**
+     * Creates an instance that sends requests to the argument base URL, e.g. to a local stand-in server in tests.
+     */
+    RosieApiImpl(String rosieBaseUrl) {
+        this.rosiePostUrl = rosieBaseUrl + ANALYZE_PATH;
+        this.rosieBatchPostUrl = rosieBaseUrl + ANALYZE_BATCH_PATH;
     }
 
     @Override
     @NotNull
     public List<RosieAnnotation> getAnnotations(@NotNull PsiFile psiFile, @NotNull Project project) {
+        var annotations = analyzeFile(psiFile, project);
+        return annotations != null ? annotations : List.of();
+    }
+
+    /**
+     * Analyses the argument file on its own.
+     *
+     * @return the annotations of the file, or null if the analysis failed
+     */
+    @Nullable
+    private List<RosieAnnotation> analyzeFile(@NotNull PsiFile psiFile, @NotNull Project project) {
         if (psiFile.getVirtualFile() == null) {
             return List.of();
         }
@@ -61,9 +145,6 @@ public class RosieApiImpl implements RosieApi {
         }
 
         try {
-            byte[] fileText = ReadAction.compute(() -> psiFile.getText().getBytes());
-            String codeBase64 = Base64.getEncoder().encodeToString(fileText);
-
             // Prepare the request
             var rosieRules = RosieRulesCache.getInstance(project).getRosieRules(fileLanguage, psiFile.getVirtualFile().getPath());
             //If there is no rule for the target language, then Rosie is not called, and no annotation is performed
@@ -71,49 +152,494 @@ public class RosieApiImpl implements RosieApi {
                 return List.of();
             }
 
+            //The file content and the incremental analysis plan are computed from the same snapshot of the file
+            var fileTextAndPlan = ReadAction.compute(() -> Pair.create(
+                psiFile.getText().getBytes(),
+                isIncrementalAnalysisEnabled() ? RosieIncrementalAnalysis.plan(psiFile, rosieRules) : null));
+            byte[] fileText = fileTextAndPlan.first;
+            RosieIncrementalAnalysis incrementalAnalysis = fileTextAndPlan.second;
+
+            //If neither the file content, nor the rules have changed since a previous analysis, no request is sent
+            String cacheKey = RosieAnnotationCache.keyOf(psiFile.getName(), getRosieLanguage(fileLanguage), fileText, rosieRules);
+            var cachedAnnotations = annotationCache.get(cacheKey);
+            if (cachedAnnotations != null) {
+                LOGGER.debug("Returning cached annotations for " + psiFile.getName());
+                return cachedAnnotations;
+            }
+
+            byte[] code = incrementalAnalysis != null && !incrementalAnalysis.isFull() ? incrementalAnalysis.getCode().getBytes() : fileText;
+            String codeBase64 = Base64.getEncoder().encodeToString(code);
             RosieRequest request = new RosieRequest(psiFile.getName(), getRosieLanguage(fileLanguage), "utf8", codeBase64, rosieRules, true);
-            String requestString = GSON.toJson(request);
-            StringEntity postingString = new StringEntity(requestString); //gson.toJson() converts your pojo to json
-            HttpPost httpPost = new HttpPost(ROSIE_POST_URL);
-            httpPost.addHeader("User-Agent", getUserAgent());
-            httpPost.addHeader("Content-Type", "application/json");
-            httpPost.setEntity(postingString);
-
-            CloseableHttpClient client = HttpClients.createDefault();
-            long requestTimestamp = System.currentTimeMillis();
-            HttpResponse response = client.execute(httpPost);
-            LOGGER.debug("Rules sent in request " + requestTimestamp + ": " + rosieRules.stream().map(RosieRule::toString).collect(toList()));
-            List<RosieAnnotation> annotations = List.of();
-            if (response.getEntity() != null) {
-                String result = IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8);
-                LOGGER.debug("Response received from request " + requestTimestamp + ": " + result);
-                RosieResponse rosieResponse = GSON.fromJson(result, RosieResponse.class);
-
-                //If there is no error returned, collect the violations
-                if (rosieResponse.errors == null || rosieResponse.errors.isEmpty()) {
-                    annotations = rosieResponse.ruleResponses.stream()
-                        .flatMap(res -> res.violations.stream()
-                            //'distinct()' makes sure that if multiple, completely identical, violations are returned
-                            // for the same problem from Rosie, only one instance is shown by RosieAnnotator.
-                            .distinct()
-                            .map(violation -> {
-                                var rule = RosieRulesCache.getInstance(project).getRuleWithNamesFor(fileLanguage, res.identifier);
-                                return new RosieAnnotation(rule.ruleName, rule.rulesetName, violation);
-                            }))
-                        .collect(toList());
-                }
+            RosieResponse rosieResponse = sendCancellably(psiFile.getVirtualFile().getPath(), request.filename,
+                inFlightRequest -> analyze(request, inFlightRequest));
+
+            //If there is no error returned, collect the violations
+            if (rosieResponse == null || rosieResponse.ruleResponses == null || !isEmpty(rosieResponse.errors)) {
+                return null;
             }
-            client.close();
+            List<RosieAnnotation> annotations = toAnnotations(rosieResponse.ruleResponses, rosieRules);
+            if (incrementalAnalysis != null) {
+                annotations = incrementalAnalysis.merge(annotations);
+                List<RosieAnnotation> analysisResult = annotations;
+                ReadAction.run(() -> incrementalAnalysis.save(analysisResult));
+            }
+            annotationCache.put(cacheKey, annotations);
             return annotations;
         } catch (UnknownHostException unknownHostException) {
             LOGGER.warn("[RosieApiImpl] Could not connect to analysis.codiga.io.", unknownHostException);
-            return List.of();
+            return null;
         } catch (IOException unsupportedEncodingException) {
             LOGGER.warn("[RosieApiImpl] ClientProtocolException", unsupportedEncodingException);
-            return List.of();
+            return null;
         } catch (JsonSyntaxException jsonSyntaxException) {
             LOGGER.warn("[RosieApiImpl] cannot decode JSON", jsonSyntaxException);
-            return List.of();
+            return null;
+        } catch (JsonIOException jsonIOException) {
+            LOGGER.warn("[RosieApiImpl] cannot read JSON response", jsonIOException);
+            return null;
         }
     }
+
+    /**
+     * Converts the argument rule responses to annotations, using the names of the rules sent in the request,
+     * so that it is not affected by updates of the {@link RosieRulesCache} while the request was in progress.
+     */
+    private static List<RosieAnnotation> toAnnotations(List<RosieRuleResponse> ruleResponses, List<RosieRule> rosieRules) {
+        Map<String, RosieRule> rulesById = rosieRules.stream().collect(toMap(rule -> rule.id, Function.identity()));
+        return ruleResponses.stream()
+            .filter(res -> rulesById.containsKey(res.identifier))
+            .flatMap(res -> res.violations.stream()
+                //'distinct()' makes sure that if multiple, completely identical, violations are returned
+                // for the same problem from Rosie, only one instance is shown by RosieAnnotator.
+                .distinct()
+                .map(violation -> {
+                    var rule = rulesById.get(res.identifier);
+                    return new RosieAnnotation(rule.ruleName, rule.rulesetName, violation);
+                }))
+            .collect(toList());
+    }
+
+    private static boolean isEmpty(@Nullable List<String> errors) {
+        return errors == null || errors.isEmpty();
+    }
+
+    /**
+     * A file prepared for being analysed as part of a batch.
+     */
+    private static final class BatchEntry {
+        final PsiFile psiFile;
+        final LanguageEnumeration language;
+        final List<RosieRule> rules;
+        final String codeBase64;
+        final String cacheKey;
+
+        BatchEntry(PsiFile psiFile, LanguageEnumeration language, List<RosieRule> rules, String codeBase64, String cacheKey) {
+            this.psiFile = psiFile;
+            this.language = language;
+            this.rules = rules;
+            this.codeBase64 = codeBase64;
+            this.cacheKey = cacheKey;
+        }
+    }
+
+    /**
+     * Analyses the argument files in batches: files of the same language, analysed with the same rules, are sent
+     * in the same request, along with a single copy of the rules.
+     * <p>
+     * Files whose content and rules haven't changed since a previous analysis are served from the annotation cache,
+     * and are not sent.
+     * <p>
+     * Files whose analysis failed, e.g. because their batch failed, have no entry in the returned map.
+     */
+    @Override
+    @NotNull
+    public Map<PsiFile, List<RosieAnnotation>> getAnnotations(@NotNull List<PsiFile> psiFiles, @NotNull Project project) {
+        var annotations = new HashMap<PsiFile, List<RosieAnnotation>>();
+        if (!batchRequestsSupported) {
+            psiFiles.forEach(psiFile -> analyzeFileInto(psiFile, project, annotations));
+            return annotations;
+        }
+
+        //[language and rules digest] -> [files to analyse with those rules]
+        var entriesByRules = new LinkedHashMap<String, List<BatchEntry>>();
+        for (PsiFile psiFile : psiFiles) {
+            if (psiFile.getVirtualFile() == null) {
+                annotations.put(psiFile, List.of());
+                continue;
+            }
+            LanguageEnumeration fileLanguage = LanguageUtils.getLanguageFromFilename(psiFile.getVirtualFile().getCanonicalPath());
+            if (!isLanguageSupported(fileLanguage)) {
+                annotations.put(psiFile, List.of());
+                continue;
+            }
+            var rosieRules = RosieRulesCache.getInstance(project).getRosieRules(fileLanguage, psiFile.getVirtualFile().getPath());
+            if (rosieRules.isEmpty()) {
+                annotations.put(psiFile, List.of());
+                continue;
+            }
+            byte[] fileText = ReadAction.compute(() -> psiFile.getText().getBytes());
+            String cacheKey = RosieAnnotationCache.keyOf(psiFile.getName(), getRosieLanguage(fileLanguage), fileText, rosieRules);
+            var cachedAnnotations = annotationCache.get(cacheKey);
+            if (cachedAnnotations != null) {
+                annotations.put(psiFile, cachedAnnotations);
+                continue;
+            }
+            entriesByRules.computeIfAbsent(fileLanguage + ":" + RosieRule.digestOf(rosieRules), key -> new ArrayList<>())
+                .add(new BatchEntry(psiFile, fileLanguage, rosieRules, Base64.getEncoder().encodeToString(fileText), cacheKey));
+        }
+
+        for (List<BatchEntry> entries : entriesByRules.values()) {
+            var batch = new ArrayList<BatchEntry>();
+            int batchCodeLength = 0;
+            for (BatchEntry entry : entries) {
+                if (!batch.isEmpty() && (batch.size() == MAX_FILES_PER_BATCH || batchCodeLength + entry.codeBase64.length() > MAX_BATCH_CODE_BASE64_LENGTH)) {
+                    analyzeBatch(batch, project, annotations);
+                    batch = new ArrayList<>();
+                    batchCodeLength = 0;
+                }
+                batch.add(entry);
+                batchCodeLength += entry.codeBase64.length();
+            }
+            analyzeBatch(batch, project, annotations);
+        }
+        return annotations;
+    }
+
+    /**
+     * Sends the argument files, which have the same language and rules, to Rosie in a single request,
+     * and puts the annotations returned for each successfully analysed file into the argument map.
+     * <p>
+     * If Rosie rejects the batch request, e.g. because it doesn't know the batch endpoint, the files are analysed one by one,
+     * and batch requests are turned off for the rest of the session. Other failures, like connection and server errors,
+     * fail only the files of this batch.
+     */
+    private void analyzeBatch(List<BatchEntry> batch, Project project, Map<PsiFile, List<RosieAnnotation>> annotations) {
+        var language = batch.get(0).language;
+        var files = new ArrayList<RosieBatchRequest.File>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            files.add(new RosieBatchRequest.File(String.valueOf(i), batch.get(i).psiFile.getName(), batch.get(i).codeBase64));
+        }
+        var request = new RosieBatchRequest(getRosieLanguage(language), "utf8", files, batch.get(0).rules, true);
+
+        PostResult<RosieBatchResponse> result;
+        try {
+            //Batches are not superseded by other requests, only cancelled along with the progress indicator
+            result = sendCancellably(null, batch.size() + " files",
+                inFlightRequest -> post(rosieBatchPostUrl, request, RosieBatchResponse.class, inFlightRequest));
+        } catch (IOException | JsonSyntaxException | JsonIOException e) {
+            LOGGER.warn("[RosieApiImpl] Could not analyze a batch of " + batch.size() + " files.", e);
+            return;
+        }
+        if (result == null) {
+            return;
+        }
+
+        if (isBatchRequestRejected(result.getStatusCode())) {
+            LOGGER.info("[RosieApiImpl] Rosie doesn't support batch requests, analyzing files one by one from now on.");
+            batchRequestsSupported = false;
+            batch.forEach(entry -> analyzeFileInto(entry.psiFile, project, annotations));
+            return;
+        }
+        RosieBatchResponse response = result.getBody();
+        if (response == null || response.fileResponses == null) {
+            LOGGER.warn("[RosieApiImpl] Could not analyze a batch of " + batch.size() + " files, status code: " + result.getStatusCode());
+            return;
+        }
+        for (RosieFileResponse fileResponse : response.fileResponses) {
+            BatchEntry entry = getEntry(batch, fileResponse.id);
+            if (entry != null && fileResponse.ruleResponses != null && isEmpty(fileResponse.errors)) {
+                var fileAnnotations = toAnnotations(fileResponse.ruleResponses, batch.get(0).rules);
+                annotationCache.put(entry.cacheKey, fileAnnotations);
+                annotations.put(entry.psiFile, fileAnnotations);
+            }
+        }
+    }
+
+    /**
+     * Analyses the argument file on its own, and puts its annotations into the argument map, if the analysis succeeded.
+     */
+    private void analyzeFileInto(PsiFile psiFile, Project project, Map<PsiFile, List<RosieAnnotation>> annotations) {
+        var fileAnnotations = analyzeFile(psiFile, project);
+        if (fileAnnotations != null) {
+            annotations.put(psiFile, fileAnnotations);
+        }
+    }
+
+    @Nullable
+    private static BatchEntry getEntry(List<BatchEntry> batch, String id) {
+        try {
+            int index = Integer.parseInt(id);
+            return index >= 0 && index < batch.size() ? batch.get(index) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sends one or more HTTP requests to Rosie.
+     */
+    @FunctionalInterface
+    private interface RosieCall<T> {
+        @Nullable
+        T send(InFlightRosieRequest inFlightRequest) throws IOException;
+    }
+
+    /**
+     * Sends requests to Rosie via the argument call, in a way that the HTTP requests are aborted when
+     * <ul>
+     *     <li>the progress indicator of the current thread (e.g. the one of the highlighting pass) is cancelled,
+     *     in which case a {@link ProcessCanceledException} is thrown,</li>
+     *     <li>or a newer analysis of the same file is started, in which case null is returned.</li>
+     * </ul>
+     *
+     * @param fileKey     identifies the analysed file, or null if the call is not to be superseded by newer ones
+     * @param description describes what is analysed, for logging
+     * @return the response, or null if no valid response was received, or the analysis was superseded
+     */
+    @Nullable
+    private <T> T sendCancellably(@Nullable String fileKey, String description, RosieCall<T> call) throws IOException {
+        var circuitBreakerAttempt = RosieCircuitBreaker.getInstance().tryAcquire();
+        if (circuitBreakerAttempt == null) {
+            LOGGER.debug("[RosieApiImpl] Rosie is unavailable, skipping the analysis of " + description);
+            return null;
+        }
+
+        var inFlightRequest = new InFlightRosieRequest(circuitBreakerAttempt);
+        if (fileKey != null) {
+            var supersededRequest = inFlightRequests.put(fileKey, inFlightRequest);
+            if (supersededRequest != null) {
+                supersededRequest.abort();
+            }
+        }
+        ScheduledFuture<?> cancellationWatcher = watchCancellation(inFlightRequest);
+        try {
+            return call.send(inFlightRequest);
+        } catch (IOException | JsonIOException e) {
+            //An abort may also interrupt the reading of the response, while it is being parsed
+            if (!inFlightRequest.isAborted()) {
+                //Connection errors and timeouts
+                circuitBreakerAttempt.recordFailure();
+                throw e;
+            }
+            ProgressManager.checkCanceled();
+            LOGGER.debug("[RosieApiImpl] Rosie request aborted for " + description);
+            return null;
+        } finally {
+            if (cancellationWatcher != null) {
+                cancellationWatcher.cancel(false);
+            }
+            if (fileKey != null) {
+                inFlightRequests.remove(fileKey, inFlightRequest);
+            }
+            //If no outcome was recorded, e.g. the request was aborted, or failed with an unexpected exception,
+            // a trial request must not leave the circuit half-open
+            circuitBreakerAttempt.close();
+        }
+    }
+
+    /**
+     * Since the HTTP client blocks without checking for cancellation, the progress indicator of the current thread,
+     * if there is one, is polled on a shared scheduler, and the argument request is aborted as soon as it is cancelled.
+     *
+     * @return the watcher task, or null if the current thread has no progress indicator
+     */
+    @Nullable
+    private static ScheduledFuture<?> watchCancellation(InFlightRosieRequest inFlightRequest) {
+        ProgressIndicator indicator = ProgressManager.getGlobalProgressIndicator();
+        if (indicator == null) {
+            return null;
+        }
+        return AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+            if (indicator.isCanceled()) {
+                inFlightRequest.abort();
+            }
+        }, CANCELLATION_CHECK_INTERVAL_MILLIS, CANCELLATION_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the argument request to Rosie and returns its response.
+     * <p>
+     * When rule references are enabled, the rules are referenced by their digest, ids and hashes first. If Rosie reports
+     * that it doesn't have them cached, the request is resent with the full rules and their digest, so that Rosie caches them
+     * for subsequent requests. If Rosie rejects or ignores the rule references, they are turned off for the rest
+     * of the session. Server errors don't turn them off, they fail only the current analysis.
+     *
+     * @return the response, or null if no valid response was received
+     */
+    @Nullable
+    private RosieResponse analyze(RosieRequest request, InFlightRosieRequest inFlightRequest) throws IOException {
+        if (!isRuleReferencesEnabled()) {
+            LOGGER.debug("Rules sent for " + request.filename + ": " + request.rules.stream().map(RosieRule::toString).collect(toList()));
+            return post(rosiePostUrl, request, RosieResponse.class, inFlightRequest).getBody();
+        }
+
+        LOGGER.debug("Rule references sent for " + request.filename + ": " + request.ruleReferences);
+        var result = post(rosiePostUrl, request.withRuleReferences(), RosieResponse.class, inFlightRequest);
+        RosieResponse response = result.getBody();
+        if (response != null && !response.rulesCacheMiss && response.ruleResponses != null) {
+            return response;
+        }
+        boolean referencesIgnored = response != null && !response.rulesCacheMiss;
+        if (isRuleReferencesRejected(result.getStatusCode()) || referencesIgnored) {
+            LOGGER.info("[RosieApiImpl] Rosie doesn't support rule references, sending full rules from now on.");
+            ruleReferencesSupported = false;
+        } else if (response == null) {
+            //A server error, or a superseded request
+            return null;
+        }
+        return post(rosiePostUrl, request.withRulesDigest(), RosieResponse.class, inFlightRequest).getBody();
+    }
+
+    private static boolean isIncrementalAnalysisEnabled() {
+        return AppSettingsState.getInstance().getUseRosieIncrementalAnalysis();
+    }
+
+    private boolean isRuleReferencesEnabled() {
+        return ruleReferencesSupported && AppSettingsState.getInstance().getUseRosieRuleReferences();
+    }
+
+    /**
+     * Sends the argument request object to the argument Rosie URL.
+     *
+     * @return the status code of the response, and its body if Rosie returned a successful status code and a response body
+     */
+    private <T> PostResult<T> post(String url, Object request, Class<T> responseType, InFlightRosieRequest inFlightRequest) throws IOException {
+        long requestTimestamp = System.currentTimeMillis();
+        //The client is shared and pooled, so only the response is closed, which returns the connection to the pool
+        try (CloseableHttpResponse response = sendRequest(url, new RosieRequestEntity(request, GSON), inFlightRequest)) {
+            recordOutcome(response, inFlightRequest);
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (!isSuccessful(response) || response.getEntity() == null) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                return new PostResult<>(statusCode, null);
+            }
+            //The response is parsed as it is read from the connection, without buffering it as a String first
+            try (var reader = new JsonReader(new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8))) {
+                T rosieResponse = GSON.fromJson(reader, responseType);
+                LOGGER.debug("Response received from request " + requestTimestamp + ": " + rosieResponse);
+                return new PostResult<>(statusCode, rosieResponse);
+            }
+        }
+    }
+
+    /**
+     * The status code and the parsed body of a response from Rosie.
+     */
+    private static final class PostResult<T> {
+        private final int statusCode;
+        @Nullable
+        private final T body;
+
+        PostResult(int statusCode, @Nullable T body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+
+        @Nullable
+        T getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Sends the argument request to Rosie, gzip-compressed if the service hasn't rejected compressed requests before.
+     * <p>
+     * If a compressed request is rejected with a 415, or with a 400 before any compressed request has been accepted,
+     * it is resent uncompressed, and if that one is accepted, compression is turned off for subsequent requests.
+     */
+    private CloseableHttpResponse sendRequest(String url, RosieRequestEntity requestEntity, InFlightRosieRequest inFlightRequest) throws IOException {
+        var client = RosieHttpClient.getInstance().getClient();
+        if (compressRequests) {
+            var response = inFlightRequest.execute(client, createPost(url, new GzipCompressingEntity(requestEntity)));
+            if (!isCompressionRejected(response)) {
+                if (isSuccessful(response)) {
+                    isBadRequestPossiblyCompressionRejection = false;
+                }
+                return response;
+            }
+            EntityUtils.consumeQuietly(response.getEntity());
+            response.close();
+
+            var uncompressedResponse = inFlightRequest.execute(client, createPost(url, requestEntity));
+            if (isSuccessful(uncompressedResponse)) {
+                LOGGER.info("[RosieApiImpl] Rosie rejected a gzip-compressed request, sending uncompressed requests from now on.");
+                compressRequests = false;
+            } else if (uncompressedResponse.getStatusLine().getStatusCode() == HttpStatus.SC_BAD_REQUEST) {
+                isBadRequestPossiblyCompressionRejection = false;
+            }
+            return uncompressedResponse;
+        }
+        return inFlightRequest.execute(client, createPost(url, requestEntity));
+    }
+
+    /**
+     * Server errors count as failures for the circuit breaker. Other responses, even unsuccessful ones
+     * (e.g. a rejected compressed request), show that Rosie is available.
+     */
+    private static void recordOutcome(HttpResponse response, InFlightRosieRequest inFlightRequest) {
+        var circuitBreakerAttempt = inFlightRequest.getCircuitBreakerAttempt();
+        if (circuitBreakerAttempt == null) {
+            return;
+        }
+        if (response.getStatusLine().getStatusCode() >= HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+            circuitBreakerAttempt.recordFailure();
+        } else {
+            circuitBreakerAttempt.recordSuccess();
+        }
+    }
+
+    private static HttpPost createPost(String url, HttpEntity entity) {
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setConfig(createRequestConfig());
+        httpPost.addHeader("User-Agent", getUserAgent());
+        httpPost.addHeader("Content-Type", "application/json");
+        httpPost.setEntity(entity);
+        return httpPost;
+    }
+
+    /**
+     * Timeouts are read from the settings for each request, so that changing them takes effect right away.
+     */
+    private static RequestConfig createRequestConfig() {
+        var settings = AppSettingsState.getInstance();
+        int connectTimeoutMillis = (int) TimeUnit.SECONDS.toMillis(settings.getRosieConnectTimeoutSeconds());
+        return RequestConfig.custom()
+            .setConnectTimeout(connectTimeoutMillis)
+            //Waiting for a connection from the pool
+            .setConnectionRequestTimeout(connectTimeoutMillis)
+            .setSocketTimeout((int) TimeUnit.SECONDS.toMillis(settings.getRosieReadTimeoutSeconds()))
+            .build();
+    }
+
+    private boolean isCompressionRejected(HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE
+            || statusCode == HttpStatus.SC_BAD_REQUEST && isBadRequestPossiblyCompressionRejection;
+    }
+
+    /**
+     * Rosie rejects requests it cannot parse, e.g. requests without full rules, when it doesn't know about rule references.
+     */
+    private static boolean isRuleReferencesRejected(int statusCode) {
+        return statusCode == HttpStatus.SC_BAD_REQUEST || statusCode == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE;
+    }
+
+    /**
+     * Rosie rejects batch requests with these status codes when it doesn't know the batch endpoint, or cannot parse batch requests.
+     */
+    private static boolean isBatchRequestRejected(int statusCode) {
+        return statusCode == HttpStatus.SC_BAD_REQUEST
+            || statusCode == HttpStatus.SC_NOT_FOUND
+            || statusCode == HttpStatus.SC_METHOD_NOT_ALLOWED
+            || statusCode == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE;
+    }
+
+    private static boolean isSuccessful(HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode >= 200 && statusCode < 300;
+    }
 }
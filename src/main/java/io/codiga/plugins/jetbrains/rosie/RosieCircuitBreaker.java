@@ -0,0 +1,181 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
+import static io.codiga.plugins.jetbrains.topics.RosieCircuitBreakerNotifier.ROSIE_CIRCUIT_BREAKER_CHANGE_TOPIC;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker around the Rosie service.
+ * <p>
+ * After {@link #DEFAULT_FAILURE_THRESHOLD} consecutive failed requests (connection errors, timeouts and server errors),
+ * the circuit is opened, and no request is sent to Rosie for a cool-down period. After that a single trial request
+ * is let through: if it succeeds, the circuit is closed again, otherwise it is re-opened for another cool-down period.
+ * <p>
+ * This way, when the Rosie service is down or unresponsive, annotator threads don't pile up waiting for requests
+ * that are bound to time out.
+ * <p>
+ * State changes are published via {@link io.codiga.plugins.jetbrains.topics.RosieCircuitBreakerNotifier},
+ * so that they can be shown in the status bar.
+ */
+@Service(Service.Level.APP)
+public final class RosieCircuitBreaker {
+    private static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
+    private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    private static final long DEFAULT_COOL_DOWN_MILLIS = 30_000L;
+
+    public enum State {
+        /**
+         * Requests are sent.
+         */
+        CLOSED,
+        /**
+         * No request is sent until the cool-down period is over.
+         */
+        OPEN,
+        /**
+         * The cool-down period is over, and a trial request is in progress. Other requests are not sent until it completes.
+         */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long coolDownMillis;
+    private final LongSupplier clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public RosieCircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_COOL_DOWN_MILLIS, System::currentTimeMillis);
+    }
+
+    RosieCircuitBreaker(int failureThreshold, long coolDownMillis, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.coolDownMillis = coolDownMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns whether a request may be sent to Rosie. If the cool-down period is over, the caller is let through
+     * as the trial request, so it must report the outcome via {@link #recordSuccess()} or {@link #recordFailure()}.
+     */
+    public boolean allowRequest() {
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.HALF_OPEN || clock.getAsLong() - openedAt < coolDownMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+        }
+        LOGGER.info("[RosieCircuitBreaker] Cool-down period is over, sending a trial request to Rosie.");
+        notifyStateChange();
+        return true;
+    }
+
+    public void recordSuccess() {
+        boolean wasClosed;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            wasClosed = state == State.CLOSED;
+            state = State.CLOSED;
+        }
+        if (!wasClosed) {
+            LOGGER.info("[RosieCircuitBreaker] Rosie is available again, resuming code analysis.");
+            notifyStateChange();
+        }
+    }
+
+    public void recordFailure() {
+        synchronized (this) {
+            consecutiveFailures++;
+            if (state != State.HALF_OPEN && (state == State.OPEN || consecutiveFailures < failureThreshold)) {
+                return;
+            }
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+        LOGGER.warn("[RosieCircuitBreaker] Rosie is unavailable, pausing code analysis for " + coolDownMillis / 1000 + " seconds.");
+        notifyStateChange();
+    }
+
+    /**
+     * To be called when the trial request let through by {@link #allowRequest()} completes without an outcome
+     * (e.g. it was cancelled), so that another trial request can be sent right away.
+     */
+    public synchronized void releaseTrial() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    /**
+     * Returns an attempt to send a request to Rosie, if {@link #allowRequest()} lets it through, otherwise null.
+     * <p>
+     * The outcome of the request is to be recorded via the returned attempt, which is to be closed when the request completes.
+     */
+    @Nullable
+    public Attempt tryAcquire() {
+        return allowRequest() ? new Attempt() : null;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns whether requests are currently held back, i.e. the circuit is not closed.
+     */
+    public boolean isOpen() {
+        return getState() != State.CLOSED;
+    }
+
+    private void notifyStateChange() {
+        var application = ApplicationManager.getApplication();
+        if (application != null && !application.isDisposed()) {
+            application.getMessageBus().syncPublisher(ROSIE_CIRCUIT_BREAKER_CHANGE_TOPIC).afterAction(this);
+        }
+    }
+
+    /**
+     * A request let through by the circuit breaker.
+     * <p>
+     * If it completes without an outcome, e.g. because it was aborted, or failed with an unexpected exception,
+     * closing it releases the trial, if it was the trial request, so that the circuit doesn't stay half-open,
+     * refusing all further requests.
+     */
+    public final class Attempt implements AutoCloseable {
+        private volatile boolean isOutcomeRecorded;
+
+        private Attempt() {
+        }
+
+        public void recordSuccess() {
+            isOutcomeRecorded = true;
+            RosieCircuitBreaker.this.recordSuccess();
+        }
+
+        public void recordFailure() {
+            isOutcomeRecorded = true;
+            RosieCircuitBreaker.this.recordFailure();
+        }
+
+        @Override
+        public void close() {
+            if (!isOutcomeRecorded) {
+                releaseTrial();
+            }
+        }
+    }
+
+    public static RosieCircuitBreaker getInstance() {
+        return ApplicationManager.getApplication().getService(RosieCircuitBreaker.class);
+    }
+}
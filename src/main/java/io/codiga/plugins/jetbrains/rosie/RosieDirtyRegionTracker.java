@@ -0,0 +1,29 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Records the regions changed in documents that have a {@link RosieIncrementalState}, i.e. documents that have
+ * been analysed in incremental mode, so that the next analysis can re-analyse only the changed parts.
+ * <p>
+ * Other documents are ignored, so this listener costs a single user data lookup per change.
+ */
+public class RosieDirtyRegionTracker implements DocumentListener {
+
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+        var document = event.getDocument();
+        var state = document.getUserData(RosieIncrementalState.KEY);
+        if (state == null) {
+            return;
+        }
+        //Bulk updates may change the whole document, so the next analysis is a full one
+        if (document.isInBulkUpdate()) {
+            RosieIncrementalState.discard(document);
+            return;
+        }
+        state.markDirty(document, event.getOffset(), event.getOffset() + event.getNewLength());
+    }
+}
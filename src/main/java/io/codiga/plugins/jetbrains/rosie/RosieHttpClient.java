@@ -0,0 +1,99 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the HTTP client that is shared by all requests sent to the Rosie service.
+ * <p>
+ * Connections to the Rosie service are pooled and kept alive between requests, so that consecutive analyses
+ * (e.g. the ones triggered while typing) don't have to go through a new TCP and TLS handshake each time.
+ * <p>
+ * Content compression is left enabled (the default of the client builder), so requests advertise
+ * {@code Accept-Encoding: gzip, deflate}, and compressed responses are decompressed transparently.
+ * <p>
+ * It is used as a {@link Disposable} application service, so that the connection pool is shut down
+ * when the application is closed or when the plugin is unloaded.
+ */
+@Service(Service.Level.APP)
+public final class RosieHttpClient implements Disposable {
+    private static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
+
+    /**
+     * All Rosie requests go to the same host, so the total limit is only slightly higher than the per-route one.
+     */
+    private static final int MAX_CONNECTIONS_TOTAL = 10;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+    /**
+     * Used when the server doesn't send a {@code Keep-Alive} header telling how long a connection may be reused.
+     */
+    private static final long DEFAULT_KEEP_ALIVE_MILLISECONDS = 60_000L;
+    /**
+     * Connections not used for this long are closed by the background evictor of the client.
+     */
+    private static final long MAX_IDLE_TIME_SECONDS = 30L;
+    /**
+     * Pooled connections that have been inactive for this long are validated before being leased again,
+     * so that a connection closed by the server is not handed out for a new request.
+     */
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLISECONDS = 2_000;
+
+    private final CloseableHttpClient client;
+
+    public RosieHttpClient() {
+        var connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLISECONDS);
+
+        this.client = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setKeepAliveStrategy(keepAliveStrategy())
+            .evictExpiredConnections()
+            .evictIdleConnections(MAX_IDLE_TIME_SECONDS, TimeUnit.SECONDS)
+            .build();
+    }
+
+    /**
+     * Honours the {@code Keep-Alive} header of the server when present, otherwise keeps connections
+     * alive for {@link #DEFAULT_KEEP_ALIVE_MILLISECONDS}, instead of indefinitely.
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : DEFAULT_KEEP_ALIVE_MILLISECONDS;
+        };
+    }
+
+    /**
+     * Returns the shared client. Callers must not close it, only the responses they receive from it.
+     */
+    public CloseableHttpClient getClient() {
+        return client;
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            LOGGER.warn("[RosieHttpClient] Could not close the Rosie HTTP client.", e);
+        }
+    }
+
+    public static RosieHttpClient getInstance() {
+        return ApplicationManager.getApplication().getService(RosieHttpClient.class);
+    }
+}
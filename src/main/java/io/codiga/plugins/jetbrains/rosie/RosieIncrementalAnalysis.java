@@ -0,0 +1,191 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
+import io.codiga.plugins.jetbrains.model.rosie.RosieRule;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Plans the Rosie analysis of a large file based on what changed since its previous analysis, and merges its result
+ * with the annotations of the previous analysis.
+ * <p>
+ * The top-level PSI elements of the file (e.g. functions and classes) that intersect lines changed since the previous
+ * analysis are re-analysed. Small unchanged top-level elements (e.g. imports and constants) are sent as context,
+ * while the lines of large unchanged elements are sent as empty lines. This way the line numbers returned by Rosie
+ * don't have to be remapped, and the size of the request scales with the size of the edit.
+ * <p>
+ * Annotations returned for the re-analysed lines replace the previous ones there, while annotations of other lines
+ * are carried over from the previous analysis, moved to their current lines.
+ * <p>
+ * A full analysis is planned when there is no previous analysis (or it used different rules), or when too large
+ * a part of the file changed.
+ */
+final class RosieIncrementalAnalysis {
+    /**
+     * Smaller files are always analysed in full, since sending them whole is cheap anyway.
+     */
+    static final int MIN_LINE_COUNT = 1_000;
+    /**
+     * Above this ratio of re-analysed lines, a full analysis is planned instead.
+     */
+    private static final double MAX_REANALYZED_LINE_RATIO = 0.5;
+    /**
+     * Unchanged top-level elements up to this length are sent as context for the re-analysed ones.
+     */
+    private static final int MAX_CONTEXT_ELEMENT_LENGTH = 200;
+
+    private final Document document;
+    private final long modificationStamp;
+    private final String rulesDigest;
+    private final String code;
+    /**
+     * The 0-based lines re-analysed, or null for a full analysis.
+     */
+    @Nullable
+    private final BitSet reanalyzedLines;
+    private final List<RosieAnnotation> carriedOverAnnotations;
+
+    private RosieIncrementalAnalysis(Document document, String rulesDigest, String code,
+                                     @Nullable BitSet reanalyzedLines, List<RosieAnnotation> carriedOverAnnotations) {
+        this.document = document;
+        this.modificationStamp = document.getModificationStamp();
+        this.rulesDigest = rulesDigest;
+        this.code = code;
+        this.reanalyzedLines = reanalyzedLines;
+        this.carriedOverAnnotations = carriedOverAnnotations;
+    }
+
+    /**
+     * Plans the analysis of the argument file. Must be called in a read action.
+     *
+     * @return the plan, or null if the file is not eligible for incremental analysis, e.g. because it is too small
+     */
+    @Nullable
+    static RosieIncrementalAnalysis plan(@NotNull PsiFile psiFile, @NotNull List<RosieRule> rules) {
+        var documentManager = PsiDocumentManager.getInstance(psiFile.getProject());
+        Document document = documentManager.getDocument(psiFile);
+        if (document == null || !documentManager.isCommitted(document) || document.getLineCount() < MIN_LINE_COUNT) {
+            return null;
+        }
+
+        String rulesDigest = RosieRule.digestOf(rules);
+        var state = document.getUserData(RosieIncrementalState.KEY);
+        if (state == null || !rulesDigest.equals(state.getRulesDigest())) {
+            return full(document, rulesDigest);
+        }
+        var dirtyLines = state.getDirtyLines(document);
+        if (dirtyLines == null || dirtyLines.isEmpty()) {
+            return full(document, rulesDigest);
+        }
+
+        var reanalyzedLines = new BitSet();
+        var contextLines = new BitSet();
+        for (PsiElement element = psiFile.getFirstChild(); element != null; element = element.getNextSibling()) {
+            var range = element.getTextRange();
+            int startLine = document.getLineNumber(range.getStartOffset());
+            int endLine = document.getLineNumber(Math.max(range.getStartOffset(), range.getEndOffset() - 1));
+            if (dirtyLines.get(startLine, endLine + 1).isEmpty()) {
+                if (element.getTextLength() <= MAX_CONTEXT_ELEMENT_LENGTH) {
+                    contextLines.set(startLine, endLine + 1);
+                }
+            } else {
+                reanalyzedLines.set(startLine, endLine + 1);
+            }
+        }
+        //In case there are changed lines not covered by any top-level element
+        reanalyzedLines.or(dirtyLines);
+        if (reanalyzedLines.cardinality() > document.getLineCount() * MAX_REANALYZED_LINE_RATIO) {
+            return full(document, rulesDigest);
+        }
+
+        contextLines.or(reanalyzedLines);
+        return new RosieIncrementalAnalysis(document, rulesDigest, sparseCode(document, contextLines), reanalyzedLines,
+            carryOver(document, state, reanalyzedLines));
+    }
+
+    private static RosieIncrementalAnalysis full(Document document, String rulesDigest) {
+        return new RosieIncrementalAnalysis(document, rulesDigest, document.getText(), null, List.of());
+    }
+
+    /**
+     * Returns the text of the document in which only the argument lines are kept, and other lines are empty.
+     */
+    private static String sparseCode(Document document, BitSet keptLines) {
+        var text = document.getImmutableCharSequence();
+        var code = new StringBuilder();
+        for (int line = 0; line < document.getLineCount(); line++) {
+            if (keptLines.get(line)) {
+                code.append(text, document.getLineStartOffset(line), document.getLineEndOffset(line));
+            }
+            if (line < document.getLineCount() - 1) {
+                code.append('\n');
+            }
+        }
+        return code.toString();
+    }
+
+    /**
+     * Returns the annotations of the previous analysis that are not in the re-analysed lines, moved to their current lines.
+     */
+    private static List<RosieAnnotation> carryOver(Document document, RosieIncrementalState state, BitSet reanalyzedLines) {
+        var carriedOver = new ArrayList<RosieAnnotation>();
+        for (var tracked : state.getAnnotations()) {
+            if (!tracked.startMarker.isValid()) {
+                continue;
+            }
+            int currentLine = document.getLineNumber(tracked.startMarker.getStartOffset());
+            if (!reanalyzedLines.get(currentLine)) {
+                int lineShift = currentLine + 1 - tracked.annotation.getStart().line;
+                carriedOver.add(lineShift == 0 ? tracked.annotation : tracked.annotation.shiftLines(lineShift));
+            }
+        }
+        return carriedOver;
+    }
+
+    boolean isFull() {
+        return reanalyzedLines == null;
+    }
+
+    /**
+     * Returns the code to send to Rosie.
+     */
+    String getCode() {
+        return code;
+    }
+
+    /**
+     * Merges the annotations returned by Rosie for this analysis with the ones carried over from the previous analysis.
+     */
+    List<RosieAnnotation> merge(List<RosieAnnotation> annotations) {
+        if (reanalyzedLines == null) {
+            return annotations;
+        }
+        var merged = new ArrayList<>(carriedOverAnnotations);
+        for (RosieAnnotation annotation : annotations) {
+            //Annotations in the context lines are discarded, since their surrounding code was not sent
+            int line = annotation.getStart().line - 1;
+            if (line >= 0 && reanalyzedLines.get(line)) {
+                merged.add(annotation);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Saves the argument annotations as the result of the latest analysis of the document, unless the document
+     * has changed since this analysis was planned. Must be called in a read action.
+     */
+    void save(List<RosieAnnotation> annotations) {
+        if (document.getModificationStamp() == modificationStamp) {
+            RosieIncrementalState.save(document, rulesDigest, annotations);
+        }
+    }
+}
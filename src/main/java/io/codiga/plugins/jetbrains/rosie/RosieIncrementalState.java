@@ -0,0 +1,117 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.util.Key;
+import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The result of the last Rosie analysis of a document, and the regions of the document changed since then.
+ * <p>
+ * It is stored in the user data of the document, so it lives as long as the document does. The annotations
+ * are tracked by range markers at their start positions, so that after edits in other parts of the document
+ * they can be carried over to their new lines, without being analysed again.
+ *
+ * @see RosieIncrementalAnalysis
+ * @see RosieDirtyRegionTracker
+ */
+final class RosieIncrementalState {
+    static final Key<RosieIncrementalState> KEY = Key.create("codiga.rosie.incremental.state");
+
+    /**
+     * An annotation returned by Rosie, along with a range marker at its start position in the document.
+     */
+    static final class TrackedAnnotation {
+        final RosieAnnotation annotation;
+        final RangeMarker startMarker;
+
+        TrackedAnnotation(RosieAnnotation annotation, RangeMarker startMarker) {
+            this.annotation = annotation;
+            this.startMarker = startMarker;
+        }
+    }
+
+    private final String rulesDigest;
+    private final List<TrackedAnnotation> annotations;
+    private final List<RangeMarker> dirtyRegions = new ArrayList<>();
+
+    private RosieIncrementalState(String rulesDigest, List<TrackedAnnotation> annotations) {
+        this.rulesDigest = rulesDigest;
+        this.annotations = annotations;
+    }
+
+    String getRulesDigest() {
+        return rulesDigest;
+    }
+
+    List<TrackedAnnotation> getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * Records that the argument range of the document has changed. Greedy markers are used,
+     * so that subsequent edits right next to the range are also covered by it.
+     */
+    synchronized void markDirty(@NotNull Document document, int startOffset, int endOffset) {
+        var marker = document.createRangeMarker(startOffset, endOffset);
+        marker.setGreedyToLeft(true);
+        marker.setGreedyToRight(true);
+        dirtyRegions.add(marker);
+    }
+
+    /**
+     * Returns the lines (0-based) of the document changed since the last analysis,
+     * or null if they can no longer be determined, e.g. because a marker has been invalidated.
+     */
+    @Nullable
+    synchronized BitSet getDirtyLines(@NotNull Document document) {
+        var dirtyLines = new BitSet();
+        for (RangeMarker marker : dirtyRegions) {
+            if (!marker.isValid()) {
+                return null;
+            }
+            dirtyLines.set(document.getLineNumber(marker.getStartOffset()), document.getLineNumber(marker.getEndOffset()) + 1);
+        }
+        return dirtyLines;
+    }
+
+    /**
+     * Replaces the state of the argument document with the argument annotations, and no dirty region.
+     * <p>
+     * Must be called in a read action, with the annotations being valid for the current content of the document.
+     */
+    static void save(@NotNull Document document, String rulesDigest, List<RosieAnnotation> annotations) {
+        var trackedAnnotations = new ArrayList<TrackedAnnotation>(annotations.size());
+        for (RosieAnnotation annotation : annotations) {
+            int line = annotation.getStart().line - 1;
+            if (line < 0 || line >= document.getLineCount()) {
+                continue;
+            }
+            int offset = Math.min(document.getLineStartOffset(line) + Math.max(annotation.getStart().col - 1, 0), document.getLineEndOffset(line));
+            trackedAnnotations.add(new TrackedAnnotation(annotation, document.createRangeMarker(offset, offset)));
+        }
+        discard(document);
+        document.putUserData(KEY, new RosieIncrementalState(rulesDigest, trackedAnnotations));
+    }
+
+    /**
+     * Removes the state of the argument document, and disposes its range markers.
+     */
+    static void discard(@NotNull Document document) {
+        var state = document.getUserData(KEY);
+        if (state != null) {
+            document.putUserData(KEY, null);
+            state.annotations.forEach(tracked -> tracked.startMarker.dispose());
+            synchronized (state) {
+                state.dirtyRegions.forEach(RangeMarker::dispose);
+                state.dirtyRegions.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+import io.codiga.plugins.jetbrains.model.rosie.RosieRequest;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP entity that serializes a Rosie request object (e.g. a {@link RosieRequest}) as JSON directly into the request's output stream.
+ * <p>
+ * Unlike a {@code StringEntity}, it doesn't materialize the whole JSON document as a {@code String} and then as bytes
+ * before sending it, which matters for large files, whose base64-encoded content dominates the size of the request.
+ * <p>
+ * The entity is repeatable, since the request is serialized again each time it is written,
+ * so it can be resent, e.g. uncompressed after a compressed request is rejected.
+ * Its content length is unknown in advance, so it is sent with chunked transfer encoding.
+ */
+public final class RosieRequestEntity extends AbstractHttpEntity {
+    private final Object request;
+    private final Gson gson;
+
+    public RosieRequestEntity(Object request, Gson gson) {
+        this.request = request;
+        this.gson = gson;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Returns the serialized request as a stream. Only used by clients that don't call {@link #writeTo(OutputStream)},
+     * in which case the content is buffered in memory.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        var buffer = new ByteArrayOutputStream();
+        writeTo(buffer);
+        return new ByteArrayInputStream(buffer.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        //The writer is flushed, but not closed, so that the underlying stream is closed by the client, not by the entity
+        var jsonWriter = new JsonWriter(new OutputStreamWriter(outStream, StandardCharsets.UTF_8));
+        try {
+            gson.toJson(request, request.getClass(), jsonWriter);
+        } catch (JsonIOException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+        }
+        jsonWriter.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -1,6 +1,7 @@
 package io.codiga.plugins.jetbrains.settings.application;
 
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.ui.JBIntSpinner;
 import com.intellij.ui.TitledSeparator;
 import com.intellij.ui.components.JBCheckBox;
 import com.intellij.ui.components.JBRadioButton;
@@ -35,12 +36,19 @@ public class AppSettingsComponent {
     private JBCheckBox snippetsVisibilityFavoriteOnly = new JBCheckBox(SETTINGS_SNIPPETS_VISIBILITY_FAVORITE_ONLY);
     private JBCheckBox useInlineCompletionCheckbox = new JBCheckBox(SETTINGS_ENABLED_INLINE_COMPLETION);
     private JBCheckBox codigaEnabledCheckbox = new JBCheckBox(SETTINGS_ENABLED_CODIGA);
+    private JBCheckBox useRuleReferencesCheckbox = new JBCheckBox(SETTINGS_USE_RULE_REFERENCES);
+    private JBCheckBox useIncrementalAnalysisCheckbox = new JBCheckBox(SETTINGS_USE_INCREMENTAL_ANALYSIS);
+    private JBIntSpinner rosieConnectTimeoutSpinner = new JBIntSpinner(5, 1, 60);
+    private JBIntSpinner rosieReadTimeoutSpinner = new JBIntSpinner(30, 1, 300);
+    private JBIntSpinner projectAnalysisParallelismSpinner = new JBIntSpinner(4, 1, 16);
     private boolean useCompletion;
     private boolean useInlineCompletion;
     private boolean snippetsPublicOnly;
     private boolean snippetsPrivateOnly;
     private boolean snippetsFavoriteOnly;
     private boolean codigaEnabled;
+    private boolean useRuleReferences;
+    private boolean useIncrementalAnalysis;
 
     /**
      * Use the following code only to debug and find all supported languages
@@ -101,6 +109,12 @@ public class AppSettingsComponent {
         useInlineCompletionCheckbox.addActionListener(event ->
             this.useInlineCompletion = useInlineCompletionCheckbox.isSelected());
 
+        useRuleReferencesCheckbox.addActionListener(event ->
+            this.useRuleReferences = useRuleReferencesCheckbox.isSelected());
+
+        useIncrementalAnalysisCheckbox.addActionListener(event ->
+            this.useIncrementalAnalysis = useIncrementalAnalysisCheckbox.isSelected());
+
         codigaEnabledCheckbox.addActionListener(event -> {
             this.codigaEnabled = codigaEnabledCheckbox.isSelected();
 
@@ -142,6 +156,14 @@ public class AppSettingsComponent {
             .addComponent(useInlineCompletionCheckbox)
             .addVerticalGap(3)
 
+            .addComponent(new TitledSeparator(SETTINGS_CODE_ANALYSIS_SECTION_TITLE))
+            .addComponent(useRuleReferencesCheckbox)
+            .addComponent(useIncrementalAnalysisCheckbox)
+            .addLabeledComponent(SETTINGS_ROSIE_CONNECT_TIMEOUT_LABEL, rosieConnectTimeoutSpinner)
+            .addLabeledComponent(SETTINGS_ROSIE_READ_TIMEOUT_LABEL, rosieReadTimeoutSpinner)
+            .addLabeledComponent(SETTINGS_PROJECT_ANALYSIS_PARALLELISM_LABEL, projectAnalysisParallelismSpinner)
+            .addVerticalGap(3)
+
             .addComponent(new TitledSeparator(SETTINGS_SNIPPETS_VISIBILITY_PARAMETERS))
             .addComponent(snippetsVisibilityAll)
             .addComponent(snippetsVisibilityPublic)
@@ -219,6 +241,48 @@ public class AppSettingsComponent {
         }
     }
 
+    public boolean useRuleReferences() {
+        return this.useRuleReferences;
+    }
+
+    public void setUseRuleReferences(boolean b) {
+        this.useRuleReferences = b;
+        this.useRuleReferencesCheckbox.setSelected(b);
+    }
+
+    public boolean useIncrementalAnalysis() {
+        return this.useIncrementalAnalysis;
+    }
+
+    public void setUseIncrementalAnalysis(boolean b) {
+        this.useIncrementalAnalysis = b;
+        this.useIncrementalAnalysisCheckbox.setSelected(b);
+    }
+
+    public int getRosieConnectTimeoutSeconds() {
+        return this.rosieConnectTimeoutSpinner.getNumber();
+    }
+
+    public void setRosieConnectTimeoutSeconds(int seconds) {
+        this.rosieConnectTimeoutSpinner.setNumber(seconds);
+    }
+
+    public int getRosieReadTimeoutSeconds() {
+        return this.rosieReadTimeoutSpinner.getNumber();
+    }
+
+    public void setRosieReadTimeoutSeconds(int seconds) {
+        this.rosieReadTimeoutSpinner.setNumber(seconds);
+    }
+
+    public int getProjectAnalysisParallelism() {
+        return this.projectAnalysisParallelismSpinner.getNumber();
+    }
+
+    public void setProjectAnalysisParallelism(int parallelism) {
+        this.projectAnalysisParallelismSpinner.setNumber(parallelism);
+    }
+
     public void setSnippetsVisibility(boolean privateOnly, boolean publicOnly, boolean favoriteOnly) {
         LOGGER.debug("private: " + privateOnly);
         LOGGER.debug("public: " + publicOnly);
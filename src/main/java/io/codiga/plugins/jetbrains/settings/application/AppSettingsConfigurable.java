@@ -51,9 +51,16 @@ public class AppSettingsConfigurable implements Configurable {
         boolean favoriteSnippetsModified = mySettingsComponent.useFavoriteSnippetsOnly() != settings.getFavoriteSnippetsOnly();
         boolean useInlineCompletionModified = mySettingsComponent.useInlineCompletion() != settings.getUseInlineCompletion();
         boolean codigaEnabledModified = mySettingsComponent.isCodigaEnabled() != settings.getCodigaEnabled();
+        boolean useRuleReferencesModified = mySettingsComponent.useRuleReferences() != settings.getUseRosieRuleReferences();
+        boolean useIncrementalAnalysisModified = mySettingsComponent.useIncrementalAnalysis() != settings.getUseRosieIncrementalAnalysis();
+        boolean rosieTimeoutsModified = mySettingsComponent.getRosieConnectTimeoutSeconds() != settings.getRosieConnectTimeoutSeconds()
+            || mySettingsComponent.getRosieReadTimeoutSeconds() != settings.getRosieReadTimeoutSeconds();
+        boolean projectAnalysisParallelismModified = mySettingsComponent.getProjectAnalysisParallelism() != settings.getRosieProjectAnalysisParallelism();
 
 
-        return apiTokenModified || completionModified || publicSnippetsModified || privateSnippetsModified || favoriteSnippetsModified || useInlineCompletionModified || codigaEnabledModified;
+        return apiTokenModified || completionModified || publicSnippetsModified || privateSnippetsModified || favoriteSnippetsModified || useInlineCompletionModified || codigaEnabledModified
+            || useRuleReferencesModified || useIncrementalAnalysisModified || rosieTimeoutsModified
+            || projectAnalysisParallelismModified;
     }
 
     @Override
@@ -69,6 +76,11 @@ public class AppSettingsConfigurable implements Configurable {
         settings.setFavoriteSnippetsOnly(mySettingsComponent.useFavoriteSnippetsOnly());
         settings.setUseInlineCompletion(mySettingsComponent.useInlineCompletion());
         settings.setCodigaEnabled(mySettingsComponent.isCodigaEnabled());
+        settings.setUseRosieRuleReferences(mySettingsComponent.useRuleReferences());
+        settings.setUseRosieIncrementalAnalysis(mySettingsComponent.useIncrementalAnalysis());
+        settings.setRosieConnectTimeoutSeconds(mySettingsComponent.getRosieConnectTimeoutSeconds());
+        settings.setRosieReadTimeoutSeconds(mySettingsComponent.getRosieReadTimeoutSeconds());
+        settings.setRosieProjectAnalysisParallelism(mySettingsComponent.getProjectAnalysisParallelism());
         // Trigger all the subscriber of the API key notification so that they can change their behavior
         // accordingly.
         apiKeyChangeNotifier.afterAction(null);
@@ -88,6 +100,11 @@ public class AppSettingsConfigurable implements Configurable {
         mySettingsComponent.setUseEnabledCheckbox(settings.getUseCompletion());
         mySettingsComponent.setSnippetsVisibility(settings.getPrivateSnippetsOnly(), settings.getPublicSnippetsOnly(), settings.getFavoriteSnippetsOnly());
         mySettingsComponent.setUseInlineCompletion(settings.getUseInlineCompletion());
+        mySettingsComponent.setUseRuleReferences(settings.getUseRosieRuleReferences());
+        mySettingsComponent.setUseIncrementalAnalysis(settings.getUseRosieIncrementalAnalysis());
+        mySettingsComponent.setRosieConnectTimeoutSeconds(settings.getRosieConnectTimeoutSeconds());
+        mySettingsComponent.setRosieReadTimeoutSeconds(settings.getRosieReadTimeoutSeconds());
+        mySettingsComponent.setProjectAnalysisParallelism(settings.getRosieProjectAnalysisParallelism());
     }
 
     @Override
@@ -46,6 +46,16 @@ public class AppSettingsState implements PersistentStateComponent<AppSettingsSta
     private Boolean codigaEnabled = true;
     @Tag
     private String apiToken = "";
+    @Tag
+    private Boolean useRosieRuleReferences = false;
+    @Tag
+    private Boolean useRosieIncrementalAnalysis = false;
+    @Tag
+    private Integer rosieConnectTimeoutSeconds = 5;
+    @Tag
+    private Integer rosieReadTimeoutSeconds = 30;
+    @Tag
+    private Integer rosieProjectAnalysisParallelism = 4;
 
     public static AppSettingsState getInstance() {
         return ApplicationManager.getApplication().getService(AppSettingsState.class);
@@ -138,6 +148,51 @@ public class AppSettingsState implements PersistentStateComponent<AppSettingsSta
         this.useInlineCompletion = b;
     }
 
+    public boolean getUseRosieRuleReferences() {
+        return this.useRosieRuleReferences;
+    }
+
+    public void setUseRosieRuleReferences(Boolean b) {
+        LOGGER.debug("[AppSettingsState] useRosieRuleReferences: " + b);
+        this.useRosieRuleReferences = b;
+    }
+
+    public boolean getUseRosieIncrementalAnalysis() {
+        return this.useRosieIncrementalAnalysis;
+    }
+
+    public void setUseRosieIncrementalAnalysis(Boolean b) {
+        LOGGER.debug("[AppSettingsState] useRosieIncrementalAnalysis: " + b);
+        this.useRosieIncrementalAnalysis = b;
+    }
+
+    public int getRosieConnectTimeoutSeconds() {
+        return this.rosieConnectTimeoutSeconds;
+    }
+
+    public void setRosieConnectTimeoutSeconds(Integer seconds) {
+        LOGGER.debug("[AppSettingsState] rosieConnectTimeoutSeconds: " + seconds);
+        this.rosieConnectTimeoutSeconds = seconds;
+    }
+
+    public int getRosieReadTimeoutSeconds() {
+        return this.rosieReadTimeoutSeconds;
+    }
+
+    public void setRosieReadTimeoutSeconds(Integer seconds) {
+        LOGGER.debug("[AppSettingsState] rosieReadTimeoutSeconds: " + seconds);
+        this.rosieReadTimeoutSeconds = seconds;
+    }
+
+    public int getRosieProjectAnalysisParallelism() {
+        return this.rosieProjectAnalysisParallelism;
+    }
+
+    public void setRosieProjectAnalysisParallelism(Integer parallelism) {
+        LOGGER.debug("[AppSettingsState] rosieProjectAnalysisParallelism: " + parallelism);
+        this.rosieProjectAnalysisParallelism = parallelism;
+    }
+
     @Nullable
     @Override
     public AppSettingsState getState() {
@@ -7,20 +7,12 @@ import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.fileEditor.FileEditor;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.options.ShowSettingsUtil;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.startup.StartupActivity;
-import com.intellij.serviceContainer.AlreadyDisposedException;
-import com.intellij.util.concurrency.AppExecutorUtil;
-import io.codiga.api.type.LanguageEnumeration;
-import io.codiga.plugins.jetbrains.cache.ShortcutCache;
-import io.codiga.plugins.jetbrains.cache.ShortcutCacheKey;
-import io.codiga.plugins.jetbrains.dependencies.DependencyManagement;
 import io.codiga.plugins.jetbrains.graphql.CodigaApi;
-import io.codiga.plugins.jetbrains.model.Dependency;
 import io.codiga.plugins.jetbrains.settings.application.AppSettingsConfigurable;
 import io.codiga.plugins.jetbrains.settings.application.AppSettingsState;
 import org.jetbrains.annotations.NotNull;
@@ -29,14 +21,9 @@ import java.awt.*;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.List;
 
 import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
-import static io.codiga.plugins.jetbrains.actions.ActionUtils.getLanguageFromEditorForVirtualFile;
-import static io.codiga.plugins.jetbrains.actions.ActionUtils.getUnitRelativeFilenamePathFromEditorForVirtualFile;
 import static io.codiga.plugins.jetbrains.graphql.Constants.CODING_ASSISTANT_DOCUMENTATION_URL;
-import static java.util.concurrent.TimeUnit.SECONDS;
-import static java.util.stream.Collectors.toList;
 
 /**
  * Start this code after the project is initialized.
@@ -173,47 +160,6 @@ public class AppStarter implements StartupActivity {
             return;
         }
 
-        AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
-            if (project.isDisposed()) {
-                return;
-            }
-
-            final AppSettingsState settings = AppSettingsState.getInstance();
-            if (settings == null) {
-                return;
-            }
-
-            if (!settings.getCodigaEnabled()) {
-                LOGGER.debug("Codiga disabled, not refreshing cache");
-                return;
-            }
-
-            if (!settings.getUseInlineCompletion()) {
-                LOGGER.debug("Completion are disabled, not refreshing cache");
-                return;
-            }
-
-            try {
-                for (FileEditor fileEditor : FileEditorManager.getInstance(project).getAllEditors()) {
-                    if (fileEditor.getFile() == null) {
-                        continue;
-                    }
-                    String filename = getUnitRelativeFilenamePathFromEditorForVirtualFile(project, fileEditor.getFile());
-                    List<String> dependencies = DependencyManagement.getInstance()
-                        .getDependencies(project, fileEditor.getFile())
-                        .stream()
-                        .map(Dependency::getName)
-                        .collect(toList());
-                    LanguageEnumeration languageEnumeration = getLanguageFromEditorForVirtualFile(fileEditor.getFile());
-                    ShortcutCacheKey shortcutCacheKey = new ShortcutCacheKey(languageEnumeration, filename, dependencies);
-                    ShortcutCache.getInstance().refreshCacheKey(shortcutCacheKey);
-                }
-            } catch (AlreadyDisposedException e) {
-                //If the project gets disposed at any point of this cache update logic, skip the cache update.
-            }
-
-            ShortcutCache.getInstance().garbageCollect();
-
-        }, 1, 10L, SECONDS);
+        CodigaRefreshScheduler.getInstance().registerShortcutProject(project);
     }
 }
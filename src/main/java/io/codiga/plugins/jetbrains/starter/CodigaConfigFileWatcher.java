@@ -0,0 +1,112 @@
+package io.codiga.plugins.jetbrains.starter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeAnyChangeAbstractAdapter;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import io.codiga.plugins.jetbrains.rosie.CodigaConfigFileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.stream.Stream;
+
+/**
+ * Watches the codiga.yml file in the project root, and notifies the argument handler when it is created, deleted,
+ * moved, renamed, or its content changes, either on disk or in an editor.
+ * <p>
+ * Changes are debounced, so that typing in codiga.yml results in a single notification after the typing pauses.
+ */
+final class CodigaConfigFileWatcher extends PsiTreeAnyChangeAbstractAdapter implements BulkFileListener, Disposable {
+    private static final long DEBOUNCE_MILLIS = 300L;
+
+    private final Project project;
+    private final Runnable onChange;
+    private final long debounceMillis;
+    private ScheduledFuture<?> pendingChange;
+
+    private CodigaConfigFileWatcher(Project project, Runnable onChange, long debounceMillis) {
+        this.project = project;
+        this.onChange = onChange;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Starts watching the codiga.yml file of the argument project, until the argument disposable is disposed.
+     */
+    static void watch(@NotNull Project project, @NotNull Runnable onChange, @NotNull Disposable parentDisposable) {
+        watch(project, onChange, parentDisposable, DEBOUNCE_MILLIS);
+    }
+
+    static void watch(@NotNull Project project, @NotNull Runnable onChange, @NotNull Disposable parentDisposable, long debounceMillis) {
+        var watcher = new CodigaConfigFileWatcher(project, onChange, debounceMillis);
+        Disposer.register(parentDisposable, watcher);
+        project.getMessageBus().connect(watcher).subscribe(VirtualFileManager.VFS_CHANGES, watcher);
+        PsiManager.getInstance(project).addPsiTreeChangeListener(watcher, watcher);
+    }
+
+    /**
+     * Handles the changes made in editors, after they are committed to PSI.
+     */
+    @Override
+    protected void onChange(@Nullable PsiFile file) {
+        if (file != null && CodigaConfigFileUtil.CODIGA_CONFIG_FILE_NAME.equals(file.getName())
+            && file.getVirtualFile() != null && isCodigaConfigFilePath(file.getVirtualFile().getPath())) {
+            scheduleChange();
+        }
+    }
+
+    /**
+     * Handles the changes made on disk, and the creation, deletion, moving and renaming of the file.
+     */
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        if (events.stream().flatMap(CodigaConfigFileWatcher::pathsOf).anyMatch(this::isCodigaConfigFilePath)) {
+            scheduleChange();
+        }
+    }
+
+    private static Stream<String> pathsOf(VFileEvent event) {
+        if (event instanceof VFileMoveEvent) {
+            return Stream.of(((VFileMoveEvent) event).getOldPath(), ((VFileMoveEvent) event).getNewPath());
+        }
+        if (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+            return Stream.of(((VFilePropertyChangeEvent) event).getOldPath(), ((VFilePropertyChangeEvent) event).getNewPath());
+        }
+        return Stream.of(event.getPath());
+    }
+
+    private boolean isCodigaConfigFilePath(String path) {
+        if (!path.endsWith(CodigaConfigFileUtil.CODIGA_CONFIG_FILE_NAME)) {
+            return false;
+        }
+        var projectDir = ProjectUtil.guessProjectDir(project);
+        return projectDir != null && path.equals(projectDir.getPath() + "/" + CodigaConfigFileUtil.CODIGA_CONFIG_FILE_NAME);
+    }
+
+    private synchronized void scheduleChange() {
+        if (pendingChange != null) {
+            pendingChange.cancel(false);
+        }
+        pendingChange = AppExecutorUtil.getAppScheduledExecutorService().schedule(onChange, debounceMillis, MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (pendingChange != null) {
+            pendingChange.cancel(false);
+        }
+    }
+}
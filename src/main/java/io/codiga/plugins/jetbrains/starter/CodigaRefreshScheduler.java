@@ -0,0 +1,223 @@
+package io.codiga.plugins.jetbrains.starter;
+
+import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
+import static io.codiga.plugins.jetbrains.actions.ActionUtils.getLanguageFromEditorForVirtualFile;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.serviceContainer.AlreadyDisposedException;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import io.codiga.plugins.jetbrains.cache.ShortcutCache;
+import io.codiga.plugins.jetbrains.cache.ShortcutCacheKey;
+import io.codiga.plugins.jetbrains.dependencies.DependencyManagement;
+import io.codiga.plugins.jetbrains.graphql.CodigaApi;
+import io.codiga.plugins.jetbrains.model.Dependency;
+import io.codiga.plugins.jetbrains.settings.application.AppSettingsState;
+import io.codiga.plugins.jetbrains.utils.AdaptivePollingSchedule;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * A single, application-wide background task that refreshes the Rosie rules caches and the shortcut cache
+ * of all open projects, instead of each project polling the Codiga API on its own.
+ * <ul>
+ *     <li>Rosie rules: the last update timestamp of the union of the rulesets configured in all projects is queried
+ *     in a single request. Only when it changes are the projects asked to update their caches from the server,
+ *     based on that timestamp, without querying their own timestamps.</li>
+ *     <li>Shortcuts: the cache keys of the editors open in all projects are collected, so that a key shared
+ *     by multiple files and projects is refreshed only once.</li>
+ * </ul>
+ * This way, the number of requests while nothing changes doesn't grow with the number of open projects.
+ */
+@Service(Service.Level.APP)
+public final class CodigaRefreshScheduler implements Disposable {
+    public static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
+    private static final long TICK_SECONDS = 10L;
+
+    private final CodigaApi codigaApi;
+    private final Map<Project, RosieRulesCacheUpdateHandler> rulesUpdateHandlers = new ConcurrentHashMap<>(4);
+    /**
+     * The projects registered since the last poll, whose rules, possibly restored from disk, are yet to be revalidated,
+     * and the projects whose rules could not be updated at the last poll.
+     */
+    private final Set<Project> unrevalidatedProjects = ConcurrentHashMap.newKeySet(4);
+    private final Set<Project> shortcutProjects = ConcurrentHashMap.newKeySet(4);
+    private final AdaptivePollingSchedule rulesPollingSchedule = new AdaptivePollingSchedule();
+    /**
+     * The union of ruleset names, and their last update timestamp, that the projects have last been updated for.
+     */
+    private List<String> polledRulesetNames = List.of();
+    private long polledRulesetsTimestamp = -1L;
+    private ScheduledFuture<?> refresher;
+
+    public CodigaRefreshScheduler() {
+        this(CodigaApi.getInstance());
+    }
+
+    CodigaRefreshScheduler(CodigaApi codigaApi) {
+        this.codigaApi = codigaApi;
+    }
+
+    public static CodigaRefreshScheduler getInstance() {
+        return ApplicationManager.getApplication().getService(CodigaRefreshScheduler.class);
+    }
+
+    /**
+     * Refreshes the Rosie rules cache of the argument project via the argument handler,
+     * until the argument disposable is disposed.
+     * <p>
+     * The rules restored at project opening are revalidated at the next poll, which is made due right away,
+     * even if the rulesets of the other projects haven't changed.
+     */
+    void registerRosieRulesUpdater(@NotNull Project project, @NotNull RosieRulesCacheUpdateHandler updateHandler, @NotNull Disposable parentDisposable) {
+        rulesUpdateHandlers.put(project, updateHandler);
+        unrevalidatedProjects.add(project);
+        Disposer.register(parentDisposable, () -> {
+            rulesUpdateHandlers.remove(project);
+            unrevalidatedProjects.remove(project);
+            LOGGER.debug("[CodigaRefreshScheduler] Stopped refreshing Rosie rules for project: " + project.getName());
+        });
+        rulesPollingSchedule.reset();
+        startIfNeeded();
+    }
+
+    /**
+     * Refreshes the shortcut cache for the editors open in the argument project, until the project is disposed.
+     */
+    void registerShortcutProject(@NotNull Project project) {
+        shortcutProjects.add(project);
+        startIfNeeded();
+    }
+
+    private synchronized void startIfNeeded() {
+        if (refresher == null) {
+            refresher = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(this::refresh, 2L, TICK_SECONDS, SECONDS);
+        }
+    }
+
+    private void refresh() {
+        rulesUpdateHandlers.keySet().removeIf(Project::isDisposed);
+        unrevalidatedProjects.removeIf(Project::isDisposed);
+        shortcutProjects.removeIf(Project::isDisposed);
+        //An exception would cancel the further executions of this task
+        try {
+            refreshRosieRules();
+        } catch (RuntimeException e) {
+            LOGGER.debug("[CodigaRefreshScheduler] Could not refresh Rosie rules.", e);
+        }
+        try {
+            refreshShortcuts();
+        } catch (RuntimeException e) {
+            LOGGER.debug("[CodigaRefreshScheduler] Could not refresh shortcuts.", e);
+        }
+    }
+
+    private void refreshRosieRules() {
+        if (rulesUpdateHandlers.isEmpty() || !rulesPollingSchedule.isDue(ShortcutCache.getInstance().getLastActivityTimestamp())) {
+            return;
+        }
+        pollRosieRules();
+    }
+
+    /**
+     * Queries the last update timestamp of the union of the rulesets configured in all projects, and asks the projects
+     * to update their caches if it has changed, or their rules are yet to be revalidated.
+     * <p>
+     * The projects whose rules could not be updated are asked again at the next poll, even if the timestamp doesn't change.
+     */
+    void pollRosieRules() {
+        var shortcutCache = ShortcutCache.getInstance();
+        var rulesetNames = rulesUpdateHandlers.values().stream()
+            .flatMap(updateHandler -> updateHandler.getConfiguredRulesetNames().stream())
+            .distinct()
+            .sorted()
+            .collect(toList());
+        if (rulesetNames.isEmpty()) {
+            return;
+        }
+
+        var timestamp = codigaApi.getRulesetsLastTimestamp(rulesetNames);
+        //The next poll comes soon also when an update failed, so that it is retried quickly
+        boolean changedOrFailed = false;
+        if (timestamp.isPresent()) {
+            //The union of rulesets changes also when a project is opened or closed, or codiga.yml changes in a project
+            boolean isUnionChanged = timestamp.get() != polledRulesetsTimestamp || !rulesetNames.equals(polledRulesetNames);
+            for (var entry : rulesUpdateHandlers.entrySet()) {
+                if (unrevalidatedProjects.remove(entry.getKey()) || isUnionChanged) {
+                    var result = entry.getValue().handleServerChanges(timestamp.get());
+                    if (result == RosieRulesCacheUpdateHandler.ServerChangesResult.FAILED) {
+                        unrevalidatedProjects.add(entry.getKey());
+                    }
+                    changedOrFailed |= result != RosieRulesCacheUpdateHandler.ServerChangesResult.UNCHANGED;
+                }
+            }
+            polledRulesetNames = rulesetNames;
+            polledRulesetsTimestamp = timestamp.get();
+        }
+        rulesPollingSchedule.polled(changedOrFailed, shortcutCache.wasActiveRecently());
+    }
+
+    private void refreshShortcuts() {
+        final AppSettingsState settings = AppSettingsState.getInstance();
+        if (settings == null) {
+            return;
+        }
+
+        if (!settings.getCodigaEnabled()) {
+            LOGGER.debug("Codiga disabled, not refreshing cache");
+            return;
+        }
+
+        if (!settings.getUseInlineCompletion()) {
+            LOGGER.debug("Completion are disabled, not refreshing cache");
+            return;
+        }
+
+        var shortcutCacheKeys = new HashSet<ShortcutCacheKey>();
+        for (Project project : shortcutProjects) {
+            try {
+                collectShortcutCacheKeys(project, shortcutCacheKeys);
+            } catch (AlreadyDisposedException e) {
+                //If the project gets disposed at any point of this cache update logic, skip the cache update for it.
+            }
+        }
+        shortcutCacheKeys.forEach(ShortcutCache.getInstance()::refreshCacheKey);
+
+        ShortcutCache.getInstance().garbageCollect();
+    }
+
+    private static void collectShortcutCacheKeys(Project project, Set<ShortcutCacheKey> shortcutCacheKeys) {
+        for (FileEditor fileEditor : FileEditorManager.getInstance(project).getAllEditors()) {
+            if (fileEditor.getFile() == null) {
+                continue;
+            }
+            List<String> dependencies = DependencyManagement.getInstance()
+                .getDependencies(project, fileEditor.getFile())
+                .stream()
+                .map(Dependency::getName)
+                .collect(toList());
+            shortcutCacheKeys.add(new ShortcutCacheKey(getLanguageFromEditorForVirtualFile(fileEditor.getFile()), dependencies));
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (refresher != null) {
+            refresher.cancel(false);
+        }
+    }
+}
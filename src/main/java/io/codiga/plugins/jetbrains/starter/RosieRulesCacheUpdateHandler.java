@@ -8,19 +8,50 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import io.codiga.plugins.jetbrains.annotators.RosieRulesCache;
 import io.codiga.plugins.jetbrains.graphql.CodigaApi;
-import lombok.RequiredArgsConstructor;
 import org.jetbrains.yaml.psi.YAMLFile;
 
+import java.util.List;
+
 /**
- * Handles updating the {@link RosieRulesCache}. This is executed periodically via {@link RosieStartupActivity}.
+ * Handles updating the {@link RosieRulesCache}.
+ * <p>
+ * Changes on the Codiga server are checked periodically via {@link CodigaRefreshScheduler}, while changes in codiga.yml
+ * are handled when {@link CodigaConfigFileWatcher} reports them.
  */
-@RequiredArgsConstructor
 public final class RosieRulesCacheUpdateHandler {
     public static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
-    private final CodigaApi codigaApi = CodigaApi.getInstance();
+    private final CodigaApi codigaApi;
     private final RosieRulesCache rulesCache;
     private final Project project;
 
+    /**
+     * The outcome of {@link #handleServerChanges(long)}.
+     */
+    public enum ServerChangesResult {
+        /**
+         * The cache has been updated with the rulesets changed on the server.
+         */
+        UPDATED,
+        /**
+         * The rulesets configured in the project haven't changed on the server.
+         */
+        UNCHANGED,
+        /**
+         * The rulesets may have changed on the server, but they could not be fetched, so it has to be retried.
+         */
+        FAILED
+    }
+
+    public RosieRulesCacheUpdateHandler(RosieRulesCache rulesCache, Project project) {
+        this(rulesCache, project, CodigaApi.getInstance());
+    }
+
+    RosieRulesCacheUpdateHandler(RosieRulesCache rulesCache, Project project, CodigaApi codigaApi) {
+        this.rulesCache = rulesCache;
+        this.project = project;
+        this.codigaApi = codigaApi;
+    }
+
     /**
      * First initialization of the ruleset names in cache.
      * <p>
@@ -34,23 +65,72 @@ public final class RosieRulesCacheUpdateHandler {
         }
     }
 
-    public void handleCacheUpdate() {
+    /**
+     * Updates the cache after a change of codiga.yml. Called by {@link CodigaConfigFileWatcher}.
+     */
+    public synchronized void handleConfigFileChange() {
         if (project.isDisposed()) {
             return;
         }
 
+        updateCacheFromCodigaConfigFile();
+    }
+
+    /**
+     * Updates the cache if the rulesets have changed on the Codiga server. Called periodically by {@link CodigaRefreshScheduler}.
+     * <p>
+     * It doesn't look up codiga.yml, changes in that are handled by {@link #handleConfigFileChange()}.
+     *
+     * @param lastUpdatedTimestamp the last update timestamp, on the Codiga server, of a set of rulesets that includes the ones
+     *                             configured in this project, e.g. the rulesets of all open projects
+     * @return whether the cache was updated, or the rulesets could not be fetched
+     */
+    public synchronized ServerChangesResult handleServerChanges(long lastUpdatedTimestamp) {
+        if (project.isDisposed()) {
+            return ServerChangesResult.UNCHANGED;
+        }
+
+        return updateCacheFromChangesOnServer(lastUpdatedTimestamp);
+    }
+
+    /**
+     * Returns the names of the rulesets configured in codiga.yml.
+     */
+    List<String> getConfiguredRulesetNames() {
+        return rulesCache.getCodigaYmlConfig().getRulesets();
+    }
+
+    /**
+     * Updates the cache if codiga.yml has been deleted or modified.
+     *
+     * @return true if the cache was updated
+     */
+    private boolean updateCacheFromCodigaConfigFile() {
         YAMLFile codigaConfigFile = findCodigaConfigFile(project);
         if (!isCodigaConfigFileExist(codigaConfigFile)) {
             rulesCache.clear();
             //Since the config file no longer exist, its modification stamp is reset too
             rulesCache.setConfigFileModificationStamp(-1);
-            return;
+            rulesCache.persist();
+            return true;
         }
 
         if (rulesCache.hasDifferentModificationStampThan(codigaConfigFile)) {
             updateCacheFromModifiedCodigaConfigFile(codigaConfigFile);
-        } else {
-            updateCacheFromChangesOnServer();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Restores the rules persisted by a previous session, so that they can be used for analysis right away,
+     * while the next cache update checks whether they have changed on the Codiga server.
+     * <p>
+     * Must be called after {@link #initRulesets()}.
+     */
+    public void restorePersistedRules() {
+        if (rulesCache.restorePersistedRules()) {
+            LOGGER.debug("[RosieRulesCacheUpdateHandler] Restored persisted Rosie rules for project: " + project.getName());
         }
     }
 
@@ -68,9 +148,10 @@ public final class RosieRulesCacheUpdateHandler {
         var rulesetNames = rulesCache.getCodigaYmlConfig().getRulesets();
 
         //Since there was a config change locally, and there is at least one ruleset name configured,
-        // query to the Codiga server must be sent.
+        // query to the Codiga server must be sent. The rulesets and their timestamp are queried in a single request.
         if (!rulesetNames.isEmpty()) {
-            codigaApi.getRulesetsForClient(rulesetNames).ifPresent(rulesets -> {
+            codigaApi.getRulesetsForClientWithLastTimestamp(rulesetNames).ifPresent(rulesetsWithTimestamp -> {
+                var rulesets = rulesetsWithTimestamp.getData();
                 /*
                   If the server returns no rulesets, e.g. due to misconfiguration of codiga.yml,
                   we clear the cache. NOTE: this doesn't take into account if no ruleset is returned
@@ -78,41 +159,63 @@ public final class RosieRulesCacheUpdateHandler {
                  */
                 if (rulesets.isEmpty()) {
                     rulesCache.clear();
+                    rulesCache.persist();
                     return;
                 }
 
-                rulesCache.updateCacheFrom(rulesets);
                 /*
-                  Updating the local timestamp only if it has changed, because it may happen that
+                  Updating the local timestamp only if the server returned one, because it may happen that
                   codiga.yml was updated locally with a non-existent ruleset, or a ruleset that has an earlier timestamp,
                   than the latest updated one, so the rulesets configured don't result in an updated timestamp from the server.
                  */
-                codigaApi.getRulesetsLastTimestamp(rulesetNames)
-                    .filter(timestamp -> timestamp != rulesCache.getLastUpdatedTimeStamp())
-                    .ifPresent(rulesCache::setLastUpdatedTimeStamp);
+                rulesetsWithTimestamp.getLastUpdatedTimestamp().ifPresentOrElse(
+                    timestamp -> rulesCache.updateCacheFrom(rulesets, timestamp),
+                    () -> rulesCache.updateCacheFrom(rulesets));
+                rulesCache.persist();
             });
         } else {
             rulesCache.clear();
+            rulesCache.persist();
         }
     }
 
-    //The codiga.yml file is unchanged
-    private void updateCacheFromChangesOnServer() {
+    /**
+     * Updates the cache if the rulesets have changed on the Codiga server. Expects codiga.yml to be unchanged.
+     *
+     * @param lastUpdatedTimestamp see {@link #handleServerChanges(long)}
+     */
+    private ServerChangesResult updateCacheFromChangesOnServer(long lastUpdatedTimestamp) {
         var rulesetNames = rulesCache.getCodigaYmlConfig().getRulesets();
-        if (!rulesetNames.isEmpty()) {
-            /*
-              If any of the rulesets have changed on the Codiga server, compared to what we have in the local cache,
-              update the cache.
-              If only non-existent ruleset names are sent, Optional.empty() is returned, thus no cache update happens.
-             */
-            codigaApi.getRulesetsLastTimestamp(rulesetNames)
-                .filter(timestamp -> timestamp != rulesCache.getLastUpdatedTimeStamp())
-                .ifPresent(timestamp ->
-                    codigaApi.getRulesetsForClient(rulesetNames).ifPresent(rulesets -> {
-                        rulesCache.updateCacheFrom(rulesets);
-                        rulesCache.setLastUpdatedTimeStamp(timestamp);
-                        LOGGER.debug("[RosieRulesCacheUpdateHandler] Updated rulesets and timestamp in local Rosie cache for project: " + project.getName());
-                    }));
+        if (rulesetNames.isEmpty()) {
+            return ServerChangesResult.UNCHANGED;
+        }
+        /*
+          The argument timestamp is the latest one among a superset of the configured rulesets. If it is the same as the one
+          in the local cache, the configured rulesets haven't changed. Otherwise, they may have, but it may also be other rulesets
+          that changed, which is found out when the configured rulesets are fetched along with their own timestamp.
+         */
+        if (lastUpdatedTimestamp == rulesCache.getLastUpdatedTimeStamp()) {
+            return ServerChangesResult.UNCHANGED;
+        }
+        //Another open project may have already fetched the same rulesets with the same timestamp
+        if (rulesCache.updateCacheFromSharedRules(lastUpdatedTimestamp)) {
+            rulesCache.persist();
+            LOGGER.debug("[RosieRulesCacheUpdateHandler] Updated local Rosie cache from shared rulesets for project: " + project.getName());
+            return ServerChangesResult.UPDATED;
+        }
+        var rulesets = codigaApi.getRulesetsForClientWithLastTimestamp(rulesetNames);
+        if (rulesets.isEmpty()) {
+            LOGGER.debug("[RosieRulesCacheUpdateHandler] Could not fetch the changed rulesets for project: " + project.getName());
+            return ServerChangesResult.FAILED;
+        }
+        //The timestamp returned along with the rulesets is consistent with them, even if they changed again in the meantime
+        long rulesetsTimestamp = rulesets.get().getLastUpdatedTimestamp().orElse(lastUpdatedTimestamp);
+        if (rulesetsTimestamp == rulesCache.getLastUpdatedTimeStamp()) {
+            return ServerChangesResult.UNCHANGED;
         }
+        rulesCache.updateCacheFrom(rulesets.get().getData(), rulesetsTimestamp);
+        rulesCache.persist();
+        LOGGER.debug("[RosieRulesCacheUpdateHandler] Updated rulesets and timestamp in local Rosie cache for project: " + project.getName());
+        return ServerChangesResult.UPDATED;
     }
 }
@@ -3,8 +3,6 @@ package io.codiga.plugins.jetbrains.starter;
 import static io.codiga.plugins.jetbrains.Constants.LOGGER_NAME;
 import static io.codiga.plugins.jetbrains.rosie.CodigaConfigFileUtil.findCodigaConfigFile;
 import static io.codiga.plugins.jetbrains.rosie.CodigaRulesetConfigs.getDefaultRulesetsForProject;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationGroupManager;
@@ -18,8 +16,6 @@ import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.application.WriteAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.project.ProjectManager;
-import com.intellij.openapi.project.ProjectManagerListener;
 import com.intellij.openapi.project.ProjectUtil;
 import com.intellij.openapi.startup.StartupActivity;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -33,15 +29,13 @@ import org.jetbrains.yaml.psi.YAMLFile;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
 
 /**
  * Initiates a notification popup to create the Codiga config file if either the Project or a Module is
  * configured with a Python SDK.
  * <p>
- * Initiates a background task the periodically updates the local Rosie rules cache.
+ * Registers the project with {@link CodigaRefreshScheduler} that periodically updates the local Rosie rules cache
+ * from changes on the Codiga server, and starts a watcher that updates it when codiga.yml changes.
  * <p>
  * This is separated from {@link AppStarter}, because if the YAML plugin is not installed or disabled,
  * the codiga.yml config file parsing cannot be performed.
@@ -50,14 +44,6 @@ public class RosieStartupActivity implements StartupActivity {
 
     public static final Logger LOGGER = Logger.getInstance(LOGGER_NAME);
 
-    /**
-     * Stores the Rosie cache updaters per project, so that they can be properly cancelled upon project close.
-     * <p>
-     * Limiting the initial capacity building on the assumption that users don't usually have a lot of projects
-     * open at the same time.
-     */
-    private final Map<Project, ScheduledFuture<?>> rosieCacheUpdaters = new ConcurrentHashMap<>(4);
-
     private Notification notification;
 
     @Override
@@ -146,29 +132,10 @@ public class RosieStartupActivity implements StartupActivity {
     private void startRosieRulesCacheUpdater(@NotNull Project project) {
         var updateHandler = new RosieRulesCacheUpdateHandler(RosieRulesCache.getInstance(project), project);
         updateHandler.initRulesets();
-        var cacheUpdater = AppExecutorUtil.getAppScheduledExecutorService()
-            .scheduleWithFixedDelay(updateHandler::handleCacheUpdate, 2L, 10L, SECONDS);
-
-        rosieCacheUpdaters.put(project, cacheUpdater);
-
-        //When the project has closed, stop the rules cache updater task
-        ApplicationManager.getApplication().getMessageBus().connect().subscribe(ProjectManager.TOPIC,
-            new ProjectManagerListener() {
-                @Override
-                public void projectClosed(@NotNull Project project) {
-                    /*
-                     * Retrieving the updater from cache, as otherwise the subscription to this topic
-                     * and cancelling the current updater is not bound to the current project.
-                     * Simply calling 'cacheUpdater.cancel(true)' didn't seem to have any effect.
-                     */
-                    var updater = RosieStartupActivity.this.rosieCacheUpdaters.get(project);
-                    if (updater != null) {
-                        RosieStartupActivity.this.rosieCacheUpdaters.remove(project);
-                        AppExecutorUtil.getAppScheduledExecutorService()
-                            .schedule(() -> updater.cancel(true), 500, MILLISECONDS);
-                        LOGGER.debug("[RosieRulesCacheUpdater] Cancelled Rosie rules cache updater for project: " + project.getName());
-                    }
-                }
-            });
+        updateHandler.restorePersistedRules();
+        //Changes in codiga.yml are applied as soon as they happen, only changes on the server are polled.
+        //Both stop when the project is closed, and the cache is disposed.
+        CodigaConfigFileWatcher.watch(project, updateHandler::handleConfigFileChange, RosieRulesCache.getInstance(project));
+        CodigaRefreshScheduler.getInstance().registerRosieRulesUpdater(project, updateHandler, RosieRulesCache.getInstance(project));
     }
 }
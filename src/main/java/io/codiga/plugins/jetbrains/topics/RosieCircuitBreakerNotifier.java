@@ -0,0 +1,15 @@
+package io.codiga.plugins.jetbrains.topics;
+
+import com.intellij.util.messages.Topic;
+
+/**
+ * Topic that represents a change of the state of the circuit breaker around the Rosie service.
+ * <p>
+ * We subscribe to this topic in the status bar widget, so that it shows when code analysis is paused
+ * because the Rosie service is unavailable.
+ */
+public interface RosieCircuitBreakerNotifier extends ChangeNotifier {
+
+    Topic<RosieCircuitBreakerNotifier> ROSIE_CIRCUIT_BREAKER_CHANGE_TOPIC =
+        Topic.create("Codiga Rosie circuit breaker change", RosieCircuitBreakerNotifier.class);
+}
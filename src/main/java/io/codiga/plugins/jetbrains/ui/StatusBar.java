@@ -7,8 +7,10 @@ import com.intellij.openapi.wm.StatusBarWidgetFactory;
 import com.intellij.openapi.wm.WindowManager;
 import com.intellij.util.Consumer;
 import icons.CodigaIcons;
+import io.codiga.plugins.jetbrains.rosie.RosieCircuitBreaker;
 import io.codiga.plugins.jetbrains.settings.application.AppSettingsState;
 import io.codiga.plugins.jetbrains.topics.CodigaEnabledStatusNotifier;
+import io.codiga.plugins.jetbrains.topics.RosieCircuitBreakerNotifier;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -45,10 +47,13 @@ public class StatusBar implements StatusBarWidgetFactory {
     public @NotNull StatusBarWidget createWidget(@NotNull Project project) {
         com.intellij.openapi.wm.StatusBar statusBar = WindowManager.getInstance().getStatusBar(project);
         if (statusBar != null) {
-            ApplicationManager.getApplication()
-                .getMessageBus().connect()
-                .subscribe(CodigaEnabledStatusNotifier.CODIGA_ENABLED_CHANGE_TOPIC,
-                    (CodigaEnabledStatusNotifier) context -> statusBar.updateWidget(getId()));
+            var connection = ApplicationManager.getApplication().getMessageBus().connect();
+            connection.subscribe(CodigaEnabledStatusNotifier.CODIGA_ENABLED_CHANGE_TOPIC,
+                (CodigaEnabledStatusNotifier) context -> statusBar.updateWidget(getId()));
+            //The circuit breaker changes state on background threads, while the widget must be updated on the EDT
+            connection.subscribe(RosieCircuitBreakerNotifier.ROSIE_CIRCUIT_BREAKER_CHANGE_TOPIC,
+                (RosieCircuitBreakerNotifier) context -> ApplicationManager.getApplication()
+                    .invokeLater(() -> statusBar.updateWidget(getId())));
         }
         return new CodigaStatusWidget();
     }
@@ -89,6 +94,9 @@ public class StatusBar implements StatusBarWidgetFactory {
 
         @Override
         public @Nullable String getTooltipText() {
+            if (settings.getCodigaEnabled() && RosieCircuitBreaker.getInstance().isOpen()) {
+                return "Codiga completion is enabled, code analysis is paused because the analysis service is unavailable";
+            }
             if (settings.getCodigaEnabled()) {
                 return "Codiga completion is enabled";
             } else {
@@ -18,6 +18,15 @@ public final class UIConstants {
     public static final String SETTINGS_ENABLED_INLINE_COMPLETION = "Enable Coding Assistant with inline completion";
     public static final String SETTINGS_ENABLED_COMPLETION = "Enable Coding Assistant on Code Completion";
 
+    //Code analysis
+
+    public static final String SETTINGS_CODE_ANALYSIS_SECTION_TITLE = "Code Analysis";
+    public static final String SETTINGS_USE_RULE_REFERENCES = "Send rule references instead of full rules, when supported by the analysis service";
+    public static final String SETTINGS_USE_INCREMENTAL_ANALYSIS = "Analyse only the changed parts of large files";
+    public static final String SETTINGS_ROSIE_CONNECT_TIMEOUT_LABEL = "Connection timeout (seconds):";
+    public static final String SETTINGS_ROSIE_READ_TIMEOUT_LABEL = "Read timeout (seconds):";
+    public static final String SETTINGS_PROJECT_ANALYSIS_PARALLELISM_LABEL = "Files analyzed in parallel by project analysis:";
+
     //Snippet visibility
 
     public static final String SETTINGS_SNIPPETS_VISIBILITY_ALL_SNIPPETS = "All Snippets";
@@ -0,0 +1,107 @@
+package io.codiga.plugins.jetbrains.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides when to poll the Codiga API for changes, instead of polling on a fixed cadence.
+ * <ul>
+ *     <li>While the polled data doesn't change, the delay between polls doubles, up to a maximum.</li>
+ *     <li>While the user is idle, the delay can grow up to a higher maximum.</li>
+ *     <li>When the data changes, or the user becomes active again after being idle, the delay is reset to the minimum.</li>
+ *     <li>Each delay is randomized by {@link #JITTER}, so that clients started at the same time don't poll at the same time.</li>
+ * </ul>
+ * It doesn't schedule anything itself: callers check {@link #isDue(long)} or {@link #isDue()} periodically, which is a cheap local check,
+ * and report the outcome of each poll via {@link #polled(boolean, boolean)}.
+ */
+public final class AdaptivePollingSchedule {
+    private static final long MIN_DELAY_MILLIS = 10_000L;
+    private static final long MAX_DELAY_MILLIS = 2 * 60_000L;
+    private static final long IDLE_MAX_DELAY_MILLIS = 30 * 60_000L;
+    /**
+     * The maximum fraction by which a delay is shortened or lengthened randomly.
+     */
+    private static final double JITTER = 0.2;
+
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final long idleMaxDelayMillis;
+    private final LongSupplier clock;
+    private final DoubleSupplier random;
+    private long delayMillis;
+    private long lastPollAt;
+    private long nextPollAt;
+    private boolean wasUserActiveAtLastPoll = true;
+
+    public AdaptivePollingSchedule() {
+        this(MIN_DELAY_MILLIS, MAX_DELAY_MILLIS, IDLE_MAX_DELAY_MILLIS, System::currentTimeMillis, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    AdaptivePollingSchedule(long minDelayMillis, long maxDelayMillis, long idleMaxDelayMillis, LongSupplier clock, DoubleSupplier random) {
+        this.minDelayMillis = minDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.idleMaxDelayMillis = idleMaxDelayMillis;
+        this.clock = clock;
+        this.random = random;
+        this.delayMillis = minDelayMillis;
+        //The first poll is due right away
+        this.lastPollAt = clock.getAsLong();
+        this.nextPollAt = lastPollAt;
+    }
+
+    /**
+     * Returns whether the next poll is due, for pollers that poll only while the user is active.
+     */
+    public synchronized boolean isDue() {
+        return clock.getAsLong() >= nextPollAt;
+    }
+
+    /**
+     * Returns whether the next poll is due.
+     * <p>
+     * If the user was idle at the last poll, but has been active since then, the delay is reset to the minimum,
+     * so that changes made in the meantime are picked up quickly once the user is back.
+     *
+     * @param lastActivityTimestamp the time of the last user activity, in epoch milliseconds
+     */
+    public synchronized boolean isDue(long lastActivityTimestamp) {
+        if (!wasUserActiveAtLastPoll && lastActivityTimestamp > lastPollAt) {
+            wasUserActiveAtLastPoll = true;
+            delayMillis = minDelayMillis;
+            nextPollAt = Math.min(nextPollAt, lastPollAt + withJitter(minDelayMillis));
+        }
+        return isDue();
+    }
+
+    /**
+     * Schedules the next poll based on the outcome of the current one.
+     *
+     * @param changed      whether the polled data has changed
+     * @param isUserActive whether the user has been active recently
+     */
+    public synchronized void polled(boolean changed, boolean isUserActive) {
+        lastPollAt = clock.getAsLong();
+        wasUserActiveAtLastPoll = isUserActive;
+        delayMillis = changed ? minDelayMillis : Math.min(delayMillis * 2, isUserActive ? maxDelayMillis : idleMaxDelayMillis);
+        nextPollAt = lastPollAt + withJitter(delayMillis);
+    }
+
+    /**
+     * Makes the next poll due right away, and resets the delay to the minimum, e.g. when there is something new to poll for.
+     */
+    public synchronized void reset() {
+        delayMillis = minDelayMillis;
+        nextPollAt = clock.getAsLong();
+    }
+
+    private long withJitter(long delay) {
+        return delay + (long) ((random.getAsDouble() * 2 - 1) * JITTER * delay);
+    }
+
+    //For testing
+
+    synchronized long getDelayMillis() {
+        return delayMillis;
+    }
+}
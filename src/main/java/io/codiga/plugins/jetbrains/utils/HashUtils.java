@@ -0,0 +1,60 @@
+package io.codiga.plugins.jetbrains.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Utility for computing content hashes, e.g. for cache keys and fingerprints.
+ */
+public final class HashUtils {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Returns a new SHA-256 message digest.
+     * <p>
+     * SHA-256 is required to be supported by every Java platform, so its absence is not expected.
+     */
+    public static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available on this platform.", e);
+        }
+    }
+
+    /**
+     * Adds the argument string to the digest, followed by a separator, so that e.g. ["ab", "c"]
+     * and ["a", "bc"] don't result in the same hash. Null values are added as empty strings.
+     */
+    public static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Returns the hexadecimal SHA-256 hash of the argument values.
+     */
+    public static String sha256Hex(String... values) {
+        var digest = newSha256Digest();
+        for (String value : values) {
+            update(digest, value);
+        }
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] bytes) {
+        var hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private HashUtils() {
+        //Utility class
+    }
+}
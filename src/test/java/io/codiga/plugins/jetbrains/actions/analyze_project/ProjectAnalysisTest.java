@@ -0,0 +1,77 @@
+package io.codiga.plugins.jetbrains.actions.analyze_project;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.vfs.VfsUtil;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit test for {@link ProjectAnalysis}.
+ */
+public class ProjectAnalysisTest extends TestBase {
+
+    private ProjectAnalysis projectAnalysis;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        projectAnalysis = new ProjectAnalysis();
+    }
+
+    public void testDoesNotStartWhileRunning() {
+        assertTrue(projectAnalysis.start());
+        assertFalse(projectAnalysis.start());
+
+        projectAnalysis.finish(true);
+
+        assertTrue(projectAnalysis.start());
+    }
+
+    public void testResumesIncompleteAnalysis() {
+        var file = myFixture.addFileToProject("analyzed.py", "import os").getVirtualFile();
+        projectAnalysis.start();
+        projectAnalysis.record(file, file.getModificationStamp(), List.of());
+        projectAnalysis.finish(false);
+
+        projectAnalysis.start();
+
+        assertTrue(projectAnalysis.isUpToDate(file));
+    }
+
+    public void testStartsFromScratchAfterCompleteAnalysis() {
+        var file = myFixture.addFileToProject("analyzed.py", "import os").getVirtualFile();
+        projectAnalysis.start();
+        projectAnalysis.record(file, file.getModificationStamp(), List.of());
+        projectAnalysis.finish(true);
+
+        projectAnalysis.start();
+
+        assertFalse(projectAnalysis.isUpToDate(file));
+        assertTrue(projectAnalysis.getResults().isEmpty());
+    }
+
+    public void testFileModifiedSinceAnalysisIsNotUpToDate() throws IOException {
+        var file = myFixture.addFileToProject("analyzed.py", "import os").getVirtualFile();
+        projectAnalysis.start();
+        projectAnalysis.record(file, file.getModificationStamp(), List.of());
+
+        WriteCommandAction.writeCommandAction(getProject()).run(() -> VfsUtil.saveText(file, "import sys"));
+
+        assertFalse(projectAnalysis.isUpToDate(file));
+    }
+
+    public void testDropsResultsOfRemovedFiles() {
+        var kept = myFixture.addFileToProject("kept.py", "import os").getVirtualFile();
+        var removed = myFixture.addFileToProject("removed.py", "import os").getVirtualFile();
+        projectAnalysis.start();
+        projectAnalysis.record(kept, kept.getModificationStamp(), List.of());
+        projectAnalysis.record(removed, removed.getModificationStamp(), List.of());
+
+        projectAnalysis.retainOnly(Set.of(kept));
+
+        assertEquals(Set.of(kept), projectAnalysis.getResults().keySet());
+    }
+}
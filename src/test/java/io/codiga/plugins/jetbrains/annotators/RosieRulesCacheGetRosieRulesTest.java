@@ -329,6 +329,46 @@ public class RosieRulesCacheGetRosieRulesTest extends TestBase {
             "python-ruleset/python_rule_3", "python-ruleset/python_rule_2", "python-ruleset/python_rule_1");
     }
 
+    public void testReturnsMemoizedRulesForSameFile() {
+        PsiFile psiFile = myFixture.configureByFile("python_file.py");
+        var cache = configureCache(
+            "rulesets:\n" +
+                "  - python-ruleset\n" +
+                "ignore:\n" +
+                "  - python-ruleset:\n" +
+                "    - python_rule_2:\n" +
+                "      - prefix: /python_file.py");
+
+        var rosieRules = cache.getRosieRules(LanguageEnumeration.PYTHON, psiFile.getVirtualFile().getPath());
+
+        assertSame(rosieRules, cache.getRosieRules(LanguageEnumeration.PYTHON, psiFile.getVirtualFile().getPath()));
+    }
+
+    public void testFiltersRulesWithUpdatedIgnoreConfig() {
+        PsiFile psiFile = myFixture.configureByFile("python_file.py");
+        var cache = configureCache(
+            "rulesets:\n" +
+                "  - python-ruleset\n" +
+                "ignore:\n" +
+                "  - python-ruleset:\n" +
+                "    - python_rule_2:\n" +
+                "      - prefix: /python_file.py");
+        cache.getRosieRules(LanguageEnumeration.PYTHON, psiFile.getVirtualFile().getPath());
+
+        cache.setCodigaYmlConfig(CodigaConfigFileUtil.parseCodigaYml(configureFile(
+            "rulesets:\n" +
+                "  - python-ruleset\n" +
+                "ignore:\n" +
+                "  - python-ruleset:\n" +
+                "    - python_rule_3:\n" +
+                "      - prefix: /python_file.py")));
+        var rosieRules = cache.getRosieRules(LanguageEnumeration.PYTHON, psiFile.getVirtualFile().getPath());
+
+        validateRuleCountAndRuleIds(rosieRules,
+            2,
+            "python-ruleset/python_rule_2", "python-ruleset/python_rule_1");
+    }
+
     //Helpers
 
     private RosieRulesCache configureCache(String codigaYmlText) {
@@ -133,6 +133,29 @@ public class RosieRulesCacheTest extends TestBase {
         assertTrue(jsRules.stream().allMatch(rule -> LanguageEnumeration.JAVASCRIPT.rawValue().equals(rule.language)));
     }
 
+    public void testUpdateDoesntAffectRulesAlreadyReturned() {
+        var cache = RosieRulesCache.getInstance(getProject());
+        cache.updateCacheFrom(CodigaApi.getInstance().getRulesetsForClient(List.of("singleRulesetSingleLanguage")).get());
+        var pythonRules = cache.getRosieRules(LanguageEnumeration.PYTHON, "");
+
+        cache.updateCacheFrom(CodigaApi.getInstance().getRulesetsForClient(List.of("javascriptRuleset")).get());
+
+        validateRuleCountAndRuleIds(pythonRules,
+            3,
+            "python-ruleset/python_rule_1", "python-ruleset/python_rule_2", "python-ruleset/python_rule_3");
+        assertTrue(cache.getRosieRules(LanguageEnumeration.PYTHON, "").isEmpty());
+    }
+
+    //getRuleWithNamesFor
+
+    public void testReturnsNullRuleWithNamesForLanguageNotCached() {
+        var cache = RosieRulesCache.getInstance(getProject());
+        cache.updateCacheFrom(CodigaApi.getInstance().getRulesetsForClient(List.of("singleRulesetSingleLanguage")).get());
+
+        assertNull(cache.getRuleWithNamesFor(LanguageEnumeration.JAVA, "python-ruleset/python_rule_1"));
+        assertEquals("python_rule_1", cache.getRuleWithNamesFor(LanguageEnumeration.PYTHON, "python-ruleset/python_rule_1").ruleName);
+    }
+
     //Helpers
 
     private void validateRuleCountAndRuleIds(List<RosieRule> rules, int count, String... ruleIds) {
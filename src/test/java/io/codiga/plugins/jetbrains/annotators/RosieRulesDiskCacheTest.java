@@ -0,0 +1,143 @@
+package io.codiga.plugins.jetbrains.annotators;
+
+import static java.util.stream.Collectors.toList;
+
+import com.intellij.openapi.util.io.FileUtil;
+import io.codiga.api.GetRulesetsForClientQuery;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.plugins.jetbrains.graphql.CodigaApi;
+import io.codiga.plugins.jetbrains.rosie.model.codiga.CodigaYmlConfig;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests for {@link RosieRulesDiskCache}.
+ */
+public class RosieRulesDiskCacheTest extends TestBase {
+
+    private Path cacheDir;
+    private Path cacheFile;
+    private RosieRulesDiskCache diskCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cacheDir = Files.createTempDirectory("rules-cache");
+        cacheFile = cacheDir.resolve("project.json");
+        diskCache = new RosieRulesDiskCache(cacheFile);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            FileUtil.delete(cacheDir);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testLoadsSavedRulesets() {
+        var rulesets = CodigaApi.getInstance().getRulesetsForClient(List.of("singleRulesetMultipleLanguages")).get();
+
+        diskCache.save(List.of("singleRulesetMultipleLanguages"), rulesets, 102L);
+        var snapshot = diskCache.load();
+
+        assertNotNull(snapshot);
+        assertEquals(List.of("singleRulesetMultipleLanguages"), snapshot.getRulesetNames());
+        assertEquals(102L, snapshot.getLastUpdatedTimeStamp());
+
+        var loadedRulesets = snapshot.getRulesets();
+        assertEquals(1, loadedRulesets.size());
+        assertEquals(String.valueOf(rulesets.get(0).id()), String.valueOf(loadedRulesets.get(0).id()));
+        assertEquals(rulesets.get(0).name(), loadedRulesets.get(0).name());
+        assertEquals(ruleIdsOf(rulesets.get(0)), ruleIdsOf(loadedRulesets.get(0)));
+        assertEquals(rulesets.get(0).rules().get(1).language(), loadedRulesets.get(0).rules().get(1).language());
+        assertEquals(rulesets.get(0).rules().get(1).content(), loadedRulesets.get(0).rules().get(1).content());
+    }
+
+    public void testLoadsRulesetIdAsReturnedByCodigaApi() {
+        //Apollo returns the ids of rulesets, a custom scalar, as BigDecimal
+        var ruleset = new GetRulesetsForClientQuery.RuleSetsForClient("RosieRuleSet", new BigDecimal(9_876_543_210L), "python-ruleset", List.of());
+
+        diskCache.save(List.of("python-ruleset"), List.of(ruleset), 102L);
+        var snapshot = diskCache.load();
+
+        assertNotNull(snapshot);
+        assertEquals(new BigDecimal(9_876_543_210L), snapshot.getRulesets().get(0).id());
+    }
+
+    public void testReturnsNullForNonExistentFile() {
+        assertNull(diskCache.load());
+    }
+
+    public void testReturnsNullForCorruptFile() throws IOException {
+        Files.writeString(cacheFile, "{\"version\": 1, \"rulesets\": [", StandardCharsets.UTF_8);
+
+        assertNull(diskCache.load());
+    }
+
+    public void testReturnsNullForDifferentFormatVersion() throws IOException {
+        Files.writeString(cacheFile, "{\"version\": 0, \"rulesetNames\": [], \"rulesets\": []}", StandardCharsets.UTF_8);
+
+        assertNull(diskCache.load());
+    }
+
+    public void testDeletesSavedRulesets() {
+        diskCache.save(List.of("singleRulesetSingleLanguage"),
+            CodigaApi.getInstance().getRulesetsForClient(List.of("singleRulesetSingleLanguage")).get(), 101L);
+
+        diskCache.delete();
+
+        assertFalse(Files.exists(cacheFile));
+    }
+
+    //RosieRulesCache
+
+    public void testRestoresPersistedRulesForSameRulesetNames() {
+        var rulesetNames = List.of("singleRulesetSingleLanguage");
+        diskCache.save(rulesetNames, CodigaApi.getInstance().getRulesetsForClient(rulesetNames).get(), 101L);
+        var rulesCache = new RosieRulesCache(getProject(), new SharedRosieRules(), diskCache);
+        rulesCache.setCodigaYmlConfig(codigaYmlConfig(rulesetNames));
+
+        assertTrue(rulesCache.restorePersistedRules());
+        assertEquals(101L, rulesCache.getLastUpdatedTimeStamp());
+        assertEquals(List.of("python-ruleset/python_rule_1", "python-ruleset/python_rule_2", "python-ruleset/python_rule_3"),
+            rulesCache.getRosieRules(LanguageEnumeration.PYTHON, "").stream().map(rule -> rule.id).collect(toList()));
+    }
+
+    public void testDoesntRestorePersistedRulesForDifferentRulesetNames() {
+        var rulesetNames = List.of("singleRulesetSingleLanguage");
+        diskCache.save(rulesetNames, CodigaApi.getInstance().getRulesetsForClient(rulesetNames).get(), 101L);
+        var rulesCache = new RosieRulesCache(getProject(), new SharedRosieRules(), diskCache);
+        rulesCache.setCodigaYmlConfig(codigaYmlConfig(List.of("singleRulesetMultipleLanguages")));
+
+        assertFalse(rulesCache.restorePersistedRules());
+        assertTrue(rulesCache.getRosieRules(LanguageEnumeration.PYTHON, "").isEmpty());
+    }
+
+    public void testPersistDeletesFileForEmptyCache() {
+        var rulesetNames = List.of("singleRulesetSingleLanguage");
+        diskCache.save(rulesetNames, CodigaApi.getInstance().getRulesetsForClient(rulesetNames).get(), 101L);
+        var rulesCache = new RosieRulesCache(getProject(), new SharedRosieRules(), diskCache);
+
+        rulesCache.persist();
+
+        assertNull(diskCache.load());
+    }
+
+    private static List<String> ruleIdsOf(GetRulesetsForClientQuery.RuleSetsForClient ruleset) {
+        return ruleset.rules().stream().map(rule -> String.valueOf(rule.id())).collect(toList());
+    }
+
+    private static CodigaYmlConfig codigaYmlConfig(List<String> rulesetNames) {
+        var config = new CodigaYmlConfig();
+        config.setRulesets(rulesetNames);
+        return config;
+    }
+}
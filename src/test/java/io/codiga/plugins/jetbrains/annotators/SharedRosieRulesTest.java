@@ -0,0 +1,76 @@
+package io.codiga.plugins.jetbrains.annotators;
+
+import io.codiga.api.GetRulesetsForClientQuery;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.plugins.jetbrains.graphql.CodigaApi;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.util.List;
+
+/**
+ * Tests for {@link SharedRosieRules}.
+ */
+public class SharedRosieRulesTest extends TestBase {
+
+    private SharedRosieRules sharedRules;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        sharedRules = new SharedRosieRules();
+    }
+
+    public void testSameRulesetsAreShared() {
+        var first = sharedRules.acquire(rulesets("singleRulesetSingleLanguage"));
+        var second = sharedRules.acquire(rulesets("singleRulesetSingleLanguage"));
+
+        assertEquals(1, sharedRules.getRulesetCount());
+        assertSame(first.get(0), second.get(0));
+        assertSame(first.get(0).getRulesByLanguage().get(LanguageEnumeration.PYTHON).get(0).rosieRule,
+            second.get(0).getRulesByLanguage().get(LanguageEnumeration.PYTHON).get(0).rosieRule);
+    }
+
+    public void testDifferentVersionsOfRulesetAreStoredSeparately() {
+        //Both rulesets are named 'python-ruleset', but have different rules
+        var first = sharedRules.acquire(rulesets("singleRulesetSingleLanguage"));
+        var second = sharedRules.acquire(rulesets("multipleRulesetsSingleLanguage"));
+
+        assertEquals(3, sharedRules.getRulesetCount());
+        assertNotSame(first.get(0), second.get(0));
+    }
+
+    public void testRulesetIsDroppedWhenReleasedByAllUsers() {
+        var first = sharedRules.acquire(rulesets("singleRulesetSingleLanguage"));
+        var second = sharedRules.acquire(rulesets("singleRulesetSingleLanguage"));
+
+        sharedRules.release(first);
+        assertEquals(1, sharedRules.getRulesetCount());
+
+        sharedRules.release(second);
+        assertEquals(0, sharedRules.getRulesetCount());
+    }
+
+    public void testAcquiresRegisteredRulesetsForSameNamesAndTimestamp() {
+        var rulesetNames = List.of("singleRulesetSingleLanguage");
+        var fetched = sharedRules.acquire(rulesets("singleRulesetSingleLanguage"));
+        sharedRules.register(rulesetNames, 101L, fetched);
+
+        assertTrue(sharedRules.acquire(rulesetNames, 102L).isEmpty());
+        assertTrue(sharedRules.acquire(List.of("singleRulesetMultipleLanguages"), 101L).isEmpty());
+        assertEquals(fetched, sharedRules.acquire(rulesetNames, 101L).orElseThrow());
+    }
+
+    public void testRegisteredRulesetsAreDroppedWhenReleasedByAllUsers() {
+        var rulesetNames = List.of("singleRulesetSingleLanguage");
+        var fetched = sharedRules.acquire(rulesets("singleRulesetSingleLanguage"));
+        sharedRules.register(rulesetNames, 101L, fetched);
+
+        sharedRules.release(fetched);
+
+        assertTrue(sharedRules.acquire(rulesetNames, 101L).isEmpty());
+    }
+
+    private static List<GetRulesetsForClientQuery.RuleSetsForClient> rulesets(String rulesetName) {
+        return CodigaApi.getInstance().getRulesetsForClient(List.of(rulesetName)).orElseThrow();
+    }
+}
@@ -0,0 +1,110 @@
+package io.codiga.plugins.jetbrains.cache;
+
+import io.codiga.api.GetRecipesForClientByShortcutQuery;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Unit test for {@link ShortcutCacheEntries}.
+ */
+public class ShortcutCacheEntriesTest extends TestBase {
+
+    private static final ShortcutCacheKey PYTHON_KEY = new ShortcutCacheKey(LanguageEnumeration.PYTHON, List.of());
+    private static final ShortcutCacheKey JAVA_KEY = new ShortcutCacheKey(LanguageEnumeration.JAVA, List.of());
+    private static final ShortcutCacheKey RUST_KEY = new ShortcutCacheKey(LanguageEnumeration.RUST, List.of());
+
+    public void testEvictsLeastRecentlyUsedEntryWhenFull() {
+        var entries = new ShortcutCacheEntries(2, Long.MAX_VALUE);
+        entries.put(PYTHON_KEY, value("print"));
+        entries.put(JAVA_KEY, value("sout"));
+        //Makes the Python entry the most recently used one
+        entries.get(PYTHON_KEY);
+
+        entries.put(RUST_KEY, value("spawn"));
+
+        assertEquals(2, entries.size());
+        assertNotNull(entries.get(PYTHON_KEY));
+        assertNull(entries.get(JAVA_KEY));
+        assertNotNull(entries.get(RUST_KEY));
+        assertEquals(1, entries.getEvictionCount());
+    }
+
+    public void testEvictsEntriesWhenOverWeight() {
+        var value = value("print");
+        var entries = new ShortcutCacheEntries(10, 2 * value.getWeight());
+        entries.put(PYTHON_KEY, value);
+        entries.put(JAVA_KEY, value("sout."));
+
+        entries.put(RUST_KEY, value("spawn"));
+
+        assertEquals(2, entries.size());
+        assertNull(entries.get(PYTHON_KEY));
+        assertEquals(2 * value.getWeight(), entries.getWeight());
+    }
+
+    public void testKeepsMostRecentEntryEvenIfOverWeight() {
+        var entries = new ShortcutCacheEntries(10, 1);
+        entries.put(PYTHON_KEY, value("print"));
+
+        entries.put(JAVA_KEY, value("sout"));
+
+        assertEquals(1, entries.size());
+        assertNotNull(entries.get(JAVA_KEY));
+    }
+
+    public void testReplacingEntryUpdatesWeight() {
+        var value = value("print");
+        var entries = new ShortcutCacheEntries(10, Long.MAX_VALUE);
+        entries.put(PYTHON_KEY, value("a much longer shortcut"));
+
+        entries.put(PYTHON_KEY, value);
+
+        assertEquals(1, entries.size());
+        assertEquals(value.getWeight(), entries.getWeight());
+    }
+
+    public void testRemoveIfUpdatesWeight() {
+        var value = value("print");
+        var entries = new ShortcutCacheEntries(10, Long.MAX_VALUE);
+        entries.put(PYTHON_KEY, value);
+        entries.put(JAVA_KEY, value("sout"));
+
+        assertEquals(1, entries.removeIf(cacheValue -> cacheValue != value));
+
+        assertEquals(1, entries.size());
+        assertEquals(value.getWeight(), entries.getWeight());
+    }
+
+    public void testCountsHitsAndMisses() {
+        var entries = new ShortcutCacheEntries(10, Long.MAX_VALUE);
+        entries.put(PYTHON_KEY, value("print"));
+
+        entries.get(PYTHON_KEY);
+        entries.get(PYTHON_KEY);
+        entries.get(JAVA_KEY);
+        //Peeking is not counted
+        entries.peek(JAVA_KEY);
+
+        assertEquals(2, entries.getHitCount());
+        assertEquals(1, entries.getMissCount());
+    }
+
+    private static ShortcutCacheValue value(String shortcut) {
+        var recipe = new GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut(
+            "AssistantRecipe",
+            BigDecimal.valueOf(42),
+            "Recipe " + shortcut,
+            "Y29kZQ==",
+            "Y29kZQ==",
+            List.of(shortcut),
+            List.of(),
+            LanguageEnumeration.PYTHON,
+            "Description of " + shortcut,
+            shortcut,
+            List.of());
+        return new ShortcutCacheValue(List.of(recipe), 101L);
+    }
+}
@@ -0,0 +1,80 @@
+package io.codiga.plugins.jetbrains.cache;
+
+import com.intellij.openapi.util.io.FileUtil;
+import io.codiga.api.GetRecipesForClientByShortcutQuery;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.plugins.jetbrains.graphql.CodigaApiTest;
+import io.codiga.plugins.jetbrains.graphql.TimestampedData;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Tests for {@link ShortcutCache}.
+ */
+public class ShortcutCacheTest extends TestBase {
+
+    public void testRefreshCacheKeyFetchesRecipesForNewKey() throws Exception {
+        var cacheKey = new ShortcutCacheKey(LanguageEnumeration.RUST, List.of("tokio"));
+        var shortcutCache = ShortcutCache.getInstance();
+        shortcutCache.updateLastActivityTimestamp();
+
+        shortcutCache.refreshCacheKey(cacheKey).get(5, SECONDS);
+
+        var recipes = shortcutCache.getRecipesShortcut(cacheKey);
+        assertEquals(1, recipes.size());
+        assertEquals("spawn", recipes.get(0).shortcut());
+    }
+
+    public void testGetRecipesShortcutReturnsEmptyListForUnknownKey() {
+        var cacheKey = new ShortcutCacheKey(LanguageEnumeration.PYTHON, List.of("unknown-dependency"));
+
+        assertTrue(ShortcutCache.getInstance().getRecipesShortcut(cacheKey).isEmpty());
+    }
+
+    public void testLookupOfMissingKeyReturnsImmediatelyAndRefreshesInBackground() throws Exception {
+        var cacheKey = new ShortcutCacheKey(LanguageEnumeration.RUST, List.of("async-std"));
+        var shortcutCache = ShortcutCache.getInstance();
+        shortcutCache.updateLastActivityTimestamp();
+
+        assertTrue(shortcutCache.getRecipesShortcut(cacheKey, "src/main.rs", "sp").isEmpty());
+
+        //Waits for the refresh started by the lookup
+        shortcutCache.refreshCacheKey(cacheKey).get(5, SECONDS);
+
+        assertEquals(1, shortcutCache.getRecipesShortcut(cacheKey, "src/main.rs", "sp").size());
+    }
+
+    public void testDoesntRefetchKeyWithoutRecipesBeforeRetryDelay() throws Exception {
+        var cacheDir = Files.createTempDirectory("shortcut-cache");
+        var fetchCount = new AtomicInteger();
+        var shortcutCache = new ShortcutCache(new CodigaApiTest() {
+            @Override
+            public CompletableFuture<TimestampedData<List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut>>> getRecipesForClientByShotcurtWithLastTimestampAsync(List<String> dependencies,
+                                                                                                                                                   LanguageEnumeration language,
+                                                                                                                                                   String filename) {
+                fetchCount.incrementAndGet();
+                //E.g. the Codiga API is unreachable
+                return CompletableFuture.completedFuture(new TimestampedData<>(List.of(), Optional.empty()));
+            }
+        }, new ShortcutDiskCache(cacheDir));
+        try {
+            var cacheKey = new ShortcutCacheKey(LanguageEnumeration.RUST, List.of("tokio"));
+            shortcutCache.refreshCacheKey(cacheKey).get(5, SECONDS);
+
+            assertTrue(shortcutCache.getRecipesShortcut(cacheKey).isEmpty());
+            assertTrue(shortcutCache.getRecipesShortcut(cacheKey, "src/main.rs", "sp").isEmpty());
+            shortcutCache.refreshCacheKey(cacheKey).get(5, SECONDS);
+
+            assertEquals(1, fetchCount.get());
+        } finally {
+            FileUtil.delete(cacheDir);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.codiga.plugins.jetbrains.cache;
+
+import static java.util.stream.Collectors.toList;
+
+import io.codiga.api.GetRecipesForClientByShortcutQuery;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Unit test for {@link ShortcutCacheValue}.
+ */
+public class ShortcutCacheValueTest extends TestBase {
+
+    private final ShortcutCacheValue value = new ShortcutCacheValue(List.of(
+        recipe("spawn"),
+        recipe("sleep"),
+        recipe("spawn.blocking"),
+        recipe("Spawn"),
+        recipe("select"),
+        recipe("mutex")), 101L);
+
+    public void testReturnsRecipesWithShortcutPrefix() {
+        assertEquals(List.of("spawn", "spawn.blocking"), shortcutsOf(value.getRecipesWithShortcutPrefix("sp")));
+        assertEquals(List.of("select", "sleep", "spawn", "spawn.blocking"), shortcutsOf(value.getRecipesWithShortcutPrefix("s")));
+        assertEquals(List.of("spawn.blocking"), shortcutsOf(value.getRecipesWithShortcutPrefix("spawn.")));
+    }
+
+    public void testPrefixMatchingIsCaseSensitive() {
+        assertEquals(List.of("Spawn"), shortcutsOf(value.getRecipesWithShortcutPrefix("Sp")));
+    }
+
+    public void testReturnsEmptyListForUnknownPrefix() {
+        assertTrue(value.getRecipesWithShortcutPrefix("z").isEmpty());
+        assertTrue(value.getRecipesWithShortcutPrefix("spawns").isEmpty());
+    }
+
+    public void testReturnsAllRecipesForEmptyPrefix() {
+        assertEquals(6, value.getRecipesWithShortcutPrefix("").size());
+    }
+
+    public void testHidesFileScopedRecipesForNonMatchingFiles() {
+        var fileScopedValue = new ShortcutCacheValue(List.of(
+            recipe("spawn"),
+            recipe("spawn.test", List.of("*_test.rs")),
+            recipe("spawn.bench", List.of("benches/**.rs"))), 101L);
+
+        assertEquals(List.of("spawn"), shortcutsOf(fileScopedValue.getRecipesWithShortcutPrefix("sp", "src/main.rs")));
+        assertEquals(List.of("spawn", "spawn.test"), shortcutsOf(fileScopedValue.getRecipesWithShortcutPrefix("sp", "src/spawn_test.rs")));
+        assertEquals(List.of("spawn", "spawn.bench"), shortcutsOf(fileScopedValue.getRecipesWithShortcutPrefix("sp", "benches/tokio/spawn.rs")));
+    }
+
+    public void testDoesntFilterRecipesForUnknownFile() {
+        var fileScopedValue = new ShortcutCacheValue(List.of(recipe("spawn"), recipe("spawn.test", List.of("*_test.rs"))), 101L);
+
+        assertEquals(List.of("spawn", "spawn.test"), shortcutsOf(fileScopedValue.getRecipesWithShortcutPrefix("sp", null)));
+    }
+
+    private static List<String> shortcutsOf(List<GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut> recipes) {
+        return recipes.stream().map(GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut::shortcut).collect(toList());
+    }
+
+    private static GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut recipe(String shortcut) {
+        return recipe(shortcut, List.of());
+    }
+
+    private static GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut recipe(String shortcut, List<String> filenamePatterns) {
+        return new GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut(
+            "AssistantRecipe",
+            BigDecimal.valueOf(42),
+            "Recipe " + shortcut,
+            "Y29kZQ==",
+            "Y29kZQ==",
+            List.of(shortcut),
+            List.of(),
+            LanguageEnumeration.RUST,
+            "Description of " + shortcut,
+            shortcut,
+            filenamePatterns);
+    }
+}
@@ -0,0 +1,111 @@
+package io.codiga.plugins.jetbrains.cache;
+
+import com.intellij.openapi.util.io.FileUtil;
+import io.codiga.api.GetRecipesForClientByShortcutQuery;
+import io.codiga.api.type.LanguageEnumeration;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Tests for {@link ShortcutDiskCache}.
+ */
+public class ShortcutDiskCacheTest extends TestBase {
+
+    private static final ShortcutCacheKey RUST_KEY = new ShortcutCacheKey(LanguageEnumeration.RUST, List.of("tokio"));
+
+    private Path cacheDir;
+    private ShortcutDiskCache diskCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cacheDir = Files.createTempDirectory("shortcut-cache");
+        diskCache = new ShortcutDiskCache(cacheDir);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            FileUtil.delete(cacheDir);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testLoadsSavedRecipes() {
+        var recipe = recipe();
+        diskCache.save(RUST_KEY, new ShortcutCacheValue(List.of(recipe), 102L));
+
+        var loaded = diskCache.load(new ShortcutCacheKey(LanguageEnumeration.RUST, List.of("tokio")));
+
+        assertNotNull(loaded);
+        assertEquals(102L, loaded.getLastTimestampFromServer());
+        assertEquals(1, loaded.getRecipes().size());
+        var loadedRecipe = loaded.getRecipes().get(0);
+        assertEquals(42L, ((BigDecimal) loadedRecipe.id()).longValue());
+        assertEquals(recipe.name(), loadedRecipe.name());
+        assertEquals(recipe.jetbrainsFormat(), loadedRecipe.jetbrainsFormat());
+        assertEquals(recipe.keywords(), loadedRecipe.keywords());
+        assertEquals(recipe.imports(), loadedRecipe.imports());
+        assertEquals(recipe.language(), loadedRecipe.language());
+        assertEquals(recipe.shortcut(), loadedRecipe.shortcut());
+        assertEquals(recipe.filenamePatterns(), loadedRecipe.filenamePatterns());
+    }
+
+    public void testLoadedRecipesNeedRevalidation() {
+        diskCache.save(RUST_KEY, new ShortcutCacheValue(List.of(recipe()), 102L));
+
+        assertTrue(diskCache.load(RUST_KEY).needsUpdate());
+    }
+
+    public void testReturnsNullForOtherKey() {
+        diskCache.save(RUST_KEY, new ShortcutCacheValue(List.of(recipe()), 102L));
+
+        assertNull(diskCache.load(new ShortcutCacheKey(LanguageEnumeration.RUST, List.of("serde"))));
+        assertNull(diskCache.load(new ShortcutCacheKey(LanguageEnumeration.PYTHON, List.of("tokio"))));
+    }
+
+    public void testReturnsNullForCorruptFile() throws IOException {
+        diskCache.save(RUST_KEY, new ShortcutCacheValue(List.of(recipe()), 102L));
+        try (var files = Files.list(cacheDir)) {
+            Files.writeString(files.findFirst().orElseThrow(), "{not json", StandardCharsets.UTF_8);
+        }
+
+        assertNull(diskCache.load(RUST_KEY));
+    }
+
+    public void testDeletesUnusedFiles() throws IOException {
+        diskCache.save(RUST_KEY, new ShortcutCacheValue(List.of(recipe()), 102L));
+        try (var files = Files.list(cacheDir)) {
+            Files.setLastModifiedTime(files.findFirst().orElseThrow(), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        }
+
+        diskCache.deleteUnusedFor(Duration.ofDays(1));
+
+        assertNull(diskCache.load(RUST_KEY));
+    }
+
+    private static GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut recipe() {
+        return new GetRecipesForClientByShortcutQuery.GetRecipesForClientByShortcut(
+            "AssistantRecipe",
+            BigDecimal.valueOf(42),
+            "Spawn a thread",
+            "dGhyZWFkOjpzcGF3bigpOw==",
+            "dGhyZWFkOjpzcGF3bigpOw==",
+            List.of("spawn", "thread"),
+            List.of("use std::thread;"),
+            LanguageEnumeration.RUST,
+            "Quickly spawn a thread using the std library",
+            "spawn",
+            List.of("*.rs"));
+    }
+}
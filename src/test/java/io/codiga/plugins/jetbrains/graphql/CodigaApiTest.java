@@ -21,7 +21,7 @@ import java.util.Optional;
  * <p>
  * See <a href="https://plugins.jetbrains.com/docs/intellij/plugin-services.html#declaring-a-service">Declaring a service</a>
  */
-public final class CodigaApiTest implements CodigaApi {
+public class CodigaApiTest implements CodigaApi {
 
     public boolean isWorking() {
         return true;
@@ -72,7 +72,8 @@ public final class CodigaApiTest implements CodigaApi {
             imports,
             language,
             description,
-            shortcut
+            shortcut,
+            List.of()
         );
     }
 
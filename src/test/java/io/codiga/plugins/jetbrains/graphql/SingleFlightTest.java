@@ -0,0 +1,98 @@
+package io.codiga.plugins.jetbrains.graphql;
+
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Unit test for {@link SingleFlight}.
+ */
+public class SingleFlightTest extends TestBase {
+
+    private SingleFlight singleFlight;
+    private AtomicInteger requestCount;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        singleFlight = new SingleFlight();
+        requestCount = new AtomicInteger();
+    }
+
+    public void testIdenticalRequestsInFlightShareOneRequest() {
+        var request = new CompletableFuture<String>();
+
+        var first = singleFlight.execute("key", () -> send(request), Function.identity());
+        var second = singleFlight.execute("key", () -> send(new CompletableFuture<>()), Function.identity());
+
+        assertEquals(1, requestCount.get());
+        request.complete("result");
+        assertEquals("result", first.join());
+        assertEquals("result", second.join());
+        assertEquals(0, singleFlight.getFlightCount());
+    }
+
+    public void testDifferentRequestsAreSentSeparately() {
+        singleFlight.execute("key", () -> send(new CompletableFuture<>()), Function.identity());
+        singleFlight.execute("other key", () -> send(new CompletableFuture<>()), Function.identity());
+
+        assertEquals(2, requestCount.get());
+        assertEquals(2, singleFlight.getFlightCount());
+    }
+
+    public void testCompletedRequestsAreNotShared() {
+        singleFlight.execute("key", () -> send(CompletableFuture.completedFuture("first")), Function.identity());
+        var second = singleFlight.execute("key", () -> send(CompletableFuture.completedFuture("second")), Function.identity());
+
+        assertEquals(2, requestCount.get());
+        assertEquals("second", second.join());
+    }
+
+    public void testCancellingOneCallerDoesNotCancelTheSharedRequest() {
+        var request = new CompletableFuture<String>();
+        var first = singleFlight.execute("key", () -> send(request), Function.identity());
+        var second = singleFlight.execute("key", () -> send(new CompletableFuture<>()), Function.identity());
+
+        first.cancel(true);
+
+        assertFalse(request.isCancelled());
+        request.complete("result");
+        assertEquals("result", second.join());
+    }
+
+    public void testCancellingAllCallersCancelsTheSharedRequest() {
+        var request = new CompletableFuture<String>();
+        var first = singleFlight.execute("key", () -> send(request), Function.identity());
+        var second = singleFlight.execute("key", () -> send(new CompletableFuture<>()), Function.identity());
+
+        first.cancel(true);
+        second.cancel(true);
+
+        assertTrue(request.isCancelled());
+        assertEquals(0, singleFlight.getFlightCount());
+
+        var third = singleFlight.execute("key", () -> send(CompletableFuture.completedFuture("new result")), Function.identity());
+
+        assertEquals(2, requestCount.get());
+        assertEquals("new result", third.join());
+    }
+
+    public void testEachCallerMapsTheSharedResult() {
+        var request = new CompletableFuture<String>();
+
+        CompletableFuture<Integer> length = singleFlight.execute("key", () -> send(request), String::length);
+        CompletableFuture<String> upperCase = singleFlight.execute("key", () -> send(new CompletableFuture<>()), String::toUpperCase);
+        request.complete("result");
+
+        assertEquals(1, requestCount.get());
+        assertEquals(6, length.join().intValue());
+        assertEquals("RESULT", upperCase.join());
+    }
+
+    private <T> CompletableFuture<T> send(CompletableFuture<T> request) {
+        requestCount.incrementAndGet();
+        return request;
+    }
+}
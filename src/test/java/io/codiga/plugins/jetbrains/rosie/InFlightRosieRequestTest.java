@@ -0,0 +1,80 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link InFlightRosieRequest}, using {@link RosieStandInServer}.
+ */
+public class InFlightRosieRequestTest extends TestBase {
+
+    private static final long RESPONSE_DELAY_MILLIS = 10_000L;
+
+    private RosieStandInServer server;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new RosieStandInServer(false);
+        server.setResponseDelayMillis(RESPONSE_DELAY_MILLIS);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            server.close();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testAbortsRequestBeingExecuted() throws Exception {
+        var inFlightRequest = new InFlightRosieRequest();
+        long startTime = System.currentTimeMillis();
+        var execution = CompletableFuture.runAsync(() -> {
+            try {
+                inFlightRequest.execute(RosieHttpClient.getInstance().getClient(), post()).close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        while (server.getReceivedRequests().isEmpty()) {
+            Thread.sleep(10);
+        }
+        inFlightRequest.abort();
+
+        try {
+            execution.get(RESPONSE_DELAY_MILLIS / 2, TimeUnit.MILLISECONDS);
+            fail("The request should have been aborted.");
+        } catch (ExecutionException e) {
+            assertInstanceOf(e.getCause().getCause(), IOException.class);
+        }
+        assertTrue(System.currentTimeMillis() - startTime < RESPONSE_DELAY_MILLIS);
+        assertTrue(inFlightRequest.isAborted());
+    }
+
+    public void testDoesNotExecuteRequestsAfterAbort() throws Exception {
+        var inFlightRequest = new InFlightRosieRequest();
+        inFlightRequest.abort();
+
+        try {
+            inFlightRequest.execute(RosieHttpClient.getInstance().getClient(), post());
+            fail("The request should not have been executed.");
+        } catch (IOException e) {
+            assertTrue(server.getReceivedRequests().isEmpty());
+        }
+    }
+
+    private HttpPost post() throws IOException {
+        var post = new HttpPost(server.getUrl() + "/analyze");
+        post.setEntity(new StringEntity("{}"));
+        return post;
+    }
+}
@@ -0,0 +1,84 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import static java.util.stream.Collectors.toList;
+
+import io.codiga.plugins.jetbrains.graphql.RulesetsForClientTestSupport;
+import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
+import io.codiga.plugins.jetbrains.model.rosie.RosiePosition;
+import io.codiga.plugins.jetbrains.model.rosie.RosieRule;
+import io.codiga.plugins.jetbrains.model.rosie.RosieViolation;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit test for {@link RosieAnnotationCache}.
+ */
+public class RosieAnnotationCacheTest extends TestBase {
+
+    private static final byte[] CODE = "import os".getBytes(StandardCharsets.UTF_8);
+
+    public void testReturnsCachedAnnotationsForSameKey() {
+        var cache = new RosieAnnotationCache(10);
+        var key = RosieAnnotationCache.keyOf("file.py", "python", CODE, pythonRules());
+
+        cache.put(key, List.of(annotation()));
+
+        var cached = cache.get(RosieAnnotationCache.keyOf("file.py", "python", CODE, pythonRules()));
+        assertNotNull(cached);
+        assertEquals(1, cached.size());
+    }
+
+    public void testKeyIsIndependentOfRuleOrder() {
+        var rules = pythonRules();
+        var reversedRules = new ArrayList<>(rules);
+        Collections.reverse(reversedRules);
+
+        assertEquals(
+            RosieAnnotationCache.keyOf("file.py", "python", CODE, rules),
+            RosieAnnotationCache.keyOf("file.py", "python", CODE, reversedRules));
+    }
+
+    public void testKeyChangesWhenContentOrRulesChange() {
+        var rules = pythonRules();
+        var key = RosieAnnotationCache.keyOf("file.py", "python", CODE, rules);
+
+        assertFalse(key.equals(RosieAnnotationCache.keyOf("file.py", "python", "import sys".getBytes(StandardCharsets.UTF_8), rules)));
+        assertFalse(key.equals(RosieAnnotationCache.keyOf("file.py", "python", CODE, rules.subList(0, 1))));
+        assertFalse(key.equals(RosieAnnotationCache.keyOf("other.py", "python", CODE, rules)));
+    }
+
+    public void testEvictsLeastRecentlyUsedEntry() {
+        var cache = new RosieAnnotationCache(2);
+        cache.put("first", List.of());
+        cache.put("second", List.of());
+        //Accessing the first entry makes the second one the least recently used
+        cache.get("first");
+        cache.put("third", List.of());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+    }
+
+    private static List<RosieRule> pythonRules() {
+        return RulesetsForClientTestSupport.singleRulesetSingleLanguage().stream()
+            .flatMap(ruleset -> ruleset.rules().stream().map(rule -> new RosieRule(ruleset.name(), rule)))
+            .collect(toList());
+    }
+
+    private static RosieAnnotation annotation() {
+        var violation = new RosieViolation(
+            "violation",
+            new RosiePosition(1, 1),
+            new RosiePosition(1, 5),
+            "WARNING",
+            "CODE_STYLE",
+            Collections.emptyList());
+        return new RosieAnnotation("python_rule_1", "python-ruleset", violation);
+    }
+}
@@ -0,0 +1,135 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import com.intellij.psi.PsiFile;
+import io.codiga.plugins.jetbrains.annotators.RosieRulesCache;
+import io.codiga.plugins.jetbrains.graphql.RulesetsForClientTestSupport;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Integration test for the batch requests of {@link RosieApiImpl}, using {@link RosieStandInServer}.
+ */
+public class RosieApiImplBatchTest extends TestBase {
+
+    private RosieStandInServer server;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RosieRulesCache.getInstance(getProject()).updateCacheFrom(RulesetsForClientTestSupport.singleRulesetSingleLanguage());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            if (server != null) {
+                server.close();
+            }
+            RosieRulesCache.getInstance(getProject()).clear();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testSendsFilesInBatches() throws Exception {
+        server = new RosieStandInServer(false, true);
+        var files = createPythonFiles(23);
+
+        var annotations = new RosieApiImpl(server.getUrl()).getAnnotations(files, getProject());
+
+        var requests = server.getReceivedRequests();
+        assertEquals(3, requests.size());
+        assertEquals(10, requests.get(0).getAsJsonArray("files").size());
+        assertEquals(10, requests.get(1).getAsJsonArray("files").size());
+        assertEquals(3, requests.get(2).getAsJsonArray("files").size());
+        assertEquals(23, annotations.size());
+        for (PsiFile file : files) {
+            assertEquals(1, annotations.get(file).size());
+        }
+    }
+
+    public void testDoesNotSendCachedFilesAgain() throws Exception {
+        server = new RosieStandInServer(false, true);
+        var files = createPythonFiles(3);
+        var rosieApi = new RosieApiImpl(server.getUrl());
+
+        rosieApi.getAnnotations(files, getProject());
+        var annotations = rosieApi.getAnnotations(files, getProject());
+
+        assertEquals(1, server.getReceivedRequests().size());
+        for (PsiFile file : files) {
+            assertEquals(1, annotations.get(file).size());
+        }
+    }
+
+    public void testFallsBackToSingleFileRequestsWhenBatchesAreNotSupported() throws Exception {
+        server = new RosieStandInServer(false, false);
+        var files = createPythonFiles(3);
+
+        var annotations = new RosieApiImpl(server.getUrl()).getAnnotations(files, getProject());
+
+        var requests = server.getReceivedRequests();
+        assertEquals(3, requests.size());
+        assertTrue(requests.stream().allMatch(request -> request.has("filename")));
+        for (PsiFile file : files) {
+            assertEquals(1, annotations.get(file).size());
+        }
+    }
+
+    public void testLeavesOutFilesOfFailedBatch() throws Exception {
+        server = new RosieStandInServer(false, true);
+        server.failNextRequests(1, 503);
+        var files = createPythonFiles(13);
+
+        var annotations = new RosieApiImpl(server.getUrl()).getAnnotations(files, getProject());
+
+        assertEquals(2, server.getReceivedRequests().size());
+        //The first batch failed, the second one succeeded
+        assertEquals(3, annotations.size());
+        for (PsiFile file : files.subList(0, 10)) {
+            assertFalse(annotations.containsKey(file));
+        }
+    }
+
+    public void testKeepsSendingBatchesAfterServerError() throws Exception {
+        server = new RosieStandInServer(false, true);
+        server.failNextRequests(1, 503);
+        var files = createPythonFiles(3);
+        var rosieApi = new RosieApiImpl(server.getUrl());
+
+        rosieApi.getAnnotations(files, getProject());
+        var annotations = rosieApi.getAnnotations(files, getProject());
+
+        var requests = server.getReceivedRequests();
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(1).has("files"));
+        for (PsiFile file : files) {
+            assertEquals(1, annotations.get(file).size());
+        }
+    }
+
+    public void testSendsOneRequestPerTenFilesInsteadOfOnePerFile() throws Exception {
+        server = new RosieStandInServer(false, true);
+        var files = createPythonFiles(31);
+
+        var rosieApi = new RosieApiImpl(server.getUrl());
+        for (PsiFile file : files) {
+            rosieApi.getAnnotations(file, getProject());
+        }
+        assertEquals(31, server.getReceivedRequests().size());
+
+        new RosieApiImpl(server.getUrl()).getAnnotations(files, getProject());
+        //ceil(31 / 10) batch requests
+        assertEquals(31 + 4, server.getReceivedRequests().size());
+    }
+
+    private List<PsiFile> createPythonFiles(int count) {
+        var files = new ArrayList<PsiFile>(count);
+        for (int i = 0; i < count; i++) {
+            files.add(myFixture.addFileToProject("file" + i + ".py", "import module" + i));
+        }
+        return files;
+    }
+}
@@ -0,0 +1,80 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import io.codiga.plugins.jetbrains.annotators.RosieRulesCache;
+import io.codiga.plugins.jetbrains.graphql.RulesetsForClientTestSupport;
+import io.codiga.plugins.jetbrains.settings.application.AppSettingsState;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.util.List;
+
+/**
+ * Integration test for the gzip compression of the requests of {@link RosieApiImpl}, using {@link RosieStandInServer}.
+ */
+public class RosieApiImplCompressionTest extends TestBase {
+
+    private RosieStandInServer server;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RosieRulesCache.getInstance(getProject()).updateCacheFrom(RulesetsForClientTestSupport.singleRulesetSingleLanguage());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            if (server != null) {
+                server.close();
+            }
+            AppSettingsState.getInstance().setUseRosieRuleReferences(false);
+            RosieRulesCache.getInstance(getProject()).clear();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testSendsCompressedRequests() throws Exception {
+        server = new RosieStandInServer(false);
+
+        var annotations = new RosieApiImpl(server.getUrl()).getAnnotations(myFixture.configureByText("first.py", "import os"), getProject());
+
+        assertEquals(1, annotations.size());
+        assertEquals(List.of("gzip"), server.getReceivedContentEncodings());
+        var request = server.getReceivedRequests().get(0);
+        assertEquals("first.py", request.get("filename").getAsString());
+        assertEquals(3, request.getAsJsonArray("rules").size());
+    }
+
+    public void testFallsBackToUncompressedRequestsWhenCompressionIsRejected() throws Exception {
+        server = new RosieStandInServer(false);
+        server.setRejectCompressedRequests(true);
+        var rosieApi = new RosieApiImpl(server.getUrl());
+
+        var annotations = rosieApi.getAnnotations(myFixture.configureByText("first.py", "import os"), getProject());
+
+        assertEquals(1, annotations.size());
+        assertEquals(List.of("gzip", "identity"), server.getReceivedContentEncodings());
+
+        annotations = rosieApi.getAnnotations(myFixture.configureByText("second.py", "import sys"), getProject());
+
+        assertEquals(1, annotations.size());
+        assertEquals(List.of("gzip", "identity", "identity"), server.getReceivedContentEncodings());
+    }
+
+    public void testDoesntResendBadRequestUncompressedOnceCompressionIsAccepted() throws Exception {
+        server = new RosieStandInServer(false);
+        var rosieApi = new RosieApiImpl(server.getUrl());
+        rosieApi.getAnnotations(myFixture.configureByText("first.py", "import os"), getProject());
+
+        //The stand-in server doesn't support rule references, so it rejects them with a 400
+        AppSettingsState.getInstance().setUseRosieRuleReferences(true);
+        var annotations = rosieApi.getAnnotations(myFixture.configureByText("second.py", "import sys"), getProject());
+
+        assertEquals(1, annotations.size());
+        var requests = server.getReceivedRequests();
+        assertEquals(3, requests.size());
+        assertTrue(requests.get(1).has("ruleReferences"));
+        assertTrue(requests.get(2).has("rules"));
+        assertEquals(List.of("gzip", "gzip", "gzip"), server.getReceivedContentEncodings());
+    }
+}
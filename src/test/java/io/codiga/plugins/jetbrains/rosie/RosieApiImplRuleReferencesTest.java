@@ -0,0 +1,112 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import io.codiga.plugins.jetbrains.annotators.RosieRulesCache;
+import io.codiga.plugins.jetbrains.graphql.RulesetsForClientTestSupport;
+import io.codiga.plugins.jetbrains.settings.application.AppSettingsState;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.util.List;
+
+/**
+ * Integration test for the rule reference protocol of {@link RosieApiImpl}, using {@link RosieStandInServer}.
+ */
+public class RosieApiImplRuleReferencesTest extends TestBase {
+
+    private RosieStandInServer server;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RosieRulesCache.getInstance(getProject()).updateCacheFrom(RulesetsForClientTestSupport.singleRulesetSingleLanguage());
+        AppSettingsState.getInstance().setUseRosieRuleReferences(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            if (server != null) {
+                server.close();
+            }
+            AppSettingsState.getInstance().setUseRosieRuleReferences(false);
+            RosieRulesCache.getInstance(getProject()).clear();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testUploadsFullRulesOnlyOnCacheMiss() throws Exception {
+        server = new RosieStandInServer(true);
+        var rosieApi = new RosieApiImpl(server.getUrl());
+
+        var annotations = rosieApi.getAnnotations(myFixture.configureByText("first.py", "import os"), getProject());
+
+        assertEquals(1, annotations.size());
+        var requests = server.getReceivedRequests();
+        assertEquals(2, requests.size());
+        assertFalse(requests.get(0).has("rules"));
+        assertTrue(requests.get(0).has("ruleReferences"));
+        assertTrue(requests.get(1).has("rules"));
+        assertTrue(requests.get(1).has("rulesDigest"));
+
+        annotations = rosieApi.getAnnotations(myFixture.configureByText("second.py", "import sys"), getProject());
+
+        assertEquals(1, annotations.size());
+        assertEquals(3, requests.size());
+        assertFalse(requests.get(2).has("rules"));
+        assertEquals(requests.get(1).get("rulesDigest"), requests.get(2).get("rulesDigest"));
+    }
+
+    public void testFallsBackToFullRulesWhenRuleReferencesAreNotSupported() throws Exception {
+        server = new RosieStandInServer(false);
+        var rosieApi = new RosieApiImpl(server.getUrl());
+
+        var annotations = rosieApi.getAnnotations(myFixture.configureByText("first.py", "import os"), getProject());
+
+        assertEquals(1, annotations.size());
+        var requests = server.getReceivedRequests();
+        //Until Rosie accepts a compressed request, a 400 is retried uncompressed once
+        assertEquals(3, requests.size());
+        assertEquals(List.of("gzip", "identity", "gzip"), server.getReceivedContentEncodings());
+        assertTrue(requests.get(2).has("rules"));
+
+        annotations = rosieApi.getAnnotations(myFixture.configureByText("second.py", "import sys"), getProject());
+
+        assertEquals(1, annotations.size());
+        assertEquals(4, requests.size());
+        assertTrue(requests.get(3).has("rules"));
+    }
+
+    public void testKeepsRuleReferencesAfterServerError() throws Exception {
+        server = new RosieStandInServer(true);
+        server.failNextRequests(1, 503);
+        var rosieApi = new RosieApiImpl(server.getUrl());
+
+        var annotations = rosieApi.getAnnotations(myFixture.configureByText("first.py", "import os"), getProject());
+
+        assertTrue(annotations.isEmpty());
+        var requests = server.getReceivedRequests();
+        assertEquals(1, requests.size());
+
+        annotations = rosieApi.getAnnotations(myFixture.configureByText("second.py", "import sys"), getProject());
+
+        assertEquals(1, annotations.size());
+        assertEquals(3, requests.size());
+        assertFalse(requests.get(1).has("rules"));
+        assertTrue(requests.get(1).has("ruleReferences"));
+        assertTrue(requests.get(2).has("rules"));
+    }
+
+    public void testSendsFullRulesWhenRuleReferencesAreDisabled() throws Exception {
+        AppSettingsState.getInstance().setUseRosieRuleReferences(false);
+        server = new RosieStandInServer(true);
+        var rosieApi = new RosieApiImpl(server.getUrl());
+
+        var annotations = rosieApi.getAnnotations(myFixture.configureByText("first.py", "import os"), getProject());
+
+        assertEquals(1, annotations.size());
+        var requests = server.getReceivedRequests();
+        assertEquals(1, requests.size());
+        assertTrue(requests.get(0).has("rules"));
+        assertFalse(requests.get(0).has("rulesDigest"));
+    }
+}
@@ -0,0 +1,120 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+/**
+ * Unit test for {@link RosieCircuitBreaker}.
+ */
+public class RosieCircuitBreakerTest extends TestBase {
+
+    private static final long COOL_DOWN_MILLIS = 1_000L;
+
+    private long now;
+    private RosieCircuitBreaker circuitBreaker;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        circuitBreaker = new RosieCircuitBreaker(3, COOL_DOWN_MILLIS, () -> now);
+    }
+
+    public void testOpensAfterConsecutiveFailures() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordFailure();
+
+        assertEquals(RosieCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    public void testSuccessResetsFailureCount() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+
+        assertEquals(RosieCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    public void testLetsSingleTrialRequestThroughAfterCoolDown() {
+        open();
+        now += COOL_DOWN_MILLIS;
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertEquals(RosieCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    public void testClosesWhenTrialRequestSucceeds() {
+        open();
+        now += COOL_DOWN_MILLIS;
+        circuitBreaker.allowRequest();
+
+        circuitBreaker.recordSuccess();
+
+        assertEquals(RosieCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    public void testReopensWhenTrialRequestFails() {
+        open();
+        now += COOL_DOWN_MILLIS;
+        circuitBreaker.allowRequest();
+
+        circuitBreaker.recordFailure();
+
+        assertEquals(RosieCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+        now += COOL_DOWN_MILLIS;
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    public void testAllowsNewTrialWhenTrialRequestIsReleased() {
+        open();
+        now += COOL_DOWN_MILLIS;
+        circuitBreaker.allowRequest();
+
+        circuitBreaker.releaseTrial();
+
+        assertEquals(RosieCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    public void testReleasesTrialWhenTrialRequestFailsUnexpectedly() {
+        open();
+        now += COOL_DOWN_MILLIS;
+
+        try (var attempt = circuitBreaker.tryAcquire()) {
+            assertNotNull(attempt);
+            assertEquals(RosieCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+            throw new IllegalStateException("Connection pool shut down");
+        } catch (IllegalStateException expected) {
+            //The request failed before its outcome could be recorded
+        }
+
+        assertEquals(RosieCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertNotNull(circuitBreaker.tryAcquire());
+        assertEquals(RosieCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    public void testDoesntReleaseTrialWhenOutcomeIsRecorded() {
+        open();
+        now += COOL_DOWN_MILLIS;
+
+        try (var attempt = circuitBreaker.tryAcquire()) {
+            assertNotNull(attempt);
+            attempt.recordSuccess();
+        }
+
+        assertEquals(RosieCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    private void open() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+    }
+}
@@ -0,0 +1,124 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import io.codiga.plugins.jetbrains.graphql.RulesetsForClientTestSupport;
+import io.codiga.plugins.jetbrains.model.rosie.RosieAnnotation;
+import io.codiga.plugins.jetbrains.model.rosie.RosiePosition;
+import io.codiga.plugins.jetbrains.model.rosie.RosieRule;
+import io.codiga.plugins.jetbrains.model.rosie.RosieViolation;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Unit test for {@link RosieIncrementalAnalysis}.
+ */
+public class RosieIncrementalAnalysisTest extends TestBase {
+
+    private static final int FUNCTION_COUNT = RosieIncrementalAnalysis.MIN_LINE_COUNT;
+    /**
+     * Long enough for functions not to be sent as context.
+     */
+    private static final String FUNCTION_BODY = "    return '" + "x".repeat(200) + "'";
+
+    private PsiFile psiFile;
+    private Document document;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        var code = new StringBuilder("import os\n\n");
+        for (int i = 0; i < FUNCTION_COUNT; i++) {
+            code.append("def function_").append(i).append("():\n").append(FUNCTION_BODY).append("\n");
+        }
+        psiFile = myFixture.configureByText("incremental.py", code.toString());
+        document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+    }
+
+    public void testDoesNotPlanSmallFiles() {
+        var smallFile = myFixture.configureByText("small.py", "def function():\n    pass\n");
+
+        assertNull(RosieIncrementalAnalysis.plan(smallFile, rules()));
+    }
+
+    public void testPlansFullAnalysisWithoutPreviousAnalysis() {
+        var analysis = RosieIncrementalAnalysis.plan(psiFile, rules());
+
+        assertNotNull(analysis);
+        assertTrue(analysis.isFull());
+        assertEquals(document.getText(), analysis.getCode());
+    }
+
+    public void testPlansFullAnalysisWhenRulesChange() {
+        RosieIncrementalAnalysis.plan(psiFile, rules()).save(List.of());
+        editFunctionBody(10);
+
+        var analysis = RosieIncrementalAnalysis.plan(psiFile, rules().subList(0, 1));
+
+        assertNotNull(analysis);
+        assertTrue(analysis.isFull());
+    }
+
+    public void testSendsOnlyChangedFunctionAndContext() {
+        RosieIncrementalAnalysis.plan(psiFile, rules()).save(List.of());
+        editFunctionBody(10);
+
+        var analysis = RosieIncrementalAnalysis.plan(psiFile, rules());
+
+        assertNotNull(analysis);
+        assertFalse(analysis.isFull());
+        String[] lines = analysis.getCode().split("\n", -1);
+        assertEquals(document.getLineCount(), lines.length);
+        assertEquals("import os", lines[0]);
+        assertEquals("", lines[20]);
+        assertEquals("def function_10():", lines[22]);
+        assertEquals("    x = 1", lines[23]);
+        assertEquals(FUNCTION_BODY, lines[24]);
+        assertEquals("", lines[25]);
+        assertTrue(analysis.getCode().length() < document.getTextLength() / 10);
+    }
+
+    public void testMergesNewAnnotationsWithCarriedOverOnes() {
+        //function_100 starts on line 203, and the body of function_10 is on line 24 (1-based)
+        RosieIncrementalAnalysis.plan(psiFile, rules()).save(List.of(annotationAt(203), annotationAt(24)));
+        editFunctionBody(10);
+
+        var analysis = RosieIncrementalAnalysis.plan(psiFile, rules());
+        var merged = analysis.merge(List.of(annotationAt(25), annotationAt(1)));
+
+        var lines = merged.stream().map(annotation -> annotation.getStart().line).sorted().collect(toList());
+        //The annotation of function_100 is moved down by the inserted line, the old annotation of function_10 is replaced,
+        // and the one in the import, which is only context, is discarded
+        assertEquals(List.of(25, 204), lines);
+    }
+
+    /**
+     * Inserts a line at the beginning of the body of the argument function.
+     */
+    private void editFunctionBody(int functionIndex) {
+        //0-based line of the body
+        int bodyLine = 2 + functionIndex * 2 + 1;
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.insertString(document.getLineStartOffset(bodyLine), "    x = 1\n");
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+    }
+
+    private static RosieAnnotation annotationAt(int line) {
+        var violation = new RosieViolation("violation", new RosiePosition(line, 1), new RosiePosition(line, 5),
+            "WARNING", "BEST_PRACTICE", Collections.emptyList());
+        return new RosieAnnotation("python_rule_1", "python-ruleset", violation);
+    }
+
+    private static List<RosieRule> rules() {
+        return RulesetsForClientTestSupport.singleRulesetSingleLanguage().stream()
+            .flatMap(ruleset -> ruleset.rules().stream().map(rule -> new RosieRule(ruleset.name(), rule)))
+            .collect(toList());
+    }
+}
@@ -0,0 +1,50 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import com.google.gson.Gson;
+import io.codiga.plugins.jetbrains.model.rosie.RosieRequest;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Unit test for {@link RosieRequestEntity}.
+ */
+public class RosieRequestEntityTest extends TestBase {
+
+    private static final Gson GSON = new Gson();
+
+    public void testWritesSameJsonAsGson() throws IOException {
+        var request = request();
+
+        assertEquals(GSON.toJson(request), write(new RosieRequestEntity(request, GSON)));
+    }
+
+    public void testCanBeWrittenMultipleTimes() throws IOException {
+        var entity = new RosieRequestEntity(request(), GSON);
+
+        assertTrue(entity.isRepeatable());
+        assertEquals(write(entity), write(entity));
+    }
+
+    public void testHasJsonContentTypeAndUnknownLength() {
+        var entity = new RosieRequestEntity(request(), GSON);
+
+        assertEquals("application/json; charset=UTF-8", entity.getContentType().getValue());
+        assertEquals(-1, entity.getContentLength());
+    }
+
+    private static RosieRequest request() {
+        String codeBase64 = Base64.getEncoder().encodeToString("print(\"é\")".getBytes(StandardCharsets.UTF_8));
+        return new RosieRequest("file.py", "python", "utf8", codeBase64, List.of(), true);
+    }
+
+    private static String write(RosieRequestEntity entity) throws IOException {
+        var output = new ByteArrayOutputStream();
+        entity.writeTo(output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
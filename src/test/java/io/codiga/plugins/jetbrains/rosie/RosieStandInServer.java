@@ -0,0 +1,264 @@
+package io.codiga.plugins.jetbrains.rosie;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A local stand-in for the Rosie service, for testing the protocol between the plugin and Rosie.
+ * <p>
+ * It doesn't analyse the code. For each request it returns one violation for the first rule, and no violation
+ * for the rest of the rules.
+ * <p>
+ * Rule references are supported only when the server is created with {@code supportsRuleReferences = true}, otherwise
+ * requests without full rules are rejected with a 400 status code, like a service not aware of rule references would do.
+ * <p>
+ * Batch requests are supported only when the server is created with {@code supportsBatchRequests = true}, otherwise
+ * they get a 404 status code. Each file of a batch gets the same response as a single-file request.
+ * <p>
+ * Transient server errors can be simulated via {@link #failNextRequests(int, int)}. A service not accepting
+ * gzip-compressed requests can be simulated via {@link #setRejectCompressedRequests(boolean)}.
+ */
+public final class RosieStandInServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final boolean supportsRuleReferences;
+    /**
+     * [rules digest] -> [rule ids], the rules uploaded along with a digest.
+     */
+    private final Map<String, List<String>> ruleIdsByDigest = new ConcurrentHashMap<>();
+    private final List<JsonObject> receivedRequests = new CopyOnWriteArrayList<>();
+    private volatile long responseDelayMillis;
+    private final AtomicInteger remainingFailures = new AtomicInteger();
+    private volatile int failureStatusCode;
+    private final List<String> receivedContentEncodings = new CopyOnWriteArrayList<>();
+    private volatile boolean rejectCompressedRequests;
+
+    public RosieStandInServer(boolean supportsRuleReferences) throws IOException {
+        this(supportsRuleReferences, false);
+    }
+
+    public RosieStandInServer(boolean supportsRuleReferences, boolean supportsBatchRequests) throws IOException {
+        this.supportsRuleReferences = supportsRuleReferences;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/analyze", this::handle);
+        if (supportsBatchRequests) {
+            this.server.createContext("/analyze-batch", this::handleBatch);
+        }
+        //Handles requests concurrently, so that a delayed response doesn't hold back other requests
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /**
+     * Returns the base URL of the server, to which the paths of the endpoints are appended.
+     */
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Delays each response by the argument amount of time, to simulate long-running analyses.
+     */
+    public void setResponseDelayMillis(long responseDelayMillis) {
+        this.responseDelayMillis = responseDelayMillis;
+    }
+
+    /**
+     * Responds to the next argument number of requests with the argument status code, e.g. 503 for an overloaded service.
+     */
+    public void failNextRequests(int count, int statusCode) {
+        this.failureStatusCode = statusCode;
+        this.remainingFailures.set(count);
+    }
+
+    /**
+     * Rejects gzip-compressed requests with a 415 status code, like a service not accepting compressed requests would do.
+     */
+    public void setRejectCompressedRequests(boolean rejectCompressedRequests) {
+        this.rejectCompressedRequests = rejectCompressedRequests;
+    }
+
+    /**
+     * Returns the {@code Content-Encoding} header of the requests received so far, "identity" if there was none,
+     * in the order they were received.
+     */
+    public List<String> getReceivedContentEncodings() {
+        return receivedContentEncodings;
+    }
+
+    /**
+     * Returns the JSON bodies of the requests received so far, in the order they were received.
+     */
+    public List<JsonObject> getReceivedRequests() {
+        return receivedRequests;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonObject request = readRequest(exchange);
+        receivedRequests.add(request);
+        delayResponse();
+        if (respondWithFailure(exchange) || rejectCompressedRequest(exchange)) {
+            return;
+        }
+
+        List<String> ruleIds;
+        if (request.has("rules")) {
+            ruleIds = new ArrayList<>();
+            for (JsonElement rule : request.getAsJsonArray("rules")) {
+                ruleIds.add(rule.getAsJsonObject().get("id").getAsString());
+            }
+            if (request.has("rulesDigest")) {
+                ruleIdsByDigest.put(request.get("rulesDigest").getAsString(), ruleIds);
+            }
+        } else if (supportsRuleReferences && request.has("rulesDigest")) {
+            ruleIds = ruleIdsByDigest.get(request.get("rulesDigest").getAsString());
+            if (ruleIds == null) {
+                respond(exchange, 200, "{\"rulesCacheMiss\":true}");
+                return;
+            }
+        } else {
+            respond(exchange, 400, "{\"errors\":[\"no rules sent\"]}");
+            return;
+        }
+
+        respond(exchange, 200, responseFor(ruleIds).toString());
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        JsonObject request = readRequest(exchange);
+        receivedRequests.add(request);
+        delayResponse();
+        if (respondWithFailure(exchange) || rejectCompressedRequest(exchange)) {
+            return;
+        }
+
+        var ruleIds = new ArrayList<String>();
+        for (JsonElement rule : request.getAsJsonArray("rules")) {
+            ruleIds.add(rule.getAsJsonObject().get("id").getAsString());
+        }
+        var fileResponses = new JsonArray();
+        for (JsonElement file : request.getAsJsonArray("files")) {
+            JsonObject fileResponse = responseFor(ruleIds);
+            fileResponse.addProperty("id", file.getAsJsonObject().get("id").getAsString());
+            fileResponses.add(fileResponse);
+        }
+        var response = new JsonObject();
+        response.add("fileResponses", fileResponses);
+        response.add("errors", new JsonArray());
+        respond(exchange, 200, response.toString());
+    }
+
+    private void delayResponse() {
+        if (responseDelayMillis > 0) {
+            try {
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean respondWithFailure(HttpExchange exchange) throws IOException {
+        if (remainingFailures.getAndUpdate(count -> Math.max(0, count - 1)) == 0) {
+            return false;
+        }
+        respond(exchange, failureStatusCode, "{\"errors\":[\"service unavailable\"]}");
+        return true;
+    }
+
+    private boolean rejectCompressedRequest(HttpExchange exchange) throws IOException {
+        if (!rejectCompressedRequests || !isCompressed(exchange)) {
+            return false;
+        }
+        respond(exchange, 415, "{\"errors\":[\"unsupported content encoding\"]}");
+        return true;
+    }
+
+    private static boolean isCompressed(HttpExchange exchange) {
+        return "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+    }
+
+    private JsonObject readRequest(HttpExchange exchange) throws IOException {
+        String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        receivedContentEncodings.add(contentEncoding != null ? contentEncoding : "identity");
+        InputStream body = exchange.getRequestBody();
+        if (isCompressed(exchange)) {
+            body = new GZIPInputStream(body);
+        }
+        try (var reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        }
+    }
+
+    private static JsonObject responseFor(List<String> ruleIds) {
+        var ruleResponses = new JsonArray();
+        for (int i = 0; i < ruleIds.size(); i++) {
+            var ruleResponse = new JsonObject();
+            ruleResponse.addProperty("identifier", ruleIds.get(i));
+            var violations = new JsonArray();
+            if (i == 0) {
+                violations.add(violation());
+            }
+            ruleResponse.add("violations", violations);
+            ruleResponse.add("errors", new JsonArray());
+            ruleResponses.add(ruleResponse);
+        }
+        var response = new JsonObject();
+        response.add("ruleResponses", ruleResponses);
+        response.add("errors", new JsonArray());
+        return response;
+    }
+
+    private static JsonObject violation() {
+        var violation = new JsonObject();
+        violation.addProperty("message", "stand-in violation");
+        violation.add("start", position(1, 1));
+        violation.add("end", position(1, 5));
+        violation.addProperty("severity", "WARNING");
+        violation.addProperty("category", "BEST_PRACTICE");
+        violation.add("fixes", new JsonArray());
+        return violation;
+    }
+
+    private static JsonObject position(int line, int col) {
+        var position = new JsonObject();
+        position.addProperty("line", line);
+        position.addProperty("col", col);
+        return position;
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (var responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,86 @@
+package io.codiga.plugins.jetbrains.starter;
+
+import static io.codiga.plugins.jetbrains.rosie.CodigaConfigFileUtil.findCodigaConfigFile;
+
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.util.WaitFor;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Integration test for {@link CodigaConfigFileWatcher}.
+ */
+public class CodigaConfigFileWatcherTest extends TestBase {
+
+    private AtomicInteger changeCount;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        changeCount = new AtomicInteger();
+        CodigaConfigFileWatcher.watch(getProject(), changeCount::incrementAndGet, getTestRootDisposable(), 0L);
+    }
+
+    public void testNotifiesWhenCodigaConfigFileIsCreated() {
+        myFixture.addFileToProject("codiga.yml", "rulesets:\n  - python-ruleset");
+
+        waitForChange();
+    }
+
+    public void testNotifiesWhenCodigaConfigFileIsEdited() {
+        myFixture.addFileToProject("codiga.yml", "rulesets:\n  - python-ruleset");
+        waitForChange();
+        changeCount.set(0);
+
+        var document = PsiDocumentManager.getInstance(getProject()).getDocument(findCodigaConfigFile(getProject()));
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.insertString(document.getTextLength(), "\n  - java-ruleset");
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        waitForChange();
+    }
+
+    public void testNotifiesWhenCodigaConfigFileIsDeleted() throws IOException {
+        var codigaConfigFile = myFixture.addFileToProject("codiga.yml", "rulesets:\n  - python-ruleset").getVirtualFile();
+        waitForChange();
+        changeCount.set(0);
+
+        WriteAction.runAndWait(() -> codigaConfigFile.delete(this));
+
+        waitForChange();
+    }
+
+    public void testDoesntNotifyForOtherFiles() throws IOException {
+        var projectDir = ProjectUtil.guessProjectDir(getProject());
+        WriteAction.runAndWait(() -> {
+            VfsUtil.saveText(projectDir.createChildData(this, "other.yml"), "rulesets:\n  - python-ruleset");
+            VfsUtil.saveText(projectDir.createChildDirectory(this, "module").createChildData(this, "codiga.yml"), "rulesets:\n  - python-ruleset");
+        });
+
+        //Gives a wrongly scheduled notification the chance to arrive
+        new WaitFor(200, 10) {
+            @Override
+            protected boolean condition() {
+                return changeCount.get() > 0;
+            }
+        };
+        assertEquals(0, changeCount.get());
+    }
+
+    private void waitForChange() {
+        new WaitFor(2000, 10) {
+            @Override
+            protected boolean condition() {
+                return changeCount.get() > 0;
+            }
+        };
+        assertTrue(changeCount.get() > 0);
+    }
+}
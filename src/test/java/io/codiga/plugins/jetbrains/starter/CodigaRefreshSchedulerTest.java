@@ -0,0 +1,154 @@
+package io.codiga.plugins.jetbrains.starter;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import io.codiga.api.GetRulesetsForClientQuery;
+import io.codiga.plugins.jetbrains.annotators.RosieRulesCache;
+import io.codiga.plugins.jetbrains.graphql.CodigaApiTest;
+import io.codiga.plugins.jetbrains.graphql.TimestampedData;
+import io.codiga.plugins.jetbrains.rosie.model.codiga.CodigaYmlConfig;
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Integration test for the Rosie rules polling of {@link CodigaRefreshScheduler}, with two projects.
+ */
+public class CodigaRefreshSchedulerTest extends TestBase {
+
+    private static final String RULESET_OF_PROJECT = "singleRulesetSingleLanguage";
+    private static final String RULESET_OF_OTHER_PROJECT = "singleRulesetMultipleLanguages";
+
+    private FakeCodigaApi codigaApi;
+    private CodigaRefreshScheduler scheduler;
+    private RosieRulesCache rulesCache;
+    private RosieRulesCache otherRulesCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        codigaApi = new FakeCodigaApi();
+        scheduler = new CodigaRefreshScheduler(codigaApi);
+        rulesCache = register(getProject(), RULESET_OF_PROJECT);
+        otherRulesCache = register(otherProject(), RULESET_OF_OTHER_PROJECT);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            scheduler.dispose();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testQueriesTimestampOnceForAllProjects() {
+        codigaApi.serverTimestamp = 1001L;
+
+        scheduler.pollRosieRules();
+
+        assertEquals(List.of(List.of(RULESET_OF_OTHER_PROJECT, RULESET_OF_PROJECT)), codigaApi.timestampQueries);
+        assertEquals(1001L, rulesCache.getLastUpdatedTimeStamp());
+        assertEquals(1001L, otherRulesCache.getLastUpdatedTimeStamp());
+    }
+
+    public void testDoesntAskProjectsToUpdateWhileUnionIsUnchanged() {
+        codigaApi.serverTimestamp = 1002L;
+        scheduler.pollRosieRules();
+        //If the projects were asked to update, they would restore this timestamp
+        rulesCache.setLastUpdatedTimeStamp(1L);
+        otherRulesCache.setLastUpdatedTimeStamp(1L);
+
+        scheduler.pollRosieRules();
+
+        assertEquals(2, codigaApi.timestampQueries.size());
+        assertEquals(1L, rulesCache.getLastUpdatedTimeStamp());
+        assertEquals(1L, otherRulesCache.getLastUpdatedTimeStamp());
+    }
+
+    public void testRetriesFailedFetchAtNextPoll() {
+        codigaApi.serverTimestamp = 1003L;
+        codigaApi.unavailableRulesets.add(RULESET_OF_PROJECT);
+        scheduler.pollRosieRules();
+
+        assertEquals(1, codigaApi.getRulesetsQueryCount(RULESET_OF_PROJECT));
+        assertTrue(rulesCache.getLastUpdatedTimeStamp() != 1003L);
+        assertEquals(1003L, otherRulesCache.getLastUpdatedTimeStamp());
+
+        //The union and its timestamp are unchanged, only the failed project is asked again
+        codigaApi.unavailableRulesets.clear();
+        scheduler.pollRosieRules();
+
+        assertEquals(2, codigaApi.getRulesetsQueryCount(RULESET_OF_PROJECT));
+        assertEquals(1, codigaApi.getRulesetsQueryCount(RULESET_OF_OTHER_PROJECT));
+        assertEquals(1003L, rulesCache.getLastUpdatedTimeStamp());
+    }
+
+    //Helpers
+
+    private RosieRulesCache register(Project project, String rulesetName) {
+        var cache = new RosieRulesCache(project);
+        Disposer.register(getTestRootDisposable(), cache);
+        var config = new CodigaYmlConfig();
+        config.setRulesets(List.of(rulesetName));
+        cache.setCodigaYmlConfig(config);
+        scheduler.registerRosieRulesUpdater(project, new RosieRulesCacheUpdateHandler(cache, project, codigaApi), getTestRootDisposable());
+        return cache;
+    }
+
+    /**
+     * Returns a project distinct from the test project, that delegates everything else to it.
+     */
+    private Project otherProject() {
+        var project = getProject();
+        return (Project) Proxy.newProxyInstance(Project.class.getClassLoader(), new Class[]{Project.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                case "getLocationHash":
+                case "toString":
+                    return "other-project";
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return method.invoke(project, args);
+            }
+        });
+    }
+
+    /**
+     * Records the ruleset queries, and fails the ones for the rulesets marked as unavailable.
+     */
+    private static final class FakeCodigaApi extends CodigaApiTest {
+        private final List<List<String>> timestampQueries = new ArrayList<>();
+        private final List<List<String>> rulesetsQueries = new ArrayList<>();
+        private final Set<String> unavailableRulesets = new HashSet<>();
+        private volatile long serverTimestamp;
+
+        @Override
+        public synchronized Optional<Long> getRulesetsLastTimestamp(List<String> ruleNames) {
+            timestampQueries.add(ruleNames);
+            return Optional.of(serverTimestamp);
+        }
+
+        @Override
+        public synchronized Optional<TimestampedData<List<GetRulesetsForClientQuery.RuleSetsForClient>>> getRulesetsForClientWithLastTimestamp(List<String> ruleNames) {
+            rulesetsQueries.add(ruleNames);
+            if (ruleNames.stream().anyMatch(unavailableRulesets::contains)) {
+                return Optional.empty();
+            }
+            return getRulesetsForClient(ruleNames).map(rulesets -> new TimestampedData<>(rulesets, Optional.of(serverTimestamp)));
+        }
+
+        synchronized int getRulesetsQueryCount(String rulesetName) {
+            return Collections.frequency(rulesetsQueries, List.of(rulesetName));
+        }
+    }
+}
@@ -17,7 +17,7 @@ public class RosieRulesCacheUpdateHandlerNoRulesetTest extends TestBase {
         myFixture.copyFileToProject("codiga.yml");
         RosieRulesCache rulesCache = RosieRulesCache.getInstance(getProject());
 
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleConfigFileChange();
 
         validateThatCacheIsEmpty(rulesCache);
     }
@@ -41,7 +41,7 @@ public class RosieRulesCacheUpdateHandlerTest extends TestBase {
 
         assertSize(3, rulesCache.getRosieRules(LanguageEnumeration.PYTHON, ""));
 
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleConfigFileChange();
 
         validateThatCacheIsEmpty(rulesCache);
     }
@@ -64,7 +64,7 @@ public class RosieRulesCacheUpdateHandlerTest extends TestBase {
                 return !codigaConfigFile.getVirtualFile().exists();
             }
         };
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleConfigFileChange();
 
         validateThatCacheIsEmpty(rulesCache);
     }
@@ -75,7 +75,7 @@ public class RosieRulesCacheUpdateHandlerTest extends TestBase {
         assertSize(3, rulesCache.getRosieRules(LanguageEnumeration.PYTHON, ""));
 
         replaceContentsOfCodigaConfigFileWith("");
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleConfigFileChange();
 
         validateThatCacheIsEmpty(rulesCache);
     }
@@ -86,7 +86,7 @@ public class RosieRulesCacheUpdateHandlerTest extends TestBase {
 
         replaceContentsOfCodigaConfigFileWith("rulesets:\n  - erroredRuleset");
 
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleConfigFileChange();
 
         assertFalse(rulesCache.isEmpty());
         assertEquals(100L, rulesCache.getLastUpdatedTimeStamp());
@@ -98,7 +98,7 @@ public class RosieRulesCacheUpdateHandlerTest extends TestBase {
         RosieRulesCache rulesCache = initializeCacheFromCodigaConfigFile();
 
         replaceContentsOfCodigaConfigFileWith("rulesets:\n  - non-existent-ruleset");
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleConfigFileChange();
 
         assertTrue(rulesCache.isEmpty());
         assertEquals(-1, rulesCache.getLastUpdatedTimeStamp());
@@ -108,7 +108,7 @@ public class RosieRulesCacheUpdateHandlerTest extends TestBase {
         RosieRulesCache rulesCache = initializeCacheFromCodigaConfigFile();
 
         replaceContentsOfCodigaConfigFileWith("rulesets:\n  - singleRulesetMultipleLanguagesDefaultTimestamp");
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleConfigFileChange();
 
         assertSize(2, rulesCache.getRosieRules(LanguageEnumeration.PYTHON, ""));
         assertEquals(100, rulesCache.getLastUpdatedTimeStamp());
@@ -118,7 +118,7 @@ public class RosieRulesCacheUpdateHandlerTest extends TestBase {
         RosieRulesCache rulesCache = initializeCacheFromCodigaConfigFile();
 
         replaceContentsOfCodigaConfigFileWith("rulesets:\n  - singleRulesetMultipleLanguages");
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleConfigFileChange();
 
         assertSize(2, rulesCache.getRosieRules(LanguageEnumeration.PYTHON, ""));
         assertEquals(102, rulesCache.getLastUpdatedTimeStamp());
@@ -140,23 +140,55 @@ public class RosieRulesCacheUpdateHandlerTest extends TestBase {
         assertSize(2, rulesCache.getRosieRules(LanguageEnumeration.PYTHON, ""));
         assertEquals(101, rulesCache.getLastUpdatedTimeStamp());
 
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleServerChanges(101L);
 
         assertSize(2, rulesCache.getRosieRules(LanguageEnumeration.PYTHON, ""));
         assertEquals(101, rulesCache.getLastUpdatedTimeStamp());
     }
 
+    public void testDoesntUpdateCacheIfOnlyOtherRulesetsChangedOnServer() {
+        RosieRulesCache rulesCache = RosieRulesCache.getInstance(getProject());
+        var config = new CodigaYmlConfig();
+        config.setRulesets(List.of("singleRulesetSingleLanguage"));
+        rulesCache.setCodigaYmlConfig(config);
+        rulesCache.updateCacheFrom(RulesetsForClientTestSupport.singleRulesetMultipleLanguages());
+        rulesCache.setLastUpdatedTimeStamp(101L);
+
+        //E.g. a ruleset configured only in another open project changed
+        var result = new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleServerChanges(105L);
+
+        assertEquals(RosieRulesCacheUpdateHandler.ServerChangesResult.UNCHANGED, result);
+        assertSize(2, rulesCache.getRosieRules(LanguageEnumeration.PYTHON, ""));
+        assertEquals(101, rulesCache.getLastUpdatedTimeStamp());
+    }
+
+    public void testReportsFailureIfChangedRulesetsCannotBeFetched() {
+        RosieRulesCache rulesCache = RosieRulesCache.getInstance(getProject());
+        var config = new CodigaYmlConfig();
+        config.setRulesets(List.of("erroredRuleset"));
+        rulesCache.setCodigaYmlConfig(config);
+        rulesCache.setLastUpdatedTimeStamp(101L);
+
+        var result = new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleServerChanges(106L);
+
+        assertEquals(RosieRulesCacheUpdateHandler.ServerChangesResult.FAILED, result);
+        assertEquals(101, rulesCache.getLastUpdatedTimeStamp());
+    }
+
     public void testUpdatesCacheIfDifferentLatestTimestampIsReceived() {
         myFixture.copyFileToProject("codiga.yml");
 
         RosieRulesCache rulesCache = RosieRulesCache.getInstance(getProject());
+        var config = new CodigaYmlConfig();
+        config.setRulesets(List.of("singleRulesetSingleLanguage"));
+        rulesCache.setCodigaYmlConfig(config);
         rulesCache.updateCacheFrom(RulesetsForClientTestSupport.singleRulesetMultipleLanguages());
         rulesCache.setLastUpdatedTimeStamp(102L);
 
         assertSize(2, rulesCache.getRosieRules(LanguageEnumeration.PYTHON, ""));
         assertEquals(102, rulesCache.getLastUpdatedTimeStamp());
 
-        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleCacheUpdate();
+        new RosieRulesCacheUpdateHandler(rulesCache, getProject()).handleServerChanges(101L);
 
         assertSize(3, rulesCache.getRosieRules(LanguageEnumeration.PYTHON, ""));
         assertEquals(101, rulesCache.getLastUpdatedTimeStamp());
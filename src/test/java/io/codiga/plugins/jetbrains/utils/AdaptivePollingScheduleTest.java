@@ -0,0 +1,122 @@
+package io.codiga.plugins.jetbrains.utils;
+
+import io.codiga.plugins.jetbrains.testutils.TestBase;
+
+/**
+ * Unit test for {@link AdaptivePollingSchedule}.
+ */
+public class AdaptivePollingScheduleTest extends TestBase {
+
+    private static final long MIN_DELAY_MILLIS = 1_000L;
+    private static final long MAX_DELAY_MILLIS = 8_000L;
+    private static final long IDLE_MAX_DELAY_MILLIS = 32_000L;
+
+    private long now;
+    private double random;
+    private AdaptivePollingSchedule schedule;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        now = 0L;
+        //No jitter by default
+        random = 0.5;
+        schedule = new AdaptivePollingSchedule(MIN_DELAY_MILLIS, MAX_DELAY_MILLIS, IDLE_MAX_DELAY_MILLIS, () -> now, () -> random);
+    }
+
+    public void testFirstPollIsDueRightAway() {
+        assertTrue(schedule.isDue(0L));
+    }
+
+    public void testDelayDoublesWhileUnchanged() {
+        schedule.polled(false, true);
+        assertEquals(2_000L, schedule.getDelayMillis());
+
+        now = 1_999L;
+        assertFalse(schedule.isDue(0L));
+        now = 2_000L;
+        assertTrue(schedule.isDue(0L));
+
+        schedule.polled(false, true);
+        assertEquals(4_000L, schedule.getDelayMillis());
+    }
+
+    public void testDelayIsCappedWhileUserIsActive() {
+        for (int i = 0; i < 10; i++) {
+            schedule.polled(false, true);
+        }
+
+        assertEquals(MAX_DELAY_MILLIS, schedule.getDelayMillis());
+    }
+
+    public void testDelayGrowsFurtherWhileUserIsIdle() {
+        for (int i = 0; i < 10; i++) {
+            schedule.polled(false, false);
+        }
+
+        assertEquals(IDLE_MAX_DELAY_MILLIS, schedule.getDelayMillis());
+    }
+
+    public void testChangeResetsDelay() {
+        schedule.polled(false, true);
+        schedule.polled(false, true);
+
+        schedule.polled(true, true);
+
+        assertEquals(MIN_DELAY_MILLIS, schedule.getDelayMillis());
+    }
+
+    public void testActivityAfterIdlePollResetsDelay() {
+        for (int i = 0; i < 10; i++) {
+            schedule.polled(false, false);
+        }
+        assertFalse(schedule.isDue(0L));
+
+        now = 500L;
+        assertFalse(schedule.isDue(now));
+        now = 1_000L;
+
+        assertTrue(schedule.isDue(500L));
+        assertEquals(MIN_DELAY_MILLIS, schedule.getDelayMillis());
+    }
+
+    public void testActivityDoesntResetDelayWhileUserIsActive() {
+        schedule.polled(false, true);
+        schedule.polled(false, true);
+
+        now = 1_000L;
+
+        assertFalse(schedule.isDue(now));
+        assertEquals(4_000L, schedule.getDelayMillis());
+    }
+
+    public void testResetMakesPollDueRightAway() {
+        for (int i = 0; i < 10; i++) {
+            schedule.polled(false, true);
+        }
+        now = 1_000L;
+        assertFalse(schedule.isDue(now));
+
+        schedule.reset();
+
+        assertTrue(schedule.isDue(now));
+        assertEquals(MIN_DELAY_MILLIS, schedule.getDelayMillis());
+    }
+
+    public void testDelayIsJittered() {
+        random = 0.0;
+        schedule.polled(false, true);
+        now = 1_599L;
+        assertFalse(schedule.isDue(0L));
+        now = 1_600L;
+        assertTrue(schedule.isDue(0L));
+
+        now = 0L;
+        random = 1.0;
+        schedule.polled(true, true);
+        now = 1_199L;
+        assertFalse(schedule.isDue(0L));
+        now = 1_200L;
+        assertTrue(schedule.isDue(0L));
+    }
+}